@@ -0,0 +1,73 @@
+package org.rmatil.sync.client.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rmatil.sync.core.init.ApplicationConfigFactory;
+import org.rmatil.sync.core.model.ApplicationConfig;
+import org.rmatil.sync.core.model.RemoteClientLocation;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialisation of the application config as done by the
+ * connect, set-config and init commands on each invocation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApplicationConfigBenchmark {
+
+    protected ApplicationConfig applicationConfig;
+
+    protected byte[] content;
+
+    @Setup
+    public void setUp()
+            throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        // a config as it looks like after init and set-config --generate-keypair
+        this.applicationConfig = ApplicationConfigFactory.createBootstrapApplicationConfig();
+        this.applicationConfig.setPublicKey((RSAPublicKey) keyPair.getPublic());
+        this.applicationConfig.setPrivateKey((RSAPrivateKey) keyPair.getPrivate());
+        this.applicationConfig.setBootstrapLocation(new RemoteClientLocation("192.168.1.39", 4003));
+
+        this.content = this.applicationConfig.toJson().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return this.applicationConfig.toJson();
+    }
+
+    @Benchmark
+    public ApplicationConfig fromJson() {
+        return ApplicationConfig.fromJson(new String(this.content, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] roundTrip() {
+        ApplicationConfig appConfig = ApplicationConfig.fromJson(new String(this.content, StandardCharsets.UTF_8));
+        appConfig.setCacheTtl(appConfig.getCacheTtl() + 1);
+
+        return appConfig.toJson().getBytes(StandardCharsets.UTF_8);
+    }
+}
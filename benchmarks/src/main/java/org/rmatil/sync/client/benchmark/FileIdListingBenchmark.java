@@ -0,0 +1,181 @@
+package org.rmatil.sync.client.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rmatil.sync.client.dht.FileIdEntry;
+import org.rmatil.sync.client.dht.FileIdLookup;
+import org.rmatil.sync.client.index.FileIdIndex;
+import org.rmatil.sync.client.index.FileStamp;
+import org.rmatil.sync.client.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Listing of file ids as done by the file id item, resolved through
+ * the persistent {@link FileIdIndex} and the {@link FileIdLookup}.
+ * The identifier manager of the DHT is replaced by an in-memory map
+ * which answers after a fixed latency
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileIdListingBenchmark {
+
+    /**
+     * A lookup answering from memory instead of the DHT
+     */
+    protected static class InMemoryFileIdLookup extends FileIdLookup {
+
+        protected Map<String, UUID> fileIds;
+
+        protected long latencyNanos;
+
+        public InMemoryFileIdLookup(Map<String, UUID> fileIds, long latencyNanos, int cacheSize, int window) {
+            super(null, 0L, cacheSize, window);
+            this.fileIds = fileIds;
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        protected UUID fetch(String path) {
+            if (this.latencyNanos > 0) {
+                LockSupport.parkNanos(this.latencyNanos);
+            }
+
+            return this.fileIds.get(path);
+        }
+    }
+
+    @Param({"1024", "16384"})
+    public int paths;
+
+    /**
+     * The simulated time of a single lookup in the DHT
+     */
+    @Param({"100"})
+    public int latencyMicros;
+
+    @Param({"16"})
+    public int lookupConcurrency;
+
+    protected Path objectStore;
+
+    protected Map<String, FileStamp> stamps;
+
+    protected FileIdLookup fileIdLookup;
+
+    /**
+     * An index which already contains all paths, as on subsequent listings
+     */
+    protected FileIdIndex warmIndex;
+
+    @Setup(Level.Trial)
+    public void setUp()
+            throws IOException {
+        this.objectStore = Files.createTempDirectory("sync-fileid-benchmark");
+
+        Map<String, UUID> fileIds = new HashMap<>();
+        this.stamps = new LinkedHashMap<>();
+        for (int i = 0; i < this.paths; i++) {
+            String path = "dir-" + (i % 64) + "/file-" + i + ".txt";
+            fileIds.put(path, UUID.randomUUID());
+            this.stamps.put(path, new FileStamp(1000L + i, 4096L, String.valueOf(i)));
+        }
+
+        // the cache of the lookup is disabled (ttl of 0), so that the index is exercised
+        this.fileIdLookup = new InMemoryFileIdLookup(fileIds, TimeUnit.MICROSECONDS.toNanos(this.latencyMicros), this.paths, this.lookupConcurrency);
+
+        Path warmFolder = Files.createDirectories(this.objectStore.resolve("warm"));
+        this.warmIndex = new FileIdIndex(warmFolder, this.fileIdLookup);
+
+        try {
+            this.warmIndex.resolve(this.stamps);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.warmIndex.save();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.fileIdLookup.shutdown();
+        FileUtils.delete(this.objectStore.toFile());
+    }
+
+    /**
+     * All paths are looked up in the (simulated) DHT
+     */
+    @Benchmark
+    public List<FileIdEntry> listCold() {
+        FileIdIndex index = new FileIdIndex(this.objectStore.resolve("cold"), this.fileIdLookup);
+
+        return this.resolve(index);
+    }
+
+    /**
+     * All paths are served from the index
+     */
+    @Benchmark
+    public List<FileIdEntry> listWarm() {
+        return this.resolve(this.warmIndex);
+    }
+
+    /**
+     * Reading the persisted index, as on connecting
+     */
+    @Benchmark
+    public int loadIndex() {
+        FileIdIndex index = new FileIdIndex(this.objectStore.resolve("warm"), this.fileIdLookup);
+        index.load();
+
+        return index.size();
+    }
+
+    protected List<FileIdEntry> resolve(FileIdIndex index) {
+        List<FileIdEntry> entries = new ArrayList<>(this.paths);
+
+        try {
+            // resolved in batches of the same size as the file id item does
+            Map<String, FileStamp> batch = new LinkedHashMap<>();
+            for (Map.Entry<String, FileStamp> entry : this.stamps.entrySet()) {
+                batch.put(entry.getKey(), entry.getValue());
+
+                if (batch.size() >= 1024) {
+                    entries.addAll(index.resolve(batch));
+                    batch.clear();
+                }
+            }
+
+            entries.addAll(index.resolve(batch));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return entries;
+    }
+}
@@ -0,0 +1,121 @@
+package org.rmatil.sync.client.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.io.Output;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the console output. The standard output is replaced by a stream
+ * buffered and flushed the same way, which discards all written bytes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+
+    protected static class Item implements IItem {
+
+        protected String name;
+
+        protected Item(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void execute() {
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Description of " + this.name;
+        }
+    }
+
+    protected PrintStream originalOut;
+
+    protected List<IItem> items;
+
+    protected Map<UUID, String> fileIds;
+
+    protected KeyPair keyPair;
+
+    @Setup
+    public void setUp()
+            throws Exception {
+        this.originalOut = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }, 128), true));
+
+        this.items = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            this.items.add(new Item("Item " + i));
+        }
+
+        this.fileIds = new LinkedHashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            this.fileIds.put(UUID.randomUUID(), "dir-" + (i % 32) + "/file-" + i + ".txt");
+        }
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        this.keyPair = keyPairGenerator.generateKeyPair();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(this.originalOut);
+    }
+
+    @Benchmark
+    public void printItems() {
+        Output.printItems(this.items);
+    }
+
+    @Benchmark
+    public void printFileIds() {
+        Output.printFileId(this.fileIds);
+    }
+
+    @Benchmark
+    public void printKeys() {
+        Output.printKey(this.keyPair.getPublic());
+        Output.printKey(this.keyPair.getPrivate());
+    }
+}
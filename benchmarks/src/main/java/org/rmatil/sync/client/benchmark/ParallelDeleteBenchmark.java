@@ -0,0 +1,110 @@
+package org.rmatil.sync.client.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rmatil.sync.client.delete.ParallelDelete;
+import org.rmatil.sync.client.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removal of large trees, as done by the clean command, compared to
+ * the recursive deletion of {@link FileUtils#delete(java.io.File)}.
+ * Each invocation deletes a freshly created tree, hence the single shot mode
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParallelDeleteBenchmark {
+
+    /**
+     * The number of directories per level
+     */
+    @Param({"4", "8"})
+    public int fanOut;
+
+    /**
+     * The number of directory levels
+     */
+    @Param({"3"})
+    public int depth;
+
+    /**
+     * The number of files in each directory
+     */
+    @Param({"16"})
+    public int filesPerDirectory;
+
+    /**
+     * The number of threads deleting concurrently
+     */
+    @Param({"1", "8"})
+    public int parallelism;
+
+    protected Path baseDir;
+
+    protected Path tree;
+
+    @Setup(Level.Trial)
+    public void setUpTrial()
+            throws IOException {
+        this.baseDir = Files.createTempDirectory("sync-delete-benchmark");
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp()
+            throws IOException {
+        this.tree = Files.createTempDirectory(this.baseDir, "tree");
+        this.createTree(this.tree, this.depth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        FileUtils.delete(this.baseDir.toFile());
+    }
+
+    @Benchmark
+    public boolean parallelDelete() {
+        return ! new ParallelDelete(this.parallelism).delete(this.tree).hasFailures();
+    }
+
+    @Benchmark
+    public boolean fileUtilsDelete() {
+        return FileUtils.delete(this.tree.toFile());
+    }
+
+    protected void createTree(Path dir, int remainingDepth)
+            throws IOException {
+        byte[] content = new byte[128];
+
+        for (int i = 0; i < this.filesPerDirectory; i++) {
+            Files.write(dir.resolve("file-" + i + ".txt"), content);
+        }
+
+        if (0 == remainingDepth) {
+            return;
+        }
+
+        for (int i = 0; i < this.fanOut; i++) {
+            Path child = Files.createDirectory(dir.resolve("dir-" + i));
+            this.createTree(child, remainingDepth - 1);
+        }
+    }
+}
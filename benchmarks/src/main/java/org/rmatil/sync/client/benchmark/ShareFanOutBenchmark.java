@@ -0,0 +1,136 @@
+package org.rmatil.sync.client.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rmatil.sync.client.sharing.SharingExecutor;
+import org.rmatil.sync.client.sharing.SharingResult;
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.client.walker.StorageTreeWalker;
+import org.rmatil.sync.core.syncer.sharing.event.ISharingEvent;
+import org.rmatil.sync.core.syncer.sharing.event.ShareEvent;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.version.api.AccessType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The fan-out of share events for the contents of a directory as done by the share item:
+ * the tree is walked and each element is submitted to the {@link SharingExecutor}.
+ * Instead of the network, each event waits for a fixed latency
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShareFanOutBenchmark {
+
+    /**
+     * A sharing executor which does not hand the events to the library
+     */
+    protected static class LatencySharingExecutor extends SharingExecutor {
+
+        protected long latencyNanos;
+
+        public LatencySharingExecutor(int concurrency, long latencyNanos) {
+            super(null, concurrency, null);
+            this.latencyNanos = latencyNanos;
+        }
+
+        @Override
+        protected void share(ISharingEvent event) {
+            if (this.latencyNanos > 0) {
+                LockSupport.parkNanos(this.latencyNanos);
+            }
+        }
+    }
+
+    @Param({"1", "8", "32"})
+    public int concurrency;
+
+    /**
+     * The simulated time to share a single element
+     */
+    @Param({"0", "200"})
+    public int latencyMicros;
+
+    /**
+     * The number of directories per level
+     */
+    @Param({"8"})
+    public int fanOut;
+
+    /**
+     * The number of files in each directory
+     */
+    @Param({"16"})
+    public int filesPerDirectory;
+
+    protected Path rootDir;
+
+    protected StorageTreeWalker walker;
+
+    @Setup
+    public void setUp()
+            throws IOException {
+        this.rootDir = Files.createTempDirectory("sync-share-benchmark");
+
+        Path shared = Files.createDirectory(this.rootDir.resolve("shared"));
+        this.createTree(shared, 2);
+
+        this.walker = new StorageTreeWalker(new LocalStorageAdapter(this.rootDir));
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.delete(this.rootDir.toFile());
+    }
+
+    @Benchmark
+    public SharingResult shareDirectory()
+            throws IOException, InterruptedException {
+        SharingExecutor sharingExecutor = new LatencySharingExecutor(this.concurrency, TimeUnit.MICROSECONDS.toNanos(this.latencyMicros));
+
+        // the parent has to be shared before its children
+        sharingExecutor.submit(new ShareEvent(Paths.get("shared"), AccessType.WRITE, "bob"));
+        sharingExecutor.drain();
+
+        this.walker.walk(Paths.get("shared"), (relativePath, attributes) ->
+                sharingExecutor.submit(new ShareEvent(relativePath, AccessType.WRITE, "bob"))
+        );
+
+        return sharingExecutor.await();
+    }
+
+    protected void createTree(Path dir, int remainingDepth)
+            throws IOException {
+        for (int i = 0; i < this.filesPerDirectory; i++) {
+            Files.createFile(dir.resolve("file-" + i + ".txt"));
+        }
+
+        if (0 == remainingDepth) {
+            return;
+        }
+
+        for (int i = 0; i < this.fanOut; i++) {
+            Path child = Files.createDirectory(dir.resolve("dir-" + i));
+            this.createTree(child, remainingDepth - 1);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.rmatil.sync.client.loadtest;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import org.rmatil.sync.client.command.ICliRunnable;
+import org.rmatil.sync.client.config.DefaultApplicationConfig;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.executor.CommandExecutor;
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.core.Sync;
+import org.rmatil.sync.core.model.ApplicationConfig;
+import org.rmatil.sync.core.model.RemoteClientLocation;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Starts a cluster of nodes of the same user within a single JVM on the loopback interface
+ * and reports the bootstrap latencies, the heap used per node and the throughput of synchronised files.
+ * <p>
+ * The first node starts as bootstrap peer, all others bootstrap to it concurrently.
+ * Afterwards, files are written to the folder of the first node and the time until they
+ * have arrived in the folders of all other nodes is measured.
+ * </p>
+ * <p>
+ * Run it using {@code java -cp target/benchmarks.jar org.rmatil.sync.client.loadtest.ClusterLoadTest --nodes 16}
+ * </p>
+ */
+@Command(name = "cluster-load-test", description = "Start a local cluster of nodes and measure bootstrapping and synchronisation")
+public class ClusterLoadTest implements ICliRunnable {
+
+    /**
+     * The interval in which the folders of the nodes are checked for synchronised files
+     */
+    public static final long POLL_INTERVAL = 100L;
+
+    @Inject
+    private HelpOption<ClusterLoadTest> help;
+
+    @Option(name = {"-n", "--nodes"}, title = "Nodes", arity = 1, description = "The number of nodes to start (default: 8)")
+    private int nodes = 8;
+
+    @Option(name = {"--base-port"}, title = "BasePort", arity = 1, description = "The port of the bootstrap node. The other nodes use the subsequent ports (default: 4100)")
+    private int basePort = 4100;
+
+    @Option(name = {"-c", "--concurrency"}, title = "Concurrency", arity = 1, description = "The number of nodes which bootstrap at the same time (default: all)")
+    private Integer concurrency;
+
+    @Option(name = {"-f", "--files"}, title = "Files", arity = 1, description = "The number of files to synchronise (default: 50)")
+    private int files = 50;
+
+    @Option(name = {"-s", "--file-size"}, title = "FileSize", arity = 1, description = "The size of each file in bytes (default: 4096)")
+    private int fileSize = 4096;
+
+    @Option(name = {"-t", "--sync-timeout"}, title = "SyncTimeout", arity = 1, description = "The maximum time to wait for all files to be synchronised (in milliseconds, default: 120000)")
+    private long syncTimeout = 120000L;
+
+    public static void main(String[] args) {
+        CommandExecutor.executeSingleCommand(ClusterLoadTest.class, args);
+    }
+
+    @Override
+    public int run() {
+        if (this.help.showHelpIfRequested()) {
+            return 0;
+        }
+
+        if (this.nodes < 2) {
+            Output.println("At least 2 nodes are required");
+            return 1;
+        }
+
+        List<Path> folders = new ArrayList<>();
+        List<Sync> started = new ArrayList<>();
+        Sync[] syncs = new Sync[this.nodes];
+
+        try {
+            KeyPair keyPair = this.generateKeyPair();
+
+            long heapBefore = usedHeap();
+
+            for (int i = 0; i < this.nodes; i++) {
+                Path folder = Files.createTempDirectory("sync-cluster-" + i + "-");
+                folders.add(folder);
+
+                LocalStorageAdapter storageAdapter = new LocalStorageAdapter(folder);
+                Sync.init(storageAdapter);
+                syncs[i] = new Sync(storageAdapter);
+            }
+
+            String loopback = InetAddress.getLoopbackAddress().getHostAddress();
+
+            // the bootstrap peer
+            long start = System.currentTimeMillis();
+            syncs[0].connect(this.createConfig(keyPair, this.basePort, null));
+            started.add(syncs[0]);
+            Output.println("Started bootstrap node on " + loopback + ":" + this.basePort + " in " + (System.currentTimeMillis() - start) + " ms");
+
+            LatencyStatistics bootstrapLatencies = this.bootstrap(syncs, keyPair, new RemoteClientLocation(loopback, this.basePort), started);
+
+            long heapAfter = usedHeap();
+
+            Output.println("Bootstrapped " + bootstrapLatencies.count() + " of " + (this.nodes - 1) + " nodes");
+            Output.println("Bootstrap latency (ms): p50=" + bootstrapLatencies.percentile(50) +
+                    " p90=" + bootstrapLatencies.percentile(90) +
+                    " p99=" + bootstrapLatencies.percentile(99) +
+                    " max=" + bootstrapLatencies.max());
+            Output.println("Heap used per node: " + ((heapAfter - heapBefore) / started.size() / 1024) + " KiB");
+
+            if (started.size() > 1) {
+                this.measureSynchronisation(folders, syncs, started);
+            }
+
+            return (started.size() == this.nodes) ? 0 : 1;
+
+        } catch (Exception e) {
+            Output.println("Load test failed: " + e.getMessage());
+            return 1;
+        } finally {
+            Output.print("Shutting down " + started.size() + " nodes. Please wait... ");
+            for (Sync sync : started) {
+                sync.shutdown();
+            }
+            Output.println("Complete");
+
+            for (Path folder : folders) {
+                FileUtils.delete(folder.toFile());
+            }
+        }
+    }
+
+    /**
+     * Bootstraps all nodes except the first one to the bootstrap location concurrently
+     *
+     * @param syncs             All nodes
+     * @param keyPair           The key pair of the user
+     * @param bootstrapLocation The location of the bootstrap peer
+     * @param started           The list to add all successfully started nodes to
+     *
+     * @return The latencies of connecting the nodes
+     *
+     * @throws InterruptedException If interrupted while waiting for the nodes
+     */
+    protected LatencyStatistics bootstrap(Sync[] syncs, KeyPair keyPair, RemoteClientLocation bootstrapLocation, List<Sync> started)
+            throws InterruptedException {
+        int threads = (null != this.concurrency) ? Math.max(1, this.concurrency) : this.nodes - 1;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+        LatencyStatistics latencies = new LatencyStatistics();
+        List<Future<Sync>> futures = new ArrayList<>();
+
+        for (int i = 1; i < syncs.length; i++) {
+            final Sync sync = syncs[i];
+            final int port = this.basePort + i;
+
+            futures.add(executorService.submit(() -> {
+                long start = System.currentTimeMillis();
+                sync.connect(this.createConfig(keyPair, port, bootstrapLocation));
+                latencies.add(System.currentTimeMillis() - start);
+
+                return sync;
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                started.add(futures.get(i).get());
+            } catch (Exception e) {
+                Output.println("Node " + (i + 1) + " failed to bootstrap: " + e.getMessage());
+            }
+        }
+
+        executorService.shutdown();
+
+        return latencies;
+    }
+
+    /**
+     * Writes files to the folder of the first node and waits until
+     * they have been synchronised to the folders of all other started nodes
+     *
+     * @param folders The folders of all nodes
+     * @param syncs   All nodes
+     * @param started All successfully started nodes
+     *
+     * @throws IOException          If the files could not be written
+     * @throws InterruptedException If interrupted while waiting for the files
+     */
+    protected void measureSynchronisation(List<Path> folders, Sync[] syncs, List<Sync> started)
+            throws IOException, InterruptedException {
+        Random random = new Random(42);
+        byte[] content = new byte[this.fileSize];
+
+        List<String> fileNames = new ArrayList<>();
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < this.files; i++) {
+            random.nextBytes(content);
+            String fileName = "load-test-" + i + ".bin";
+            Files.write(folders.get(0).resolve(fileName), content);
+            fileNames.add(fileName);
+        }
+
+        int pending;
+        long deadline = start + this.syncTimeout;
+
+        do {
+            pending = 0;
+
+            for (int i = 1; i < folders.size(); i++) {
+                if (! started.contains(syncs[i])) {
+                    continue;
+                }
+
+                for (String fileName : fileNames) {
+                    File file = folders.get(i).resolve(fileName).toFile();
+                    if (! file.exists() || file.length() != this.fileSize) {
+                        pending++;
+                    }
+                }
+            }
+
+            if (0 == pending) {
+                break;
+            }
+
+            Thread.sleep(POLL_INTERVAL);
+        } while (System.currentTimeMillis() < deadline);
+
+        long duration = Math.max(1L, System.currentTimeMillis() - start);
+        long expected = (long) (started.size() - 1) * this.files;
+
+        long synced = expected - pending;
+
+        Output.println("Synchronised " + synced + " of " + expected + " file copies in " + duration + " ms");
+        Output.println("Throughput: " + String.format("%.1f", synced * 1000d / duration) + " files/s, " +
+                String.format("%.1f", synced * (double) this.fileSize / 1024d * 1000d / duration) + " KiB/s");
+    }
+
+    protected ApplicationConfig createConfig(KeyPair keyPair, int port, RemoteClientLocation bootstrapLocation) {
+        // all nodes are clients of the same user
+        ApplicationConfig appConfig = DefaultApplicationConfig.create(keyPair);
+        appConfig.setUserName("loadtest");
+        appConfig.setPassword("loadtest");
+        appConfig.setSalt("loadtest");
+        appConfig.setPort(port);
+        appConfig.setBootstrapLocation(bootstrapLocation);
+
+        return appConfig;
+    }
+
+    protected KeyPair generateKeyPair()
+            throws NoSuchAlgorithmException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    protected static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
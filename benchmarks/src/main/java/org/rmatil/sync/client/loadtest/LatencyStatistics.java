@@ -0,0 +1,43 @@
+package org.rmatil.sync.client.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects latency samples and computes percentiles over them
+ */
+public class LatencyStatistics {
+
+    protected final List<Long> samples = new ArrayList<>();
+
+    public synchronized void add(long millis) {
+        this.samples.add(millis);
+    }
+
+    public synchronized int count() {
+        return this.samples.size();
+    }
+
+    /**
+     * @param percentile The percentile in the range (0, 100]
+     *
+     * @return The sample at the given percentile (nearest rank) or -1, if no samples have been recorded
+     */
+    public synchronized long percentile(double percentile) {
+        if (this.samples.isEmpty()) {
+            return - 1L;
+        }
+
+        List<Long> sorted = new ArrayList<>(this.samples);
+        Collections.sort(sorted);
+
+        int rank = (int) Math.ceil(percentile / 100d * sorted.size());
+
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    public synchronized long max() {
+        return this.samples.isEmpty() ? - 1L : Collections.max(this.samples);
+    }
+}
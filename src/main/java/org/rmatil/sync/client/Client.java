@@ -7,7 +7,11 @@ import org.rmatil.sync.client.command.clean.CleanCommand;
 import org.rmatil.sync.client.command.config.GetConfigCommand;
 import org.rmatil.sync.client.command.config.SetConfigCommand;
 import org.rmatil.sync.client.command.connect.ConnectCommand;
+import org.rmatil.sync.client.command.gc.GcCommand;
 import org.rmatil.sync.client.command.init.InitCommand;
+import org.rmatil.sync.client.command.share.ShareCommand;
+import org.rmatil.sync.client.command.share.UnshareCommand;
+import org.rmatil.sync.client.command.status.StatusCommand;
 import org.rmatil.sync.client.executor.CommandExecutor;
 import org.rmatil.sync.client.help.Help;
 import org.rmatil.sync.core.Sync;
@@ -42,7 +46,11 @@ public class Client {
                 .withCommand(Help.class)
                 .withCommand(InitCommand.class)
                 .withCommand(CleanCommand.class)
+                .withCommand(GcCommand.class)
                 .withCommand(ConnectCommand.class)
+                .withCommand(ShareCommand.class)
+                .withCommand(UnshareCommand.class)
+                .withCommand(StatusCommand.class)
                 .withDefaultCommand(Help.class);
 
 
@@ -0,0 +1,18 @@
+package org.rmatil.sync.client.cache;
+
+import org.rmatil.sync.network.core.model.NodeLocation;
+
+import java.util.List;
+
+public interface INodeLocationListener {
+
+    /**
+     * Invoked from the refreshing thread of the {@link NodeLocationCache}
+     * each time the online locations of a user have changed
+     *
+     * @param username         The user whose locations changed
+     * @param oldLocations     The previously known locations
+     * @param currentLocations The locations now online
+     */
+    void onNodeLocationsChanged(String username, List<NodeLocation> oldLocations, List<NodeLocation> currentLocations);
+}
@@ -0,0 +1,125 @@
+package org.rmatil.sync.client.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size bounded cache whose entries expire after a configurable time to live.
+ * If the maximum size is reached, the least recently used entry is evicted.
+ * All operations are thread-safe.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class LruTtlCache<K, V> {
+
+    protected static class Entry<V> {
+
+        protected V value;
+
+        /**
+         * The time in nanoseconds (see {@link System#nanoTime()}) at which the entry expires
+         */
+        protected long expiresAt;
+
+        protected Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    protected final int maxSize;
+
+    /**
+     * The time to live in milliseconds
+     */
+    protected volatile long ttl;
+
+    protected final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * @param maxSize The maximum number of entries
+     * @param ttl     The time to live of an entry in milliseconds. If not positive, nothing is cached
+     */
+    public LruTtlCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return this.size() > LruTtlCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param key The key to look up
+     *
+     * @return The cached value or null, if not present or expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = this.entries.get(key);
+
+        if (null == entry) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expiresAt >= 0) {
+            this.entries.remove(key);
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Caches the given value using the configured time to live
+     *
+     * @param key   The key
+     * @param value The value. Must not be null
+     */
+    public void put(K key, V value) {
+        this.put(key, value, this.ttl);
+    }
+
+    /**
+     * Caches the given value using the given time to live
+     *
+     * @param key   The key
+     * @param value The value. Must not be null
+     * @param ttl   The time to live in milliseconds. If not positive, the value is not cached
+     */
+    public synchronized void put(K key, V value, long ttl) {
+        if (ttl <= 0) {
+            this.entries.remove(key);
+            return;
+        }
+
+        this.entries.put(key, new Entry<>(value, System.nanoTime() + ttl * 1_000_000L));
+    }
+
+    public synchronized void invalidate(K key) {
+        this.entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Changes the time to live for entries cached from now on
+     *
+     * @param ttl The time to live in milliseconds
+     */
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+}
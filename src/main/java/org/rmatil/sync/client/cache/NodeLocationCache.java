@@ -0,0 +1,318 @@
+package org.rmatil.sync.client.cache;
+
+import org.rmatil.sync.client.metrics.ClientMetrics;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.network.api.INodeManager;
+import org.rmatil.sync.network.core.model.NodeLocation;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caches the online locations of users and keeps them up to date in the background.
+ * <p>
+ * Only the first lookup of a user blocks on the DHT. Afterwards, the locations
+ * of recently looked up users are refreshed periodically on a single background thread
+ * and lookups are answered from the cache immediately. Users which have not been
+ * looked up within the idle timeout are dropped instead of refreshed, and if more
+ * users than the maximum size are cached, the least recently looked up ones are dropped. If a cached value is older
+ * than the refresh interval (e.g. because the last refresh failed), it is still
+ * returned while a refresh is triggered in the background (stale-while-revalidate).
+ * Registered {@link INodeLocationListener}s are notified whenever the locations of
+ * a user change.
+ * </p>
+ */
+public class NodeLocationCache {
+
+    protected static class CachedLocations {
+
+        protected final List<NodeLocation> locations;
+
+        protected final long fetchedAt;
+
+        /**
+         * The time the locations have last been looked up
+         */
+        protected volatile long accessedAt;
+
+        protected CachedLocations(List<NodeLocation> locations, long fetchedAt, long accessedAt) {
+            this.locations = locations;
+            this.fetchedAt = fetchedAt;
+            this.accessedAt = accessedAt;
+        }
+    }
+
+    protected INodeManager nodeManager;
+
+    /**
+     * The interval in milliseconds in which the locations are refreshed
+     */
+    protected long refreshInterval;
+
+    /**
+     * The time in milliseconds after which users which have not been looked up are dropped
+     */
+    protected long idleTimeout;
+
+    /**
+     * The maximum number of cached users
+     */
+    protected int maxSize;
+
+    protected Map<String, CachedLocations> cache;
+
+    /**
+     * Users whose locations are currently being refreshed
+     */
+    protected Set<String> refreshing;
+
+    protected List<INodeLocationListener> listeners;
+
+    protected ScheduledExecutorService scheduledExecutorService;
+
+    protected AtomicBoolean started;
+
+    /**
+     * @param nodeManager     The node manager to fetch the locations from
+     * @param refreshInterval The interval in milliseconds in which the locations are refreshed
+     * @param idleTimeout     The time in milliseconds after which users which have not been looked up are dropped
+     * @param maxSize         The maximum number of cached users
+     */
+    public NodeLocationCache(INodeManager nodeManager, long refreshInterval, long idleTimeout, int maxSize) {
+        this.nodeManager = nodeManager;
+        this.refreshInterval = refreshInterval;
+        this.idleTimeout = idleTimeout;
+        this.maxSize = maxSize;
+        this.cache = new ConcurrentHashMap<>();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.started = new AtomicBoolean(false);
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "node-location-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts refreshing the locations of recently looked up users periodically
+     */
+    public void start() {
+        if (this.started.compareAndSet(false, true)) {
+            this.scheduledExecutorService.scheduleWithFixedDelay(
+                    this::refreshAll,
+                    this.refreshInterval,
+                    this.refreshInterval,
+                    TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    public void shutdown() {
+        this.scheduledExecutorService.shutdownNow();
+    }
+
+    public void addListener(INodeLocationListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(INodeLocationListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Returns the online locations of the given user.
+     * Blocks on the DHT only if the user has not been looked up before.
+     *
+     * @param username The user to get the locations for
+     *
+     * @return The locations of the user
+     *
+     * @throws InputOutputException If the locations were not cached and could not be fetched
+     */
+    public List<NodeLocation> getNodeLocations(String username)
+            throws InputOutputException {
+        CachedLocations cached = this.cache.get(username);
+
+        if (null == cached) {
+            return this.refresh(username);
+        }
+
+        long now = System.currentTimeMillis();
+        cached.accessedAt = now;
+
+        if (now - cached.fetchedAt > this.refreshInterval) {
+            this.refreshAsync(username);
+        }
+
+        return cached.locations;
+    }
+
+    /**
+     * Fetches the locations of the given user in the background,
+     * so that a subsequent lookup does not block on the DHT
+     *
+     * @param username The user to fetch the locations for
+     */
+    public void prefetch(String username) {
+        CachedLocations cached = this.cache.get(username);
+        if (null != cached) {
+            cached.accessedAt = System.currentTimeMillis();
+        }
+
+        this.refreshAsync(username);
+    }
+
+    /**
+     * @param username The user
+     *
+     * @return The age of the cached locations in milliseconds or -1, if none are cached
+     */
+    public long getAge(String username) {
+        CachedLocations cached = this.cache.get(username);
+
+        return (null != cached) ? System.currentTimeMillis() - cached.fetchedAt : - 1;
+    }
+
+    /**
+     * Fetches the locations of the given user from the DHT and updates the cache
+     *
+     * @param username The user to fetch the locations for
+     *
+     * @return The fetched locations
+     *
+     * @throws InputOutputException If fetching failed
+     */
+    public List<NodeLocation> refresh(String username)
+            throws InputOutputException {
+        List<NodeLocation> fetched;
+        long start = System.nanoTime();
+
+        try (ITraceSpan ignored = Tracing.begin("node-locations", "fetch", username)) {
+            fetched = this.nodeManager.getNodeLocations(username);
+        } catch (InputOutputException | RuntimeException e) {
+            ClientMetrics.NODE_LOCATIONS_FAILURES.increment();
+            throw e;
+        } finally {
+            ClientMetrics.NODE_LOCATIONS_LATENCY.recordSince(start);
+        }
+
+        List<NodeLocation> locations = (null != fetched) ? Collections.unmodifiableList(new ArrayList<>(fetched)) : Collections.emptyList();
+
+        long now = System.currentTimeMillis();
+        CachedLocations previous = this.cache.get(username);
+        // a background refresh does not count as a lookup
+        long accessedAt = (null != previous) ? previous.accessedAt : now;
+
+        CachedLocations old = this.cache.put(username, new CachedLocations(locations, now, accessedAt));
+
+        if (null == old && this.cache.size() > this.maxSize) {
+            this.evictLeastRecentlyAccessed();
+        }
+
+        if (null != old && ! this.toKeys(old.locations).equals(this.toKeys(locations))) {
+            for (INodeLocationListener listener : this.listeners) {
+                listener.onNodeLocationsChanged(username, old.locations, locations);
+            }
+        }
+
+        return locations;
+    }
+
+    protected void refreshAsync(String username) {
+        if (! this.refreshing.add(username)) {
+            // a refresh is already in progress
+            return;
+        }
+
+        try {
+            this.scheduledExecutorService.execute(() -> {
+                try {
+                    this.refresh(username);
+                } catch (InputOutputException | RuntimeException e) {
+                    // keep serving the stale value, retried on next lookup or refresh
+                } finally {
+                    this.refreshing.remove(username);
+                }
+            });
+        } catch (RuntimeException e) {
+            // rejected since the cache has been shut down
+            this.refreshing.remove(username);
+        }
+    }
+
+    /**
+     * Drops the users which have not been looked up within the idle timeout
+     * and refreshes the locations of all others
+     */
+    protected void refreshAll() {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, CachedLocations> entry : this.cache.entrySet()) {
+            String username = entry.getKey();
+
+            if (now - entry.getValue().accessedAt > this.idleTimeout) {
+                this.cache.remove(username, entry.getValue());
+                continue;
+            }
+
+            if (! this.refreshing.add(username)) {
+                continue;
+            }
+
+            try {
+                this.refresh(username);
+            } catch (InputOutputException | RuntimeException e) {
+                // keep serving the stale value
+            } finally {
+                this.refreshing.remove(username);
+            }
+        }
+    }
+
+    /**
+     * Drops the users looked up least recently until at most the maximum number of users is cached
+     */
+    protected void evictLeastRecentlyAccessed() {
+        while (this.cache.size() > this.maxSize) {
+            Map.Entry<String, CachedLocations> eldest = null;
+            for (Map.Entry<String, CachedLocations> entry : this.cache.entrySet()) {
+                if (null == eldest || entry.getValue().accessedAt < eldest.getValue().accessedAt) {
+                    eldest = entry;
+                }
+            }
+
+            if (null == eldest) {
+                return;
+            }
+
+            this.cache.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * @param locations The locations to convert
+     *
+     * @return A set of keys identifying each location, independent of its equals implementation
+     */
+    protected Set<String> toKeys(List<NodeLocation> locations) {
+        Set<String> keys = new HashSet<>();
+        for (NodeLocation location : locations) {
+            keys.add(location.getClientDeviceId() + "@" + location.getIpAddress() + ":" + location.getPort());
+        }
+
+        return keys;
+    }
+}
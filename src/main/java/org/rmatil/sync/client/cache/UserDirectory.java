@@ -0,0 +1,232 @@
+package org.rmatil.sync.client.cache;
+
+import org.rmatil.sync.client.dht.FileIdLookup;
+import org.rmatil.sync.client.metrics.ClientMetrics;
+import org.rmatil.sync.network.api.IUserManager;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Caches whether users are registered, so that sharing with the same users
+ * again and again does not check their registration in the DHT each time.
+ * <p>
+ * Registered users are remembered for longer than unknown ones, since a
+ * mistyped user might be registered in the meantime, while registered users
+ * are never removed. Failed checks are not cached. Concurrent checks of the
+ * same user share a single lookup, and checks of several users (e.g. of all
+ * users of a manifest) are issued concurrently.
+ * </p>
+ */
+public class UserDirectory {
+
+    protected IUserManager userManager;
+
+    protected LruTtlCache<String, Boolean> cache;
+
+    protected long registeredTtl;
+
+    protected long unregisteredTtl;
+
+    /**
+     * The lookups in progress, by user
+     */
+    protected Map<String, CompletableFuture<Boolean>> inFlight;
+
+    protected ExecutorService executorService;
+
+    /**
+     * Whether the executor has been created by this directory and is shut down with it
+     */
+    protected boolean ownsExecutorService;
+
+    /**
+     * @param userManager     The user manager to check the registration with
+     * @param cacheSize       The maximum number of cached users
+     * @param registeredTtl   The time to live of registered users in milliseconds
+     * @param unregisteredTtl The time to live of unknown users in milliseconds
+     * @param window          The maximum number of concurrent lookups
+     */
+    public UserDirectory(IUserManager userManager, int cacheSize, long registeredTtl, long unregisteredTtl, int window) {
+        this(userManager, cacheSize, registeredTtl, unregisteredTtl, FileIdLookup.createExecutorService(window));
+        this.ownsExecutorService = true;
+    }
+
+    /**
+     * @param userManager     The user manager to check the registration with
+     * @param cacheSize       The maximum number of cached users
+     * @param registeredTtl   The time to live of registered users in milliseconds
+     * @param unregisteredTtl The time to live of unknown users in milliseconds
+     * @param executorService The executor to run concurrent lookups on, possibly shared with other lookups
+     */
+    public UserDirectory(IUserManager userManager, int cacheSize, long registeredTtl, long unregisteredTtl, ExecutorService executorService) {
+        this.userManager = userManager;
+        this.cache = new LruTtlCache<>(cacheSize, registeredTtl);
+        this.registeredTtl = registeredTtl;
+        this.unregisteredTtl = unregisteredTtl;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.executorService = executorService;
+        this.ownsExecutorService = false;
+    }
+
+    /**
+     * Checks whether the given user is registered.
+     * Only blocks on the DHT if the user is not cached
+     *
+     * @param username The user to check
+     *
+     * @return True, if the user is registered
+     *
+     * @throws InputOutputException If the check failed
+     */
+    public boolean isRegistered(String username)
+            throws InputOutputException {
+        Boolean cached = this.cache.get(username);
+
+        if (null != cached) {
+            ClientMetrics.USER_CACHE_HITS.increment();
+            return cached;
+        }
+
+        CompletableFuture<Boolean> lookup = new CompletableFuture<>();
+        CompletableFuture<Boolean> pending = this.inFlight.putIfAbsent(username, lookup);
+
+        if (null != pending) {
+            // the user is being looked up by another thread already
+            return this.await(pending, username);
+        }
+
+        try {
+            boolean isRegistered = ClientMetrics.isRegistered(this.userManager, username);
+
+            this.cache.put(username, isRegistered, isRegistered ? this.registeredTtl : this.unregisteredTtl);
+            lookup.complete(isRegistered);
+
+            return isRegistered;
+        } catch (InputOutputException | RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(username, lookup);
+        }
+    }
+
+    /**
+     * Checks concurrently whether the given users are registered
+     *
+     * @param usernames The users to check
+     *
+     * @return Whether each user is registered, in the order of the given users. Users whose check failed are missing
+     *
+     * @throws InterruptedException If interrupted while waiting for the checks
+     */
+    public Map<String, Boolean> isRegistered(Collection<String> usernames)
+            throws InterruptedException {
+        Set<String> distinct = new LinkedHashSet<>(usernames);
+        Map<String, Future<Boolean>> futures = new LinkedHashMap<>();
+
+        for (String username : distinct) {
+            // cached users are answered without a round trip to the pool
+            Boolean cached = this.cache.get(username);
+
+            if (null != cached) {
+                ClientMetrics.USER_CACHE_HITS.increment();
+                futures.put(username, CompletableFuture.completedFuture(cached));
+            } else {
+                futures.put(username, this.executorService.submit(() -> this.isRegistered(username)));
+            }
+        }
+
+        Map<String, Boolean> registered = new LinkedHashMap<>();
+
+        try {
+            for (Map.Entry<String, Future<Boolean>> entry : futures.entrySet()) {
+                try {
+                    registered.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    // reported as missing
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<Boolean> future : futures.values()) {
+                future.cancel(true);
+            }
+
+            throw e;
+        }
+
+        return registered;
+    }
+
+    /**
+     * Checks in the background whether the given users are registered,
+     * so that subsequent checks are answered from the cache
+     *
+     * @param usernames The users to check
+     */
+    public void prefetch(Collection<String> usernames) {
+        List<String> uncached = new ArrayList<>();
+        for (String username : new LinkedHashSet<>(usernames)) {
+            if (null == this.cache.get(username)) {
+                uncached.add(username);
+            }
+        }
+
+        for (String username : uncached) {
+            this.executorService.submit(() -> {
+                try {
+                    this.isRegistered(username);
+                } catch (InputOutputException | RuntimeException e) {
+                    // checked again on use
+                }
+            });
+        }
+    }
+
+    /**
+     * Forgets the registration of the given user, e.g. after sharing with it failed
+     *
+     * @param username The user to forget
+     */
+    public void invalidate(String username) {
+        this.cache.invalidate(username);
+    }
+
+    public void shutdown() {
+        if (this.ownsExecutorService) {
+            this.executorService.shutdownNow();
+        }
+    }
+
+    protected boolean await(CompletableFuture<Boolean> pending, String username)
+            throws InputOutputException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            // do not wait for the other thread, but do not fail the check either
+            Thread.currentThread().interrupt();
+            return ClientMetrics.isRegistered(this.userManager, username);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InputOutputException) {
+                throw (InputOutputException) e.getCause();
+            }
+
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -5,6 +5,10 @@ import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
 import org.rmatil.sync.client.command.ICliRunnable;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.delete.DeleteFailure;
+import org.rmatil.sync.client.delete.DeleteResult;
+import org.rmatil.sync.client.delete.ParallelDelete;
+import org.rmatil.sync.client.delete.Trash;
 import org.rmatil.sync.client.exception.ValidationException;
 import org.rmatil.sync.client.util.FileUtils;
 import org.rmatil.sync.client.validator.IValidator;
@@ -12,12 +16,19 @@ import org.rmatil.sync.client.validator.PathValidator;
 import org.rmatil.sync.core.config.Config;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 @Command(name = "clean", description = "Clean up created files")
 public class CleanCommand implements ICliRunnable {
 
+    /**
+     * The maximum number of failures printed
+     */
+    private static final int MAX_PRINTED_FAILURES = 10;
+
     /**
      * The special {@link HelpOption} provides a {@code -h} and {@code --help}
      * option that can be used to request that help be shown.
@@ -42,25 +53,42 @@ public class CleanCommand implements ICliRunnable {
     @Option(name = {"-a", "--app-config-path"}, title = "AppConfigPath", arity = 1, description = "The path to the application config")
     private String applicationConfigPath;
 
+    @Option(name = {"-b", "--background"}, title = "Background", description = "Move the object store to the trash and delete it in a background process, instead of waiting for the deletion")
+    private boolean background;
+
+    @Option(name = {"--purge-trash"}, title = "PurgeTrash", arity = 1, hidden = true, description = "Delete the given trash folder. Used by the background process")
+    private String purgeTrash;
+
     @Override
     public int run() {
         if (! this.help.showHelpIfRequested()) {
 
+            if (null != this.purgeTrash) {
+                Path trash = Paths.get(this.purgeTrash);
+
+                if (! Trash.isTrash(trash)) {
+                    Output.println("Path " + this.purgeTrash + " is not a trash folder");
+                    return 1;
+                }
+
+                return this.delete(trash) ? 0 : 1;
+            }
+
             if (null != this.cleanAll) {
                 this.cleanAll = this.cleanAll.replaceFirst("^~", System.getProperty("user.home"));
 
                 IValidator pathValidator = new PathValidator(this.cleanAll);
 
                 if (! pathValidator.validate()) {
-                    System.out.println("Failed to remove all configuration files: the provided synced folder does not exist");
+                    Output.println("Failed to remove all configuration files: the provided synced folder does not exist");
                     return 1;
                 }
 
-                this.removeObjectStoreFolder(this.cleanAll);
+                boolean removed = this.removeObjectStoreFolder(this.cleanAll);
 
                 try {
-                    this.removeConfigurationFolder();
-                    return 0;
+                    boolean removedConfig = this.removeConfigurationFolder();
+                    return (removed && removedConfig) ? 0 : 1;
                 } catch (ValidationException e) {
                     Output.println(e.getMessage());
                     return 1;
@@ -69,8 +97,7 @@ public class CleanCommand implements ICliRunnable {
 
             if (this.cleanConfig) {
                 try {
-                    this.removeConfigurationFolder();
-                    return 0;
+                    return this.removeConfigurationFolder() ? 0 : 1;
                 } catch (ValidationException e) {
                     Output.println(e.getMessage());
                     return 1;
@@ -81,12 +108,11 @@ public class CleanCommand implements ICliRunnable {
                 IValidator pathValidator = new PathValidator(this.cleanObjectStore);
 
                 if (! pathValidator.validate()) {
-                    System.out.println("Failed to remove object store files: the provided synced folder does not exist");
+                    Output.println("Failed to remove object store files: the provided synced folder does not exist");
                     return 1;
                 }
 
-                this.removeObjectStoreFolder(this.cleanObjectStore);
-                return 0;
+                return this.removeObjectStoreFolder(this.cleanObjectStore) ? 0 : 1;
             }
 
         }
@@ -98,24 +124,74 @@ public class CleanCommand implements ICliRunnable {
      * Remove the .sync folder from the reconciled directory
      *
      * @param rootPath The root path to the synced folder
+     *
+     * @return True, if the object store has been removed or moved to the trash completely
      */
-    private void removeObjectStoreFolder(String rootPath) {
+    private boolean removeObjectStoreFolder(String rootPath) {
         rootPath = FileUtils.resolveUserHome(rootPath);
         Path syncedFolder = Paths.get(rootPath);
 
         Path objectStoreFolder = syncedFolder.resolve(Config.DEFAULT.getOsFolderName());
 
-        if (objectStoreFolder.toFile().exists()) {
-            FileUtils.delete(objectStoreFolder.toFile());
+        if (! objectStoreFolder.toFile().exists()) {
+            return true;
+        }
+
+        if (! this.background) {
+            return this.delete(objectStoreFolder);
+        }
+
+        Path trash;
+        try {
+            trash = Trash.moveToTrash(objectStoreFolder);
+        } catch (IOException e) {
+            Output.println("Failed to move the object store to the trash: " + e.getMessage());
+            return false;
         }
+
+        try {
+            Trash.purgeInBackground(trash);
+            Output.println("Moved the object store to " + trash + ". It is deleted in the background");
+        } catch (IOException e) {
+            Output.println("Moved the object store to " + trash + " but failed to start deleting it: " + e.getMessage() + ". Please remove it manually");
+        }
+
+        return true;
+    }
+
+    /**
+     * Deletes the given file or directory and prints the result
+     *
+     * @param path The path to delete
+     *
+     * @return True, if the path has been deleted completely
+     */
+    private boolean delete(Path path) {
+        ParallelDelete parallelDelete = new ParallelDelete(org.rmatil.sync.client.config.Config.DEFAULT.getDeleteParallelism());
+        DeleteResult result = parallelDelete.delete(path);
+
+        Output.println("Removed " + result.getDeletedFiles() + " files and " + result.getDeletedDirectories() + " directories (" + result.getFreedBytes() + " bytes) in " + result.getDurationMillis() + " ms");
+
+        List<DeleteFailure> failures = result.getFailures();
+        for (int i = 0; i < Math.min(MAX_PRINTED_FAILURES, failures.size()); i++) {
+            Output.println("Failed: " + failures.get(i).getPath() + ": " + failures.get(i).getMessage());
+        }
+
+        if (failures.size() > MAX_PRINTED_FAILURES) {
+            Output.println("... and " + (failures.size() - MAX_PRINTED_FAILURES) + " more failures");
+        }
+
+        return ! result.hasFailures();
     }
 
     /**
      * Remove the config folder in the user's home directory
      *
+     * @return True, if the config folder has been removed completely or did not exist
+     *
      * @throws ValidationException If the application config path does not exist
      */
-    private void removeConfigurationFolder()
+    private boolean removeConfigurationFolder()
             throws ValidationException {
         Path configDir;
 
@@ -134,7 +210,9 @@ public class CleanCommand implements ICliRunnable {
         }
 
         if (configDir.toFile().exists()) {
-            FileUtils.delete(configDir.toFile());
+            return this.delete(configDir);
         }
+
+        return true;
     }
 }
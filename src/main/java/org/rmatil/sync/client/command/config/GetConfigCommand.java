@@ -5,6 +5,7 @@ import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
 import org.rmatil.sync.client.command.ICliRunnable;
 import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.config.ConfigStore;
 import org.rmatil.sync.client.console.io.Output;
 import org.rmatil.sync.client.util.FileUtils;
 import org.rmatil.sync.client.validator.IValidator;
@@ -14,8 +15,6 @@ import org.rmatil.sync.core.security.KeyPairUtils;
 
 import javax.inject.Inject;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -100,10 +99,7 @@ public class GetConfigCommand implements ICliRunnable {
                     configFile = Paths.get(this.applicationConfigPath);
                 }
 
-                byte[] content = Files.readAllBytes(configFile);
-                String json = new String(content, StandardCharsets.UTF_8);
-
-                ApplicationConfig appConfig = ApplicationConfig.fromJson(json);
+                ApplicationConfig appConfig = ConfigStore.forFile(configFile).get();
 
                 if (this.username) {
                     Output.println("Username: " + appConfig.getUserName());
@@ -3,26 +3,24 @@ package org.rmatil.sync.client.command.config;
 import com.github.rvesse.airline.HelpOption;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.rmatil.sync.client.command.ICliRunnable;
+import org.rmatil.sync.client.config.ConfigStore;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.keys.KeyPool;
 import org.rmatil.sync.client.util.FileUtils;
 import org.rmatil.sync.client.validator.IValidator;
 import org.rmatil.sync.client.validator.PathValidator;
 import org.rmatil.sync.core.config.Config;
-import org.rmatil.sync.core.model.ApplicationConfig;
 import org.rmatil.sync.core.model.RemoteClientLocation;
 
 import javax.inject.Inject;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.InvalidParameterException;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
-import java.security.Security;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 
@@ -71,9 +69,12 @@ public class SetConfigCommand implements ICliRunnable {
     @Option(name = {"--bootstrap-port"}, title = "BootstrapPort", arity = 1, description = "The port of the other client to which this device should bootstrap on start up")
     private Integer bootstrapPort;
 
-    @Option(name = {"--generate-keypair"}, title = "GenerateKeyPair", description = "Generate a new RSA keypair and store them in the application config")
+    @Option(name = {"--generate-keypair"}, title = "GenerateKeyPair", description = "Store a new RSA keypair in the application config. It is taken from the key pool of the config folder, if available")
     private boolean generateKeyPair;
 
+    @Option(name = {"--key-size"}, title = "KeySize", arity = 1, description = "The size in bits of the keypair to generate")
+    private Integer keySize;
+
     @Option(name = {"-a", "--app-config-path"}, title = "AppConfigPath", arity = 1, description = "The path to the application config")
     private String applicationConfigPath;
 
@@ -81,11 +82,6 @@ public class SetConfigCommand implements ICliRunnable {
     public int run() {
         if (! help.showHelpIfRequested()) {
 
-            // add bouncy castle as security provider if not yet done
-            if (null == Security.getProvider(BouncyCastleProvider.PROVIDER_NAME)) {
-                Security.addProvider(new BouncyCastleProvider());
-            }
-
             try {
                 Path configFile;
                 if (null == this.applicationConfigPath) {
@@ -109,113 +105,121 @@ public class SetConfigCommand implements ICliRunnable {
                     configFile = Paths.get(this.applicationConfigPath);
                 }
 
-                byte[] content = Files.readAllBytes(configFile);
-                String json = new String(content, StandardCharsets.UTF_8);
+                ConfigStore configStore = ConfigStore.forFile(configFile);
 
-                ApplicationConfig appConfig = ApplicationConfig.fromJson(json);
-
-                if (null != this.username) {
-                    appConfig.setUserName(this.username);
+                if (null != this.bootstrapPort && null == this.bootstrapIp && null == configStore.get().getBootstrapLocation()) {
+                    Output.println("A bootstrap address is also required");
+                    return 1;
                 }
 
-                if (null != this.password) {
-                    appConfig.setPassword(this.password);
-                }
-
-                if (null != this.salt) {
-                    appConfig.setSalt(this.salt);
-                }
+                KeyPair keyPair = null;
+                if (this.generateKeyPair) {
+                    int keySize = (null != this.keySize) ? this.keySize : org.rmatil.sync.client.config.Config.DEFAULT.getKeySize();
 
-                if (null != this.cacheTtl) {
-                    appConfig.setCacheTtl(this.cacheTtl);
+                    try {
+                        keyPair = KeyPool.forConfigDir(configFile.toAbsolutePath().getParent(), keySize).takeOrGenerate();
+                    } catch (NoSuchAlgorithmException | InvalidParameterException e) {
+                        Output.println("Failed to create key pair: " + e.getMessage());
+                        return 1;
+                    }
                 }
 
-                if (null != this.peerDiscoveryTimeout) {
-                    appConfig.setPeerDiscoveryTimeout(this.peerDiscoveryTimeout);
-                }
+                final KeyPair generatedKeyPair = keyPair;
 
-                if (null != this.peerBootstrapTimeout) {
-                    appConfig.setPeerBootstrapTimeout(this.peerBootstrapTimeout);
-                }
+                // all changes are persisted at once
+                configStore.update(appConfig -> {
+                    if (null != this.username) {
+                        appConfig.setUserName(this.username);
+                    }
 
-                if (null != this.shutdownAnnounceTimeout) {
-                    appConfig.setShutdownAnnounceTimeout(this.shutdownAnnounceTimeout);
-                }
+                    if (null != this.password) {
+                        appConfig.setPassword(this.password);
+                    }
 
-                if (null != this.defaultPort) {
-                    appConfig.setPort(this.defaultPort);
-                }
+                    if (null != this.salt) {
+                        appConfig.setSalt(this.salt);
+                    }
 
-                if (null != this.bootstrapIp) {
-                    RemoteClientLocation remoteClientLocation = appConfig.getBootstrapLocation();
-
-                    if (null != remoteClientLocation) {
-                        appConfig.setBootstrapLocation(
-                                new RemoteClientLocation(
-                                        this.bootstrapIp,
-                                        remoteClientLocation.getPort()
-                                )
-                        );
-                    } else {
-                        if (null == this.bootstrapPort) {
-                            System.out.println("Assuming default port " + Config.DEFAULT.getDefaultPort());
-                        }
+                    if (null != this.cacheTtl) {
+                        appConfig.setCacheTtl(this.cacheTtl);
+                    }
 
-                        appConfig.setBootstrapLocation(
-                                new RemoteClientLocation(
-                                        this.bootstrapIp,
-                                        Config.DEFAULT.getDefaultPort()
-                                )
-                        );
+                    if (null != this.peerDiscoveryTimeout) {
+                        appConfig.setPeerDiscoveryTimeout(this.peerDiscoveryTimeout);
                     }
-                }
 
-                if (null != this.bootstrapPort) {
-                    RemoteClientLocation remoteClientLocation = appConfig.getBootstrapLocation();
-
-                    if (null != remoteClientLocation) {
-
-                        appConfig.setBootstrapLocation(
-                                new RemoteClientLocation(
-                                        remoteClientLocation.getIpAddress(),
-                                        this.bootstrapPort
-                                )
-                        );
-                    } else {
-                        if (null == this.bootstrapIp) {
-                            System.out.println("A bootstrap address is also required");
-                            return 1;
-                        }
+                    if (null != this.peerBootstrapTimeout) {
+                        appConfig.setPeerBootstrapTimeout(this.peerBootstrapTimeout);
+                    }
 
-                        appConfig.setBootstrapLocation(
-                                new RemoteClientLocation(
-                                        this.bootstrapIp,
-                                        this.bootstrapPort
-                                )
-                        );
+                    if (null != this.shutdownAnnounceTimeout) {
+                        appConfig.setShutdownAnnounceTimeout(this.shutdownAnnounceTimeout);
                     }
-                }
 
-                if (this.generateKeyPair) {
-                    KeyPairGenerator keyPairGenerator;
-                    try {
-                        keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-                    } catch (NoSuchAlgorithmException e) {
-                        System.out.println("Failed to create key pair: " + e.getMessage());
-                        return 1;
+                    if (null != this.defaultPort) {
+                        appConfig.setPort(this.defaultPort);
                     }
 
-                    KeyPair keyPair = keyPairGenerator.generateKeyPair();
+                    if (null != this.bootstrapIp) {
+                        RemoteClientLocation remoteClientLocation = appConfig.getBootstrapLocation();
+
+                        if (null != remoteClientLocation) {
+                            appConfig.setBootstrapLocation(
+                                    new RemoteClientLocation(
+                                            this.bootstrapIp,
+                                            remoteClientLocation.getPort()
+                                    )
+                            );
+                        } else {
+                            if (null == this.bootstrapPort) {
+                                Output.println("Assuming default port " + Config.DEFAULT.getDefaultPort());
+                            }
+
+                            appConfig.setBootstrapLocation(
+                                    new RemoteClientLocation(
+                                            this.bootstrapIp,
+                                            Config.DEFAULT.getDefaultPort()
+                                    )
+                            );
+                        }
+                    }
 
-                    appConfig.setPublicKey((RSAPublicKey) keyPair.getPublic());
-                    appConfig.setPrivateKey((RSAPrivateKey) keyPair.getPrivate());
-                }
+                    if (null != this.bootstrapPort) {
+                        RemoteClientLocation remoteClientLocation = appConfig.getBootstrapLocation();
+
+                        if (null != remoteClientLocation) {
+
+                            appConfig.setBootstrapLocation(
+                                    new RemoteClientLocation(
+                                            remoteClientLocation.getIpAddress(),
+                                            this.bootstrapPort
+                                    )
+                            );
+                        } else {
+                            if (null == this.bootstrapIp) {
+                                throw new ValidationException("A bootstrap address is also required");
+                            }
+
+                            appConfig.setBootstrapLocation(
+                                    new RemoteClientLocation(
+                                            this.bootstrapIp,
+                                            this.bootstrapPort
+                                    )
+                            );
+                        }
+                    }
 
-                // persist all changes
-                Files.write(configFile, appConfig.toJson().getBytes(StandardCharsets.UTF_8));
+                    if (null != generatedKeyPair) {
+                        appConfig.setPublicKey((RSAPublicKey) generatedKeyPair.getPublic());
+                        appConfig.setPrivateKey((RSAPrivateKey) generatedKeyPair.getPrivate());
+                    }
+                });
 
             } catch (IOException e) {
-                System.out.println("Failed to load the application config: " + e.getMessage());
+                Output.println("Failed to load the application config: " + e.getMessage());
+                return 1;
+            } catch (ValidationException e) {
+                Output.println(e.getMessage());
                 return 1;
             }
 
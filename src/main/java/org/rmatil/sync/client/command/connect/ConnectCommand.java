@@ -4,11 +4,35 @@ import com.github.rvesse.airline.HelpOption;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
 import com.github.rvesse.airline.annotations.restrictions.Required;
+import org.rmatil.sync.client.cache.UserDirectory;
 import org.rmatil.sync.client.command.ICliRunnable;
 import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.config.ConfigStore;
 import org.rmatil.sync.client.console.Console;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.context.ClientContext;
+import org.rmatil.sync.client.context.ClientServices;
+import org.rmatil.sync.client.control.ControlServer;
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.control.command.FileIdsCommand;
+import org.rmatil.sync.client.control.command.NodeLocationsCommand;
+import org.rmatil.sync.client.control.command.PublicKeyCommand;
+import org.rmatil.sync.client.control.command.RootCommand;
+import org.rmatil.sync.client.control.command.SharingCommand;
+import org.rmatil.sync.client.control.command.SharingManifestCommand;
+import org.rmatil.sync.client.control.command.StatusCommand;
+import org.rmatil.sync.client.control.command.UsersCommand;
+import org.rmatil.sync.client.daemon.SyncDaemon;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.keys.KeyPool;
+import org.rmatil.sync.client.metrics.MetricsHttpServer;
+import org.rmatil.sync.client.sharing.manifest.ManifestExecutor;
+import org.rmatil.sync.client.status.StatusCollector;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.client.util.BootstrapUtils;
 import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.client.util.FolderLock;
 import org.rmatil.sync.client.validator.DirectoryValidator;
 import org.rmatil.sync.client.validator.IValidator;
 import org.rmatil.sync.client.validator.PathValidator;
@@ -16,19 +40,45 @@ import org.rmatil.sync.core.Sync;
 import org.rmatil.sync.core.exception.InitializationStartException;
 import org.rmatil.sync.core.model.ApplicationConfig;
 import org.rmatil.sync.core.model.RemoteClientLocation;
+import org.rmatil.sync.core.syncer.sharing.event.ShareEvent;
+import org.rmatil.sync.core.syncer.sharing.event.UnshareEvent;
 import org.rmatil.sync.network.core.model.NodeLocation;
 import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
 
 import javax.inject.Inject;
+import javax.management.JMException;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.net.InetAddress;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @Command(name = "connect", description = "Start and connect this device to the p2p network")
 public class ConnectCommand implements ICliRunnable {
 
+    /**
+     * The default maximum time in milliseconds to wait for each step of a graceful shutdown
+     */
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT = 30000L;
+
+    /**
+     * The default file a recording is written to
+     */
+    public static final String DEFAULT_RECORDING_FILE = "sync-client.jfr";
+
+    /**
+     * The default maximum size of a recording in megabytes
+     */
+    public static final long DEFAULT_RECORDING_MAX_SIZE = 64L;
+
+    /**
+     * The maximum age of the events kept in a recording
+     */
+    public static final long RECORDING_MAX_AGE = 6L * 60L * 60L * 1000L;
+
     /**
      * The special {@link HelpOption} provides a {@code -h} and {@code --help}
      * option that can be used to request that help be shown.
@@ -47,140 +97,473 @@ public class ConnectCommand implements ICliRunnable {
     @Option(name = {"--bootstrap-port"}, title = "BootstrapPort", arity = 1, description = "The port to which to bootstrap to")
     private Integer port;
 
-    @Option(name = {"-p", "--path"}, title = "SyncFolderPath", arity = 1, description = "The path to the sync folder")
+    @Option(name = {"-p", "--path"}, title = "SyncFolderPath", arity = 1, description = "The path to the sync folder. May be specified multiple times to host several sync folders in this process")
     @Required
-    private String syncFolder;
+    private List<String> syncFolders;
+
+    @Option(name = {"-a", "--app-config-path"}, title = "AppConfigFolderPath", arity = 1, description = "The path to the application config folder. Specify it once to use the same config for all sync folders, or once per sync folder")
+    private List<String> applicationConfigPaths;
+
+    @Option(name = {"-d", "--daemon"}, title = "Daemon", description = "Run as service without the interactive console until shut down")
+    private boolean daemon;
+
+    @Option(name = {"--control-port"}, title = "ControlPort", arity = 1, description = "The port on the loopback interface on which the node accepts control commands")
+    private Integer controlPort;
+
+    @Option(name = {"--manifest-dir"}, title = "ManifestFolder", arity = 1, description = "A folder from which the control server reads sharing manifests besides the sync folder. May be specified multiple times")
+    private List<String> manifestFolders;
+
+    @Option(name = {"--metrics-port"}, title = "MetricsPort", arity = 1, description = "The port on the loopback interface on which the client metrics are served over HTTP (use 0 for any free port). The metrics are exported over JMX in any case")
+    private Integer metricsPort;
+
+    @Option(name = {"--record"}, title = "Record", description = "Continuously record the phases of the client operations along with the JVM events to a Java Flight Recorder file, keeping only the most recent events")
+    private boolean record;
 
-    @Option(name = {"-a", "--app-config-path"}, title = "AppConfigFolderPath", arity = 1, description = "The path to the application config folder")
-    private String applicationConfigPath;
+    @Option(name = {"--record-file"}, title = "RecordFile", arity = 1, description = "The file the recording is written to on shutdown (defaults to " + DEFAULT_RECORDING_FILE + ")")
+    private String recordFile;
+
+    @Option(name = {"--record-max-size"}, title = "RecordMaxSize", arity = 1, description = "The maximum size of the recording (in megabytes)")
+    private Long recordMaxSize;
+
+    @Option(name = {"--shutdown-timeout"}, title = "ShutdownTimeout", arity = 1, description = "The maximum time to wait for each step of a graceful shutdown of the daemon (in milliseconds)")
+    private Long shutdownTimeout;
+
+    /**
+     * The location of the first sync folder connected by this process,
+     * to which further sync folders without a bootstrap location bootstrap to
+     */
+    private RemoteClientLocation firstLocation;
+
+    /**
+     * The locks of the connected sync folders, held until the process exits
+     */
+    private List<FolderLock> folderLocks = new ArrayList<>();
 
     @Override
     public int run() {
 
         if (! this.help.showHelpIfRequested()) {
+            if (null != this.applicationConfigPaths && this.applicationConfigPaths.size() > 1 &&
+                    this.applicationConfigPaths.size() != this.syncFolders.size()) {
+                Output.println("Specify the application config folder either once or once for each sync folder");
+                return 1;
+            }
+
+            // thread pools and caches of the client are shared by all hosted roots
+            ClientServices clientServices = new ClientServices();
+            List<ClientContext> clientContexts = new ArrayList<>();
+
+            if (this.record) {
+                // started first to also record the bootstrap
+                this.startRecording(clientServices);
+            }
+
             try {
-                Path configFile;
-                if (null == this.applicationConfigPath) {
-                    // use the default location for the application config
-                    String resolvedFolderPath = FileUtils.resolveUserHome(Config.DEFAULT.getConfigFolderPath());
-                    Path configDir = Paths.get(resolvedFolderPath);
-                    configFile = configDir.resolve(Config.DEFAULT.getConfigFileName());
-
-                    if (! configFile.toFile().exists()) {
-                        Output.println("Default application configuration path " + configFile + " does not exist. Did you initialise the application yet?");
-                        return 1;
+                Set<Integer> usedPorts = new HashSet<>();
+
+                for (int i = 0; i < this.syncFolders.size(); i++) {
+                    String applicationConfigPath = null;
+                    if (null != this.applicationConfigPaths) {
+                        applicationConfigPath = this.applicationConfigPaths.get(Math.min(i, this.applicationConfigPaths.size() - 1));
                     }
-                } else {
-                    IValidator validator = new PathValidator(this.applicationConfigPath);
 
-                    if (! validator.validate()) {
-                        Output.println("Path " + this.applicationConfigPath + " to Application Config does not exist");
+                    Path configFile = this.resolveConfigFile(applicationConfigPath);
+                    if (null == configFile) {
+                        this.shutdown(clientContexts, clientServices);
                         return 1;
                     }
 
-                    IValidator directoryValidator = new DirectoryValidator(this.applicationConfigPath);
-
-                    if (! directoryValidator.validate()) {
-                        Output.println("Path " + this.applicationConfigPath + " should point to the application configuration folder instead of the configuration file");
+                    ClientContext clientContext = this.connect(this.syncFolders.get(i), configFile, usedPorts, clientServices);
+                    if (null == clientContext) {
+                        this.shutdown(clientContexts, clientServices);
                         return 1;
                     }
 
-                    configFile = Paths.get(this.applicationConfigPath).resolve(Config.DEFAULT.getConfigFileName());
+                    clientContexts.add(clientContext);
                 }
+            } catch (IOException | InitializationStartException e) {
+                this.shutdown(clientContexts, clientServices);
+                Output.println("Could not read the application configuration. Did you initialise the app first?");
+                return 1;
+            }
 
-                byte[] content = Files.readAllBytes(configFile);
-                String json = new String(content, StandardCharsets.UTF_8);
+            this.exportMetrics(clientServices);
 
-                ApplicationConfig appConfig = ApplicationConfig.fromJson(json);
+            if (this.daemon) {
+                return this.runDaemon(clientContexts, clientServices);
+            }
 
-                if (null == appConfig.getPublicKey()) {
-                    Output.println("Public key must be set to connect. You can generate a new key pair in the init command");
-                    return 1;
+            // also register a shutdown hook to correctly terminate Sync
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    // shut down correctly
+                    Output.print("Shutting down. Please wait... ");
+                    Output.flush();
+                    for (ClientContext clientContext : clientContexts) {
+                        clientContext.getSync().shutdown();
+                    }
+                    Output.println("Complete");
                 }
+            });
+
+            ControlServer controlServer = null;
+            if (null != this.controlPort) {
+                controlServer = this.createControlServer(clientContexts);
+
+                try {
+                    controlServer.start();
+                    Output.println("Accepting control commands on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + controlServer.getLocalPort());
+                } catch (IOException e) {
+                    Output.println("Could not start the control server on port " + this.controlPort + ": " + e.getMessage());
+                    controlServer = null;
+                }
+            }
 
-                if (null == appConfig.getPrivateKey()) {
-                    Output.println("Private key must be set to connect. You can generate a new key pair in the init command");
-                    return 1;
+            Console console = new Console(clientContexts);
+            console.run();
+
+            if (null != controlServer) {
+                try {
+                    controlServer.stop(DEFAULT_SHUTDOWN_TIMEOUT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
+            }
 
-                // if an ip address is specified -> use it
-                // and check whether a port is specified, if not, use default port
-                if (null != this.ipAddress || null != this.port) {
-                    if (null != this.ipAddress) {
-                        // use default port as fallback
-                        int port = org.rmatil.sync.core.config.Config.DEFAULT.getDefaultPort();
-
-                        if (null != appConfig.getBootstrapLocation()) {
-                            port = appConfig.getBootstrapLocation().getPort();
-                        }
-
-                        appConfig.setBootstrapLocation(
-                                new RemoteClientLocation(
-                                        this.ipAddress,
-                                        port
-                                )
-                        );
-                    }
+            this.shutdown(clientContexts, clientServices);
+        }
 
-                    if (null != this.port && null != appConfig.getBootstrapLocation() &&
-                            null != appConfig.getBootstrapLocation().getIpAddress()) {
-                        appConfig.setBootstrapLocation(
-                                new RemoteClientLocation(
-                                        appConfig.getBootstrapLocation().getIpAddress(),
-                                        this.port
-                                )
-                        );
-                    }
+        return 0;
+    }
 
-                    Output.println("Using configured bootstrap address " + appConfig.getBootstrapLocation().getIpAddress() + ":" + appConfig.getBootstrapLocation().getPort());
-                } else if (null != appConfig.getBootstrapLocation() && 0 < appConfig.getBootstrapLocation().getPort() && null != appConfig.getBootstrapLocation().getIpAddress()) {
-                    Output.println("Using default bootstrap address " + appConfig.getBootstrapLocation().getIpAddress() + ":" + appConfig.getBootstrapLocation().getPort());
-                } else {
-                    Output.println("No bootstrap address configured. Starting as bootstrap peer");
+    /**
+     * Resolves the config file within the given application config folder
+     *
+     * @param applicationConfigPath The path to the application config folder or null, to use the default one
+     *
+     * @return The path to the config file or null, if the folder is invalid
+     */
+    private Path resolveConfigFile(String applicationConfigPath) {
+        if (null == applicationConfigPath) {
+            // use the default location for the application config
+            String resolvedFolderPath = FileUtils.resolveUserHome(Config.DEFAULT.getConfigFolderPath());
+            Path configDir = Paths.get(resolvedFolderPath);
+            Path configFile = configDir.resolve(Config.DEFAULT.getConfigFileName());
+
+            if (! configFile.toFile().exists()) {
+                Output.println("Default application configuration path " + configFile + " does not exist. Did you initialise the application yet?");
+                return null;
+            }
 
-                    IValidator validator = new PathValidator(this.syncFolder);
-                    if (! validator.validate()) {
-                        Output.println("The provided sync folder does not exist");
-                        return 1;
-                    }
-                }
+            return configFile;
+        }
 
-                // ignore a bootstrap port if specified
-                Sync sync = new Sync(new LocalStorageAdapter(Paths.get(this.syncFolder)));
-                NodeLocation nodeLocation = sync.connect(appConfig);
-
-                Output.println(
-                        "Started client " +
-                                nodeLocation.getClientDeviceId() +
-                                " successfully on " +
-                                nodeLocation.getPeerAddress().inetAddress().getHostAddress() +
-                                ":" +
-                                nodeLocation.getPeerAddress().tcpPort()
-                );
-
-                // also register a shutdown hook to correctly terminate Sync
-                Runtime.getRuntime().addShutdownHook(new Thread() {
-                    @Override
-                    public void run() {
-                        // shut down correctly
-                        Output.print("Shutting down. Please wait... ");
-                        sync.shutdown();
-                        Output.println("Complete");
-                    }
-                });
+        String resolvedFolderPath = FileUtils.resolveUserHome(applicationConfigPath);
+        IValidator validator = new PathValidator(resolvedFolderPath);
 
-                Console console = new Console(sync);
-                console.run();
+        if (! validator.validate()) {
+            Output.println("Path " + applicationConfigPath + " to Application Config does not exist");
+            return null;
+        }
 
-                sync.shutdown();
+        IValidator directoryValidator = new DirectoryValidator(resolvedFolderPath);
 
-            } catch (IOException | InitializationStartException e) {
-                Output.println("Could not read the application configuration. Did you initialise the app first?");
-                return 1;
+        if (! directoryValidator.validate()) {
+            Output.println("Path " + applicationConfigPath + " should point to the application configuration folder instead of the configuration file");
+            return null;
+        }
+
+        return Paths.get(resolvedFolderPath).resolve(Config.DEFAULT.getConfigFileName());
+    }
+
+    /**
+     * Connects a node serving the given sync folder
+     *
+     * @param syncFolder     The path to the sync folder
+     * @param configFile     The path to the config file of the node
+     * @param usedPorts      The ports used by roots connected before. The port of this node is added
+     * @param clientServices The services shared by all hosted roots
+     *
+     * @return The context of the connected node or null, if the node could not be connected
+     *
+     * @throws IOException                  If the config could not be read
+     * @throws InitializationStartException If the node could not be started
+     */
+    private ClientContext connect(String syncFolder, Path configFile, Set<Integer> usedPorts, ClientServices clientServices)
+            throws IOException, InitializationStartException {
+        // the bootstrap location might be overridden for this run only
+        ApplicationConfig appConfig;
+        try (ITraceSpan ignored = Tracing.begin("connect", "load-config", configFile.toString())) {
+            appConfig = ConfigStore.forFile(configFile).copy();
+        }
+
+        if (null == appConfig.getPublicKey()) {
+            Output.println("Public key must be set to connect. You can generate a new key pair in the init command");
+            return null;
+        }
+
+        if (null == appConfig.getPrivateKey()) {
+            Output.println("Private key must be set to connect. You can generate a new key pair in the init command");
+            return null;
+        }
+
+        // the given options take precedence over the configured bootstrap location
+        boolean hasBootstrapLocation;
+        try {
+            hasBootstrapLocation = BootstrapUtils.applyBootstrapLocation(appConfig, this.ipAddress, this.port);
+        } catch (ValidationException e) {
+            Output.println(e.getMessage());
+            return null;
+        }
+
+        if (! hasBootstrapLocation && null != this.firstLocation) {
+            // join the network of the first root instead of starting a separate one
+            appConfig.setBootstrapLocation(this.firstLocation);
+            Output.println("Bootstrapping to the first sync folder of this process at " + this.firstLocation.getIpAddress() + ":" + this.firstLocation.getPort());
+        } else if (! hasBootstrapLocation) {
+            Output.println("No bootstrap address configured. Starting as bootstrap peer");
+
+            IValidator validator = new PathValidator(syncFolder);
+            if (! validator.validate()) {
+                Output.println("The provided sync folder does not exist");
+                return null;
+            }
+        }
+
+        // roots sharing a config need a port each
+        int port = appConfig.getPort();
+        while (usedPorts.contains(port)) {
+            port++;
+        }
+
+        if (port != appConfig.getPort()) {
+            Output.println("Port " + appConfig.getPort() + " is used by another sync folder of this process. Using port " + port + " for " + syncFolder);
+            appConfig.setPort(port);
+        }
+
+        // commands like gc must not run while the node is running
+        FolderLock folderLock = FolderLock.tryAcquireSyncFolder(Paths.get(syncFolder));
+        if (null == folderLock) {
+            Output.println("The sync folder " + syncFolder + " is already used by a running node");
+            return null;
+        }
+
+        // ignore a bootstrap port if specified
+        Sync sync;
+        NodeLocation nodeLocation = null;
+        try (ITraceSpan ignored = Tracing.begin("connect", "bootstrap", syncFolder)) {
+            sync = new Sync(new LocalStorageAdapter(Paths.get(syncFolder)));
+            nodeLocation = sync.connect(appConfig);
+        } finally {
+            if (null == nodeLocation) {
+                folderLock.close();
             }
         }
 
+        this.folderLocks.add(folderLock);
+
+        Output.println(
+                "Started client " +
+                        nodeLocation.getClientDeviceId() +
+                        " successfully on " +
+                        nodeLocation.getPeerAddress().inetAddress().getHostAddress() +
+                        ":" +
+                        nodeLocation.getPeerAddress().tcpPort()
+        );
+
+        usedPorts.add(port);
+        usedPorts.add(nodeLocation.getPeerAddress().tcpPort());
+
+        if (null == this.firstLocation) {
+            this.firstLocation = new RemoteClientLocation(
+                    nodeLocation.getPeerAddress().inetAddress().getHostAddress(),
+                    nodeLocation.getPeerAddress().tcpPort()
+            );
+        }
+
+        ClientContext clientContext = new ClientContext(sync, appConfig, clientServices);
+        clientContext.getNodeLocationCache().prefetch(sync.getNode().getUser().getUserName());
+
+        // cache ttl and timeouts changed by set-config apply without a restart
+        try {
+            clientContext.watchConfig(ConfigStore.forFile(configFile));
+        } catch (IOException e) {
+            Output.println("Could not watch the application configuration for changes: " + e.getMessage());
+        }
+
+        // keep key pairs ready for set-config --generate-keypair and init --regenerate-keys
+        clientServices.fillKeyPool(
+                KeyPool.forConfigDir(configFile.toAbsolutePath().getParent(), Config.DEFAULT.getKeySize()),
+                Config.DEFAULT.getKeyPoolSize()
+        );
+
+        return clientContext;
+    }
+
+    /**
+     * Stops the client services and shuts down all given nodes
+     *
+     * @param clientContexts The contexts of the connected nodes
+     * @param clientServices The services shared by the nodes
+     */
+    private void shutdown(List<ClientContext> clientContexts, ClientServices clientServices) {
+        for (ClientContext clientContext : clientContexts) {
+            clientContext.shutdown();
+        }
+
+        clientServices.shutdown();
+
+        for (ClientContext clientContext : clientContexts) {
+            clientContext.getSync().shutdown();
+        }
+    }
+
+    /**
+     * Runs the connected nodes as daemon until it is shut down,
+     * either through the control server or by terminating the process
+     *
+     * @param clientContexts The contexts of the connected nodes
+     * @param clientServices The services shared by the nodes
+     *
+     * @return The exit code
+     */
+    private int runDaemon(List<ClientContext> clientContexts, ClientServices clientServices) {
+        long timeout = (null != this.shutdownTimeout) ? this.shutdownTimeout : DEFAULT_SHUTDOWN_TIMEOUT;
+
+        ControlServer controlServer = null;
+        if (null != this.controlPort) {
+            controlServer = this.createControlServer(clientContexts);
+        }
+
+        SyncDaemon syncDaemon = new SyncDaemon(clientContexts, clientServices, controlServer, timeout);
+
+        // terminating the process stops the daemon gracefully
+        Runtime.getRuntime().addShutdownHook(new Thread(syncDaemon::stop, "daemon-shutdown-hook"));
+
+        try {
+            syncDaemon.start();
+        } catch (IOException e) {
+            Output.println("Could not start the control server on port " + this.controlPort + ": " + e.getMessage());
+            syncDaemon.stop();
+            return 1;
+        }
+
+        if (null != controlServer) {
+            Output.println("Running as daemon. Accepting control commands on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + controlServer.getLocalPort());
+        } else {
+            Output.println("Running as daemon. Terminate the process to shut down");
+        }
+
+        try {
+            syncDaemon.awaitTermination();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            syncDaemon.stop();
+        }
+
+        Output.println("Daemon shut down");
+
         return 0;
     }
 
+    /**
+     * Starts recording the trace events. The node keeps running without a recording, if it can not be started
+     *
+     * @param clientServices The services shared by the nodes
+     */
+    private void startRecording(ClientServices clientServices) {
+        Path destination = Paths.get(FileUtils.resolveUserHome((null != this.recordFile) ? this.recordFile : DEFAULT_RECORDING_FILE)).toAbsolutePath();
+        long maxSize = ((null != this.recordMaxSize) ? this.recordMaxSize : DEFAULT_RECORDING_MAX_SIZE) * 1024L * 1024L;
+
+        try {
+            clientServices.startRecording(destination, maxSize, RECORDING_MAX_AGE);
+            Output.println("Recording to " + destination + " (written on shutdown)");
+        } catch (IOException e) {
+            Output.println("Could not start the recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exports the client metrics. The node keeps running without them, if they can not be exported
+     *
+     * @param clientServices The services shared by the nodes
+     */
+    private void exportMetrics(ClientServices clientServices) {
+        try {
+            int port = clientServices.exportMetrics(this.metricsPort);
+
+            if (- 1 != port) {
+                Output.println("Serving metrics on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port + MetricsHttpServer.PATH);
+            }
+        } catch (JMException | IOException e) {
+            Output.println("Could not export the metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a control server serving the operations of the given nodes.
+     * The commands of the first node are available directly, the ones of
+     * all nodes through the {@link RootCommand}, if there are several nodes
+     *
+     * @param clientContexts The contexts of the connected nodes
+     *
+     * @return The control server, not started yet
+     */
+    private ControlServer createControlServer(List<ClientContext> clientContexts) {
+        ControlServer controlServer = new ControlServer(this.controlPort, Config.DEFAULT.getControlWorkers());
+
+        List<List<IControlCommand>> commands = new ArrayList<>(clientContexts.size());
+        for (ClientContext clientContext : clientContexts) {
+            commands.add(this.createControlCommands(clientContext));
+        }
+
+        for (IControlCommand command : commands.get(0)) {
+            controlServer.register(command);
+        }
+
+        if (clientContexts.size() > 1) {
+            controlServer.register(new RootCommand(clientContexts, commands));
+        }
+
+        return controlServer;
+    }
+
+    /**
+     * Creates the control commands serving the operations of the given node
+     *
+     * @param clientContext The context of the connected node
+     *
+     * @return The control commands
+     */
+    private List<IControlCommand> createControlCommands(ClientContext clientContext) {
+        Sync sync = clientContext.getSync();
+        String username = sync.getNode().getUser().getUserName();
+
+        UserDirectory userDirectory = clientContext.getUserDirectory();
+        ManifestExecutor shareExecutor = new ManifestExecutor(sync, userDirectory, ShareEvent::new, Config.DEFAULT.getSharingConcurrency(), Config.DEFAULT.getSharingBatchSize());
+        ManifestExecutor unshareExecutor = new ManifestExecutor(sync, userDirectory, UnshareEvent::new, Config.DEFAULT.getSharingConcurrency(), Config.DEFAULT.getSharingBatchSize());
+
+        // manifests are not read from anywhere else, since any local user may reach the control port
+        List<Path> manifestFolders = new ArrayList<>();
+        manifestFolders.add(clientContext.getRootPath());
+        if (null != this.manifestFolders) {
+            for (String manifestFolder : this.manifestFolders) {
+                manifestFolders.add(Paths.get(FileUtils.resolveUserHome(manifestFolder)));
+            }
+        }
+
+        List<IControlCommand> commands = new ArrayList<>();
+        commands.add(new NodeLocationsCommand(clientContext.getNodeLocationCache(), username));
+        commands.add(new FileIdsCommand(sync.getStorageAdapter(), clientContext.getFileIdIndex()));
+        commands.add(new PublicKeyCommand(sync.getNode().getNodeManager(), username));
+        commands.add(new SharingCommand(shareExecutor, "share", "Shared"));
+        commands.add(new SharingCommand(unshareExecutor, "unshare", "Unshared"));
+        commands.add(new SharingManifestCommand(shareExecutor, "share-manifest", "Shared", manifestFolders));
+        commands.add(new SharingManifestCommand(unshareExecutor, "unshare-manifest", "Unshared", manifestFolders));
+        commands.add(new UsersCommand(userDirectory));
+        commands.add(new StatusCommand(new StatusCollector(clientContext.getNodeLocationCache(), username)));
+
+        return commands;
+    }
 }
@@ -0,0 +1,131 @@
+package org.rmatil.sync.client.command.gc;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import org.rmatil.sync.client.command.ICliRunnable;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.delete.DeleteFailure;
+import org.rmatil.sync.client.gc.GcResult;
+import org.rmatil.sync.client.gc.ObjectStoreCollector;
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.client.util.FolderLock;
+import org.rmatil.sync.client.validator.IValidator;
+import org.rmatil.sync.client.validator.PathValidator;
+import org.rmatil.sync.core.config.Config;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Command(name = "gc", description = "Report unreferenced objects in the object store of a synced folder and remove them with --delete. Refuses to run while the node of the folder is running")
+public class GcCommand implements ICliRunnable {
+
+    /**
+     * The default minimum age of an object to be removed
+     */
+    public static final long DEFAULT_MIN_AGE = 3600000L;
+
+    /**
+     * The default maximum time to spend
+     */
+    public static final long DEFAULT_MAX_DURATION = 60000L;
+
+    /**
+     * The maximum number of failures printed
+     */
+    private static final int MAX_PRINTED_FAILURES = 10;
+
+    /**
+     * The special {@link HelpOption} provides a {@code -h} and {@code --help}
+     * option that can be used to request that help be shown.
+     * <p>
+     * Developers need to check the {@link HelpOption#showHelpIfRequested()}
+     * method which will display help if requested and return {@code true} if
+     * the user requested the help
+     * </p>
+     */
+    @Inject
+    private HelpOption<GcCommand> help;
+
+    @Option(name = {"-p", "--path"}, title = "SyncFolderPath", arity = 1, description = "The path to the sync folder")
+    @Required
+    private String syncFolder;
+
+    @Option(name = {"-n", "--dry-run"}, title = "DryRun", description = "Only report the objects which would be removed. This is the default unless --delete is given")
+    private boolean dryRun;
+
+    @Option(name = {"--delete"}, title = "Delete", description = "Remove the unreferenced objects instead of only reporting them")
+    private boolean delete;
+
+    @Option(name = {"-t", "--max-time"}, title = "MaxTime", arity = 1, description = "The maximum time to spend on removing objects (in milliseconds). Collecting the references is not bounded. An incomplete collection is continued by the next run")
+    private Long maxDuration;
+
+    @Option(name = {"-m", "--max-deletes"}, title = "MaxDeletes", arity = 1, description = "The maximum number of objects to remove. An incomplete collection is continued by the next run")
+    private Long maxDeletes;
+
+    @Option(name = {"--min-age"}, title = "MinAge", arity = 1, description = "The minimum age of an object to be removed (in milliseconds)")
+    private Long minAge;
+
+    @Override
+    public int run() {
+        if (this.help.showHelpIfRequested()) {
+            return 0;
+        }
+
+        IValidator pathValidator = new PathValidator(FileUtils.resolveUserHome(this.syncFolder));
+        if (! pathValidator.validate()) {
+            Output.println("The provided sync folder does not exist");
+            return 1;
+        }
+
+        Path objectStoreFolder = Paths.get(FileUtils.resolveUserHome(this.syncFolder)).resolve(Config.DEFAULT.getOsFolderName());
+
+        ObjectStoreCollector collector = new ObjectStoreCollector(objectStoreFolder);
+
+        // nothing is removed unless requested explicitly
+        boolean dryRun = this.dryRun || ! this.delete;
+
+        GcResult result;
+        try (FolderLock folderLock = FolderLock.tryAcquireSyncFolder(Paths.get(FileUtils.resolveUserHome(this.syncFolder)))) {
+            if (null == folderLock) {
+                Output.println("The node of the sync folder is running. Stop it before collecting the object store");
+                return 1;
+            }
+
+            result = collector.collect(
+                    (null != this.minAge) ? this.minAge : DEFAULT_MIN_AGE,
+                    (null != this.maxDuration) ? this.maxDuration : DEFAULT_MAX_DURATION,
+                    (null != this.maxDeletes) ? this.maxDeletes : Long.MAX_VALUE,
+                    dryRun
+            );
+        } catch (IOException e) {
+            Output.println("Failed to collect the object store: " + e.getMessage());
+            return 1;
+        }
+
+        String verb = dryRun ? "Would remove " : "Removed ";
+        Output.println("Scanned " + result.getScannedObjects() + " objects. " + verb + result.getRemovedObjects() + " unreferenced objects (" + result.getFreedBytes() + " bytes) and " + result.getRemovedDirectories() + " empty directories in " + result.getDurationMillis() + " ms");
+
+        for (int i = 0; i < Math.min(MAX_PRINTED_FAILURES, result.getFailures().size()); i++) {
+            DeleteFailure failure = result.getFailures().get(i);
+            Output.println("Failed: " + failure.getPath() + ": " + failure.getMessage());
+        }
+
+        if (result.getFailures().size() > MAX_PRINTED_FAILURES) {
+            Output.println("... and " + (result.getFailures().size() - MAX_PRINTED_FAILURES) + " more failures");
+        }
+
+        if (dryRun && result.getRemovedObjects() > 0) {
+            Output.println("Run gc with --delete to remove them");
+        }
+
+        if (! result.isComplete()) {
+            Output.println("The budget has been exhausted. Run gc again to continue");
+        }
+
+        return result.getFailures().isEmpty() ? 0 : 1;
+    }
+}
@@ -1,29 +1,39 @@
 package org.rmatil.sync.client.command.init;
 
 import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Arguments;
 import com.github.rvesse.airline.annotations.Command;
 import com.github.rvesse.airline.annotations.Option;
-import com.github.rvesse.airline.annotations.restrictions.Required;
 import org.rmatil.sync.client.command.ICliRunnable;
 import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.config.ConfigStore;
+import org.rmatil.sync.client.config.DefaultApplicationConfig;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.init.InitResult;
+import org.rmatil.sync.client.init.ParallelInit;
+import org.rmatil.sync.client.keys.KeyPool;
 import org.rmatil.sync.client.util.FileUtils;
 import org.rmatil.sync.client.validator.IValidator;
 import org.rmatil.sync.client.validator.PathValidator;
-import org.rmatil.sync.core.Sync;
-import org.rmatil.sync.core.init.ApplicationConfigFactory;
 import org.rmatil.sync.core.model.ApplicationConfig;
-import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
-import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
-import org.rmatil.sync.persistence.exceptions.InputOutputException;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.InvalidParameterException;
+import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Command(name = "init", description = "Initializes the application with a default configuration")
 public class InitCommand implements ICliRunnable {
@@ -40,9 +50,29 @@ public class InitCommand implements ICliRunnable {
     @Inject
     private HelpOption<InitCommand> help;
 
-    @Option(name = {"-p", "--path"}, title = "SyncFolderPath", arity = 1, description = "The path to the sync folder")
-    @Required
-    private String syncFolder;
+    @Option(name = {"-p", "--path"}, title = "SyncFolderPath", arity = 1, description = "The path to a sync folder. May be specified multiple times. Wildcards (e.g. '/srv/*') are expanded in the last element of the path")
+    private List<String> syncFolders;
+
+    @Arguments(title = "SyncFolderPath", description = "Further paths to sync folders, e.g. the remaining folders of a pattern like -p /srv/* expanded by the shell")
+    private List<String> moreSyncFolders;
+
+    @Option(name = {"-f", "--path-file"}, title = "SyncFolderList", arity = 1, description = "The path to a file listing sync folders, one per line. Empty lines and lines starting with # are ignored")
+    private String syncFolderList;
+
+    @Option(name = {"-j", "--parallelism"}, title = "Parallelism", arity = 1, description = "The maximum number of sync folders initialised concurrently")
+    private Integer parallelism;
+
+    @Option(name = {"--reset-config"}, title = "ResetConfig", description = "Replace an existing application config by the default one. The key pair is kept unless --regenerate-keys is specified")
+    private boolean resetConfig;
+
+    @Option(name = {"--regenerate-keys"}, title = "RegenerateKeys", description = "Store a new key pair in an existing application config. It is taken from the key pool of the config folder, if available")
+    private boolean regenerateKeys;
+
+    @Option(name = {"--key-size"}, title = "KeySize", arity = 1, description = "The size in bits of a new key pair")
+    private Integer keySize;
+
+    @Option(name = {"--fill-key-pool"}, title = "FillKeyPool", description = "Generate key pairs until the key pool of the config folder is full, e.g. when preparing a machine image. Otherwise, the pool is only filled by a running node")
+    private boolean fillKeyPool;
 
     @Option(name = {"-a", "--app-config-path"}, title = "AppConfigPath", arity = 1, description = "The path to the application config")
     private String applicationConfigPath;
@@ -50,12 +80,22 @@ public class InitCommand implements ICliRunnable {
     @Override
     public int run() {
         if (! help.showHelpIfRequested()) {
-            Path syncFolderPath = Paths.get(this.syncFolder).toAbsolutePath();
+            int parallelism = (null != this.parallelism) ? this.parallelism : Config.DEFAULT.getInitParallelism();
+            if (parallelism < 1) {
+                Output.println("Parallelism must be at least 1");
+                return 1;
+            }
+
+            int keySize = (null != this.keySize) ? this.keySize : Config.DEFAULT.getKeySize();
+
             try {
-                // first create a default application config
-                Path configDir;
-                ApplicationConfig appConfig = ApplicationConfigFactory.createBootstrapApplicationConfig();
+                List<Path> syncFolderPaths = this.getSyncFolderPaths();
+
+                if (null == syncFolderPaths) {
+                    return 1;
+                }
 
+                Path configDir;
                 if (null == this.applicationConfigPath) {
                     String resolvedFolderPath = FileUtils.resolveUserHome(Config.DEFAULT.getConfigFolderPath());
                     configDir = Paths.get(resolvedFolderPath);
@@ -76,50 +116,219 @@ public class InitCommand implements ICliRunnable {
                     Files.createDirectories(configDir);
                 }
 
-                // create config file
+                // the config file is shared by all sync folders
                 Path configFile = configDir.resolve(Config.DEFAULT.getConfigFileName());
-                if (! configFile.toFile().exists()) {
-                    Files.createFile(configFile);
-                } else {
-                    // if the config already exists, we transfer the existing
-                    // public private key pair
-                    byte[] content = Files.readAllBytes(configFile);
-                    String json = new String(content, StandardCharsets.UTF_8);
+                KeyPool keyPool = KeyPool.forConfigDir(configDir, keySize);
+                this.initConfig(ConfigStore.forFile(configFile), keyPool);
 
-                    ApplicationConfig oldConfig = ApplicationConfig.fromJson(json);
-
-                    appConfig.setPublicKey(oldConfig.getPublicKey());
-                    appConfig.setPrivateKey(oldConfig.getPrivateKey());
+                if (this.fillKeyPool) {
+                    int generated = keyPool.fill(Config.DEFAULT.getKeyPoolSize());
+                    Output.println("Generated " + generated + " key pairs for the key pool at " + keyPool.getPoolFile());
                 }
 
-                Files.write(configFile, appConfig.toJson().getBytes(StandardCharsets.UTF_8));
-
-                if (null != this.syncFolder) {
-                    IValidator validator = new PathValidator(this.syncFolder);
+                if (! syncFolderPaths.isEmpty()) {
+                    long start = System.nanoTime();
+                    List<InitResult> results = new ParallelInit(parallelism).init(syncFolderPaths);
+                    long durationMillis = (System.nanoTime() - start) / 1_000_000L;
 
-                    if (! validator.validate()) {
-                        Output.println("Path " + syncFolderPath + " does not exist");
-                        return 1;
+                    int failed = 0;
+                    for (InitResult result : results) {
+                        if (result.isFailed()) {
+                            failed++;
+                            Output.println("Could not initialise sync at directory " + result.getSyncFolder() + ": " + result.getFailure());
+                        } else {
+                            Output.println("Initialized sync directory at " + result.getSyncFolder() + " (" + result.getDurationMillis() + " ms)");
+                        }
                     }
 
-                    ITreeStorageAdapter treeStorageAdapter = new LocalStorageAdapter(syncFolderPath);
-                    try {
-                        Sync.init(treeStorageAdapter);
-                    } catch (InputOutputException e) {
-                        Output.println("Could not initialise sync at directory " + syncFolderPath + ": " + e.getMessage());
-                        return 1;
+                    if (results.size() > 1) {
+                        Output.println("Initialized " + (results.size() - failed) + " of " + results.size() + " sync directories in " + durationMillis + " ms");
                     }
 
-                    Output.println("Initialized sync directory at " + syncFolderPath);
                     Output.println("Configuration directory is at " + configDir);
                     Output.println("Configuration file is at " + configFile);
+
+                    if (0 < failed) {
+                        return 1;
+                    }
                 }
-            } catch (IOException | NoSuchAlgorithmException e) {
+            } catch (IOException | NoSuchAlgorithmException | InvalidParameterException e) {
                 Output.println("Failed to initialise sync folder: " + e.getMessage());
                 return 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Output.println("Interrupted while initialising the sync folders");
+                return 1;
             }
         }
 
         return 0;
     }
+
+    /**
+     * Creates the application config, unless it exists already. New key pairs are
+     * only used for a new config or if explicitly requested. They are taken from the
+     * key pool and only generated if the pool is empty.
+     *
+     * @param configStore The store of the config file
+     * @param keyPool     The pool to take new key pairs from
+     *
+     * @throws IOException              If the config could not be read or written
+     * @throws NoSuchAlgorithmException If no key pair could be generated
+     */
+    private void initConfig(ConfigStore configStore, KeyPool keyPool)
+            throws IOException, NoSuchAlgorithmException {
+        if (configStore.exists() && ! this.resetConfig) {
+            if (! this.regenerateKeys) {
+                Output.println("Using the existing configuration and key pair at " + configStore.getConfigFile());
+                return;
+            }
+
+            KeyPair keyPair = keyPool.takeOrGenerate();
+            configStore.update(appConfig -> {
+                appConfig.setPublicKey((RSAPublicKey) keyPair.getPublic());
+                appConfig.setPrivateKey((RSAPrivateKey) keyPair.getPrivate());
+            });
+
+            Output.println("Stored a new key pair in the existing configuration");
+            return;
+        }
+
+        // keep the existing key pair, unless another key size or a new key pair is requested
+        KeyPair keyPair = null;
+        if (configStore.exists() && null == this.keySize && ! this.regenerateKeys) {
+            ApplicationConfig oldConfig = configStore.copy();
+
+            if (null != oldConfig.getPublicKey() && null != oldConfig.getPrivateKey()) {
+                keyPair = new KeyPair(oldConfig.getPublicKey(), oldConfig.getPrivateKey());
+            }
+        }
+
+        if (null == keyPair) {
+            keyPair = keyPool.takeOrGenerate();
+        }
+
+        // not created by the factory of the library, which would generate another key pair
+        ApplicationConfig appConfig = DefaultApplicationConfig.create(keyPair);
+        configStore.transform(oldConfig -> appConfig);
+    }
+
+    /**
+     * Collects the sync folders given as option or argument or listed in the sync folder list.
+     * Wildcards in the last element of a path are expanded to all matching folders.
+     * Prints all folders which do not exist.
+     *
+     * @return The real paths to the distinct sync folders or null, if one of them does not exist
+     *
+     * @throws IOException If the sync folder list could not be read
+     */
+    private List<Path> getSyncFolderPaths()
+            throws IOException {
+        List<String> folders = new ArrayList<>();
+
+        if (null != this.syncFolders) {
+            folders.addAll(this.syncFolders);
+        }
+
+        if (null != this.moreSyncFolders) {
+            folders.addAll(this.moreSyncFolders);
+        }
+
+        if (null != this.syncFolderList) {
+            for (String line : Files.readAllLines(Paths.get(this.syncFolderList), StandardCharsets.UTF_8)) {
+                String folder = line.trim();
+
+                if (! folder.isEmpty() && ! folder.startsWith("#")) {
+                    folders.add(folder);
+                }
+            }
+        }
+
+        Set<Path> syncFolderPaths = new LinkedHashSet<>();
+        boolean missing = false;
+        for (String folder : folders) {
+            List<String> expanded = this.expandWildcards(folder);
+
+            if (null == expanded) {
+                missing = true;
+                continue;
+            }
+
+            for (String expandedFolder : expanded) {
+                Path syncFolderPath = Paths.get(expandedFolder).toAbsolutePath().normalize();
+                IValidator validator = new PathValidator(syncFolderPath.toString());
+
+                if (! validator.validate()) {
+                    Output.println("Path " + syncFolderPath + " does not exist");
+                    missing = true;
+                    continue;
+                }
+
+                // the same folder might be reached through a symbolic link
+                syncFolderPaths.add(syncFolderPath.toRealPath());
+            }
+        }
+
+        return missing ? null : new ArrayList<>(syncFolderPaths);
+    }
+
+    /**
+     * Expands the wildcards of the last element of the given path, like the shell does for unquoted patterns
+     *
+     * @param folder The path to a sync folder, possibly containing wildcards in its last element
+     *
+     * @return The matching folders in lexicographic order, the path itself if it does not contain any wildcards,
+     * or null if the pattern is invalid or does not match any folder
+     *
+     * @throws IOException If the parent folder could not be listed
+     */
+    private List<String> expandWildcards(String folder)
+            throws IOException {
+        int separator = Math.max(folder.lastIndexOf('/'), folder.lastIndexOf(File.separatorChar));
+        String parent = (- 1 == separator) ? "." : folder.substring(0, separator + 1);
+        String pattern = folder.substring(separator + 1);
+
+        if (containsWildcard(parent)) {
+            Output.println("Path " + folder + " may contain wildcards only in its last element");
+            return null;
+        }
+
+        if (! containsWildcard(pattern)) {
+            List<String> folders = new ArrayList<>();
+            folders.add(folder);
+            return folders;
+        }
+
+        Path parentPath = Paths.get(parent);
+        if (! Files.isDirectory(parentPath)) {
+            Output.println("Path " + parent + " does not exist");
+            return null;
+        }
+
+        List<String> folders = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(parentPath, pattern)) {
+            for (Path match : stream) {
+                // hidden folders are only matched explicitly, like by the shell
+                if (Files.isDirectory(match) && (pattern.startsWith(".") || ! match.getFileName().toString().startsWith("."))) {
+                    folders.add(match.toString());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            Output.println("Invalid pattern " + pattern + ": " + e.getMessage());
+            return null;
+        }
+
+        if (folders.isEmpty()) {
+            Output.println("No folder matches " + folder);
+            return null;
+        }
+
+        folders.sort(null);
+
+        return folders;
+    }
+
+    private static boolean containsWildcard(String path) {
+        return path.contains("*") || path.contains("?") || path.contains("[") || path.contains("{");
+    }
 }
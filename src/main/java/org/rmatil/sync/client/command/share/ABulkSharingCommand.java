@@ -0,0 +1,306 @@
+package org.rmatil.sync.client.command.share;
+
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.command.ICliRunnable;
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.config.ConfigStore;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.control.ControlClient;
+import org.rmatil.sync.client.control.ControlException;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.sharing.ISharingEventFactory;
+import org.rmatil.sync.client.sharing.SharingFailure;
+import org.rmatil.sync.client.sharing.SharingResult;
+import org.rmatil.sync.client.sharing.manifest.ManifestEntry;
+import org.rmatil.sync.client.sharing.manifest.ManifestExecutor;
+import org.rmatil.sync.client.sharing.manifest.ManifestParser;
+import org.rmatil.sync.client.util.BootstrapUtils;
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.client.util.FolderLock;
+import org.rmatil.sync.client.validator.DirectoryValidator;
+import org.rmatil.sync.client.validator.IValidator;
+import org.rmatil.sync.client.validator.PathValidator;
+import org.rmatil.sync.core.Sync;
+import org.rmatil.sync.core.exception.InitializationStartException;
+import org.rmatil.sync.core.model.ApplicationConfig;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Base for commands which apply all entries of a sharing manifest
+ * (see {@link ManifestParser}) non-interactively.
+ * <p>
+ * By default, a node is started for the sync folder and shut down again
+ * once the manifest has been applied (see {@link ManifestExecutor}).
+ * If a control port is given, the manifest is applied by the node
+ * already running with that control port instead.
+ * </p>
+ */
+public abstract class ABulkSharingCommand implements ICliRunnable {
+
+    @Option(name = {"-p", "--path"}, title = "SyncFolderPath", arity = 1, description = "The path to the sync folder. Required unless a running node is controlled")
+    protected String syncFolder;
+
+    @Option(name = {"-m", "--manifest"}, title = "Manifest", arity = 1, description = "The path to the manifest. Each line contains the path relative to the sync folder, the username and the access type (READ or WRITE)")
+    @Required
+    protected String manifest;
+
+    @Option(name = {"-c", "--concurrency"}, title = "Concurrency", arity = 1, description = "The maximum number of elements processed concurrently")
+    protected Integer concurrency;
+
+    @Option(name = {"--bootstrap-ip"}, title = "BootstrapIp", arity = 1, description = "The ip address to which to bootstrap to")
+    protected String ipAddress;
+
+    @Option(name = {"--bootstrap-port"}, title = "BootstrapPort", arity = 1, description = "The port to which to bootstrap to")
+    protected Integer port;
+
+    @Option(name = {"-a", "--app-config-path"}, title = "AppConfigFolderPath", arity = 1, description = "The path to the application config folder")
+    protected String applicationConfigPath;
+
+    @Option(name = {"--control-port"}, title = "ControlPort", arity = 1, description = "Let the node running with this control port apply the manifest instead of starting a new one")
+    protected Integer controlPort;
+
+    /**
+     * The lock of the sync folder, held while the started node is running
+     */
+    protected FolderLock folderLock;
+
+    /**
+     * @return The factory creating the event to apply for each element
+     */
+    protected abstract ISharingEventFactory getEventFactory();
+
+    /**
+     * @return The name of the command of the control server which applies a manifest
+     */
+    protected abstract String getControlCommandName();
+
+    /**
+     * @return The verb describing the operation, used for output
+     */
+    protected abstract String getOperationName();
+
+    protected abstract boolean showHelpIfRequested();
+
+    @Override
+    public int run() {
+        if (this.showHelpIfRequested()) {
+            return 0;
+        }
+
+        String resolvedManifest = FileUtils.resolveUserHome(this.manifest);
+        if (! new PathValidator(resolvedManifest).validate()) {
+            Output.println("Manifest " + this.manifest + " does not exist");
+            return 1;
+        }
+
+        List<ManifestEntry> entries;
+        try {
+            entries = ManifestParser.parse(Paths.get(resolvedManifest));
+        } catch (IOException | ValidationException e) {
+            Output.println("Failed to read manifest " + this.manifest + ": " + e.getMessage());
+            return 1;
+        }
+
+        if (entries.isEmpty()) {
+            Output.println("Manifest " + this.manifest + " does not contain any entries");
+            return 0;
+        }
+
+        if (null != this.controlPort) {
+            // entries are validated by the running node
+            return this.forward(Paths.get(resolvedManifest).toAbsolutePath());
+        }
+
+        if (null == this.syncFolder) {
+            Output.println("The path to the sync folder is required");
+            return 1;
+        }
+
+        int concurrency = (null != this.concurrency) ? this.concurrency : Config.DEFAULT.getSharingConcurrency();
+        if (concurrency < 1) {
+            Output.println("Concurrency must be at least 1");
+            return 1;
+        }
+
+        Sync sync;
+        try {
+            sync = this.startSync();
+        } catch (IOException | InitializationStartException e) {
+            Output.println("Could not read the application configuration. Did you initialise the app first?");
+            return 1;
+        } catch (ValidationException e) {
+            Output.println(e.getMessage());
+            return 1;
+        }
+
+        if (null == sync) {
+            return 1;
+        }
+
+        try {
+            return this.execute(sync, entries, concurrency);
+        } finally {
+            Output.print("Shutting down. Please wait... ");
+            Output.flush();
+            sync.shutdown();
+            this.releaseFolderLock();
+            Output.println("Complete");
+        }
+    }
+
+    /**
+     * Applies all manifest entries
+     *
+     * @param sync        The connected sync instance
+     * @param entries     The entries of the manifest
+     * @param concurrency The maximum number of elements processed concurrently
+     *
+     * @return The exit code
+     */
+    protected int execute(Sync sync, List<ManifestEntry> entries, int concurrency) {
+        Output.println("Processing " + entries.size() + " manifest entries with concurrency " + concurrency);
+
+        UserDirectory userDirectory = new UserDirectory(
+                sync.getNode().getUserManager(),
+                Config.DEFAULT.getUserCacheSize(),
+                Config.DEFAULT.getRegisteredUserTtl(),
+                Config.DEFAULT.getUnregisteredUserTtl(),
+                Config.DEFAULT.getLookupConcurrency()
+        );
+        ManifestExecutor manifestExecutor = new ManifestExecutor(sync, userDirectory, this.getEventFactory(), concurrency, Config.DEFAULT.getSharingBatchSize());
+
+        try {
+            SharingResult result = manifestExecutor.execute(entries);
+
+            Output.println(this.getOperationName() + " " + result.getSucceeded() + " of " + result.getSubmitted() + " elements in " + result.getDurationMillis() + " ms");
+
+            for (SharingFailure failure : result.getFailures()) {
+                Output.println("Failed: " + failure.getRelativePath() + ": " + failure.getMessage());
+            }
+
+            return result.hasFailures() ? 1 : 0;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Output.println("Processing the manifest has been interrupted");
+            return 1;
+        } finally {
+            userDirectory.shutdown();
+        }
+    }
+
+    /**
+     * Hands the manifest over to the control server of an already running node
+     *
+     * @param manifest The absolute path to the manifest
+     *
+     * @return The exit code
+     */
+    protected int forward(Path manifest) {
+        Output.println("Forwarding manifest " + manifest + " to the node on control port " + this.controlPort);
+
+        // processing a large manifest might take a while, hence no read timeout
+        try (ControlClient controlClient = new ControlClient(this.controlPort, 0)) {
+            List<String> lines = controlClient.request(this.getControlCommandName() + " " + manifest);
+
+            boolean failed = false;
+            for (String line : lines) {
+                Output.println(line);
+                failed |= line.startsWith("Failed: ");
+            }
+
+            return failed ? 1 : 0;
+
+        } catch (ControlException e) {
+            Output.println("The node failed to process the manifest: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            Output.println("Could not reach a running node on control port " + this.controlPort + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Reads the application config and connects a node for the sync folder
+     *
+     * @return The connected sync instance or null, if the node could not be started
+     *
+     * @throws IOException                  If the application config could not be read
+     * @throws InitializationStartException If the node could not be started
+     * @throws ValidationException          If the provided paths are invalid
+     */
+    protected Sync startSync()
+            throws IOException, InitializationStartException, ValidationException {
+        Path configFile;
+        if (null == this.applicationConfigPath) {
+            String resolvedFolderPath = FileUtils.resolveUserHome(org.rmatil.sync.client.config.Config.DEFAULT.getConfigFolderPath());
+            configFile = Paths.get(resolvedFolderPath).resolve(org.rmatil.sync.client.config.Config.DEFAULT.getConfigFileName());
+
+            if (! configFile.toFile().exists()) {
+                throw new ValidationException("Default application configuration path " + configFile + " does not exist. Did you initialise the application yet?");
+            }
+        } else {
+            String resolvedFolderPath = FileUtils.resolveUserHome(this.applicationConfigPath);
+            IValidator directoryValidator = new DirectoryValidator(resolvedFolderPath);
+
+            if (! directoryValidator.validate()) {
+                throw new ValidationException("Path " + this.applicationConfigPath + " should point to the application configuration folder instead of the configuration file");
+            }
+
+            configFile = Paths.get(resolvedFolderPath).resolve(org.rmatil.sync.client.config.Config.DEFAULT.getConfigFileName());
+        }
+
+        String resolvedSyncFolder = FileUtils.resolveUserHome(this.syncFolder);
+        if (! new PathValidator(resolvedSyncFolder).validate()) {
+            throw new ValidationException("The provided sync folder does not exist");
+        }
+
+        ApplicationConfig appConfig = ConfigStore.forFile(configFile).copy();
+
+        if (null == appConfig.getPublicKey() || null == appConfig.getPrivateKey()) {
+            throw new ValidationException("Public and private key must be set to connect. You can generate a new key pair in the init command");
+        }
+
+        // the same resolution as on connect
+        BootstrapUtils.applyBootstrapLocation(appConfig, this.ipAddress, this.port);
+
+        this.folderLock = FolderLock.tryAcquireSyncFolder(Paths.get(resolvedSyncFolder));
+        if (null == this.folderLock) {
+            throw new ValidationException("The sync folder is used by a running node. Pass its --control-port to let it apply the manifest");
+        }
+
+        Sync sync = new Sync(new LocalStorageAdapter(Paths.get(resolvedSyncFolder)));
+        boolean connected = false;
+        try {
+            sync.connect(appConfig);
+            connected = true;
+        } finally {
+            if (! connected) {
+                this.releaseFolderLock();
+            }
+        }
+
+        return sync;
+    }
+
+    protected void releaseFolderLock() {
+        if (null == this.folderLock) {
+            return;
+        }
+
+        try {
+            this.folderLock.close();
+        } catch (IOException e) {
+            // released on exit anyway
+        }
+
+        this.folderLock = null;
+    }
+}
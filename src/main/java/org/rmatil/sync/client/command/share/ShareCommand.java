@@ -0,0 +1,44 @@
+package org.rmatil.sync.client.command.share;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import org.rmatil.sync.client.sharing.ISharingEventFactory;
+import org.rmatil.sync.core.syncer.sharing.event.ShareEvent;
+
+import javax.inject.Inject;
+
+@Command(name = "share", description = "Start this device, share all paths listed in a manifest including their contents and shut down again")
+public class ShareCommand extends ABulkSharingCommand {
+
+    /**
+     * The special {@link HelpOption} provides a {@code -h} and {@code --help}
+     * option that can be used to request that help be shown.
+     * <p>
+     * Developers need to check the {@link HelpOption#showHelpIfRequested()}
+     * method which will display help if requested and return {@code true} if
+     * the user requested the help
+     * </p>
+     */
+    @Inject
+    private HelpOption<ShareCommand> help;
+
+    @Override
+    protected ISharingEventFactory getEventFactory() {
+        return ShareEvent::new;
+    }
+
+    @Override
+    protected String getControlCommandName() {
+        return "share-manifest";
+    }
+
+    @Override
+    protected String getOperationName() {
+        return "Shared";
+    }
+
+    @Override
+    protected boolean showHelpIfRequested() {
+        return this.help.showHelpIfRequested();
+    }
+}
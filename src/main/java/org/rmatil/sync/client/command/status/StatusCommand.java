@@ -0,0 +1,87 @@
+package org.rmatil.sync.client.command.status;
+
+import com.github.rvesse.airline.HelpOption;
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import org.rmatil.sync.client.command.ICliRunnable;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.control.ControlClient;
+import org.rmatil.sync.client.control.ControlException;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.status.NodeStatus;
+import org.rmatil.sync.client.status.StatusView;
+
+import javax.inject.Inject;
+import java.io.IOException;
+
+@Command(name = "status", description = "Show a live view of the throughput and latency of a running node, attached through its control port")
+public class StatusCommand implements ICliRunnable {
+
+    /**
+     * The default interval in which the status is refreshed
+     */
+    public static final long DEFAULT_INTERVAL = 1000L;
+
+    /**
+     * The maximum time to wait for connecting to the node and for each response
+     */
+    private static final int CONTROL_TIMEOUT = 10000;
+
+    /**
+     * The special {@link HelpOption} provides a {@code -h} and {@code --help}
+     * option that can be used to request that help be shown.
+     * <p>
+     * Developers need to check the {@link HelpOption#showHelpIfRequested()}
+     * method which will display help if requested and return {@code true} if
+     * the user requested the help
+     * </p>
+     */
+    @Inject
+    private HelpOption<StatusCommand> help;
+
+    @Option(name = {"--control-port"}, title = "ControlPort", arity = 1, description = "The control port of the running node")
+    @Required
+    private Integer controlPort;
+
+    @Option(name = {"-r", "--root"}, title = "Root", arity = 1, description = "The index of the sync folder whose node locations to show, if the node hosts several of them. All other figures cover all sync folders of the node")
+    private Integer root;
+
+    @Option(name = {"-i", "--interval"}, title = "Interval", arity = 1, description = "The interval in which the status is refreshed (in milliseconds)")
+    private Long interval;
+
+    @Option(name = {"-n", "--count"}, title = "Count", arity = 1, description = "The number of updates after which to exit. Runs until interrupted by default")
+    private Integer count;
+
+    @Override
+    public int run() {
+        if (this.help.showHelpIfRequested()) {
+            return 0;
+        }
+
+        long interval = (null != this.interval) ? Math.max(100L, this.interval) : DEFAULT_INTERVAL;
+        String request = (null != this.root) ? "root " + this.root + " status" : "status";
+
+        try (ControlClient controlClient = new ControlClient(this.controlPort, CONTROL_TIMEOUT)) {
+            StatusView statusView = new StatusView("Status of the node on control port " + this.controlPort + " (press Ctrl+C to exit)");
+
+            for (int i = 0; null == this.count || i < this.count; i++) {
+                if (i > 0) {
+                    Thread.sleep(interval);
+                }
+
+                statusView.update(NodeStatus.fromLines(controlClient.request(request)));
+            }
+        } catch (ControlException | ValidationException e) {
+            Output.println("Failed to fetch the status: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            Output.println("Could not reach a node on control port " + this.controlPort + ": " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return 0;
+    }
+}
@@ -7,6 +7,117 @@ public enum Config {
 
     private String configFileName;
 
+    /*
+     * Sharing
+     */
+
+    /**
+     * The maximum number of (un)share events processed concurrently
+     */
+    private int sharingConcurrency = 8;
+
+    /**
+     * The maximum number of (un)share events handed over to a worker at once
+     */
+    private int sharingBatchSize = 64;
+
+    /*
+     * Lookups in the DHT
+     */
+
+    /**
+     * The maximum number of concurrent lookups in the DHT
+     */
+    private int lookupConcurrency = 16;
+
+    /**
+     * The maximum number of file ids cached by the client
+     */
+    private int fileIdCacheSize = 100000;
+
+    /*
+     * Node locations
+     */
+
+    /**
+     * The interval in milliseconds in which cached node locations are refreshed
+     */
+    private long nodeLocationRefreshInterval = 10000L;
+
+    /**
+     * The time in milliseconds after which the node locations of a user which
+     * has not been looked up anymore are no longer refreshed but dropped
+     */
+    private long nodeLocationIdleTimeout = 300000L;
+
+    /**
+     * The maximum number of users whose node locations are cached
+     */
+    private int nodeLocationCacheSize = 1024;
+
+    /*
+     * Worker threads
+     */
+
+    /**
+     * The number of threads executing requests of the control server
+     */
+    private int controlWorkers = 2;
+
+    /**
+     * The number of threads deleting files concurrently
+     */
+    private int deleteParallelism = 8;
+
+    /**
+     * The number of sync folders initialised concurrently
+     */
+    private int initParallelism = 4;
+
+    /*
+     * Key pairs
+     */
+
+    /**
+     * The name of the file in the config folder holding pre-generated key pairs
+     */
+    private String keyPoolFileName = "keypool";
+
+    /**
+     * The algorithm of generated key pairs. Must be RSA, since the application config only holds RSA keys
+     */
+    private String keyAlgorithm = "RSA";
+
+    /**
+     * The size in bits of generated key pairs
+     */
+    private int keySize = 2048;
+
+    /**
+     * The number of key pairs kept ready in the key pool
+     */
+    private int keyPoolSize = 4;
+
+    /*
+     * User directory
+     */
+
+    /**
+     * The maximum number of users whose registration is cached
+     */
+    private int userCacheSize = 4096;
+
+    /**
+     * The time in milliseconds for which a registered user is remembered
+     */
+    private long registeredUserTtl = 600000L;
+
+    /**
+     * The time in milliseconds for which an unknown user is remembered.
+     * Shorter than for registered users, since the user might register in the meantime
+     */
+    private long unregisteredUserTtl = 30000L;
+
     Config(String configFolderPath, String configFileName) {
         this.configFolderPath = configFolderPath;
         this.configFileName = configFileName;
@@ -19,4 +130,72 @@ public enum Config {
     public String getConfigFileName() {
         return configFileName;
     }
+
+    public int getSharingConcurrency() {
+        return sharingConcurrency;
+    }
+
+    public int getSharingBatchSize() {
+        return sharingBatchSize;
+    }
+
+    public int getLookupConcurrency() {
+        return lookupConcurrency;
+    }
+
+    public int getFileIdCacheSize() {
+        return fileIdCacheSize;
+    }
+
+    public long getNodeLocationRefreshInterval() {
+        return nodeLocationRefreshInterval;
+    }
+
+    public long getNodeLocationIdleTimeout() {
+        return nodeLocationIdleTimeout;
+    }
+
+    public int getNodeLocationCacheSize() {
+        return nodeLocationCacheSize;
+    }
+
+    public int getControlWorkers() {
+        return controlWorkers;
+    }
+
+    public int getDeleteParallelism() {
+        return deleteParallelism;
+    }
+
+    public int getInitParallelism() {
+        return initParallelism;
+    }
+
+    public String getKeyPoolFileName() {
+        return keyPoolFileName;
+    }
+
+    public String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public int getKeySize() {
+        return keySize;
+    }
+
+    public int getKeyPoolSize() {
+        return keyPoolSize;
+    }
+
+    public int getUserCacheSize() {
+        return userCacheSize;
+    }
+
+    public long getRegisteredUserTtl() {
+        return registeredUserTtl;
+    }
+
+    public long getUnregisteredUserTtl() {
+        return unregisteredUserTtl;
+    }
 }
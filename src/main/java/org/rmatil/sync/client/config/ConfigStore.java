@@ -0,0 +1,299 @@
+package org.rmatil.sync.client.config;
+
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.core.model.ApplicationConfig;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads and writes the application config file.
+ * <p>
+ * There is a single store per config file within the JVM (see {@link ConfigStore#forFile(Path)}).
+ * The parsed config is cached and only read again if the file has been changed on disk.
+ * </p>
+ * <p>
+ * Updates are written to a temporary file, which is synced to disk and atomically
+ * moved over the config file, so that a crash never leaves a truncated config behind.
+ * Updates issued concurrently are coalesced into a single write. Other processes
+ * updating the same config are excluded by a lock file next to the config.
+ * </p>
+ */
+public class ConfigStore {
+
+    /**
+     * The suffix of the lock file, appended to the name of the config file
+     */
+    public static final String LOCK_FILE_SUFFIX = ".lock";
+
+    protected static final Map<Path, ConfigStore> STORES = new ConcurrentHashMap<>();
+
+    protected static class PendingUpdate {
+
+        protected UnaryOperator<ApplicationConfig> operator;
+
+        protected CompletableFuture<ApplicationConfig> result = new CompletableFuture<>();
+
+        protected PendingUpdate(UnaryOperator<ApplicationConfig> operator) {
+            this.operator = operator;
+        }
+    }
+
+    protected Path configFile;
+
+    protected Path lockFile;
+
+    protected Queue<PendingUpdate> pendingUpdates;
+
+    /**
+     * Held while writing, i.e. while applying all pending updates
+     */
+    protected final ReentrantLock writeLock = new ReentrantLock();
+
+    protected String cachedJson;
+
+    protected ApplicationConfig cachedConfig;
+
+    /**
+     * The attributes of the config file at the time it was cached
+     */
+    protected Object cachedFileKey;
+
+    protected long cachedLastModified;
+
+    protected long cachedSize;
+
+    protected ConfigStore(Path configFile) {
+        this.configFile = configFile;
+        this.lockFile = configFile.resolveSibling(configFile.getFileName() + LOCK_FILE_SUFFIX);
+        this.pendingUpdates = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * @param configFile The path to the config file
+     *
+     * @return The store of the given config file
+     */
+    public static ConfigStore forFile(Path configFile) {
+        return STORES.computeIfAbsent(configFile.toAbsolutePath().normalize(), ConfigStore::new);
+    }
+
+    public Path getConfigFile() {
+        return configFile;
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(this.configFile);
+    }
+
+    /**
+     * Returns the cached config. Note, that the returned instance is shared
+     * and must not be modified. Use {@link ConfigStore#copy()} instead.
+     *
+     * @return The current config
+     *
+     * @throws IOException If the config could not be read
+     */
+    public synchronized ApplicationConfig get()
+            throws IOException {
+        this.refresh();
+
+        return this.cachedConfig;
+    }
+
+    /**
+     * @return A copy of the current config, which may be modified without affecting the stored config
+     *
+     * @throws IOException If the config could not be read
+     */
+    public synchronized ApplicationConfig copy()
+            throws IOException {
+        this.refresh();
+
+        return ApplicationConfig.fromJson(this.cachedJson);
+    }
+
+    /**
+     * Modifies the stored config. The updater should validate its input before
+     * modifying the config, since an update failing halfway is written anyway
+     * if other updates are coalesced with it.
+     *
+     * @param updater Modifies the given config
+     *
+     * @return The config after the update. Must not be modified
+     *
+     * @throws IOException If the config could not be read or written
+     */
+    public ApplicationConfig update(Consumer<ApplicationConfig> updater)
+            throws IOException {
+        if (! this.exists()) {
+            throw new NoSuchFileException(this.configFile.toString());
+        }
+
+        return this.transform(config -> {
+            updater.accept(config);
+            return config;
+        });
+    }
+
+    /**
+     * Replaces the stored config by the result of the given operator.
+     * The config file is created if it does not exist yet.
+     *
+     * @param operator Returns the new config, given the current one or null, if no config exists yet
+     *
+     * @return The new config. Must not be modified
+     *
+     * @throws IOException If the config could not be read or written
+     */
+    public ApplicationConfig transform(UnaryOperator<ApplicationConfig> operator)
+            throws IOException {
+        PendingUpdate update = new PendingUpdate(operator);
+        this.pendingUpdates.add(update);
+
+        // whoever holds the lock writes all pending updates, the others only wait for
+        // their result. An update added just after the holder's last check is seen by
+        // the holder's recheck once it released the lock
+        do {
+            if (! this.writeLock.tryLock()) {
+                break;
+            }
+
+            try {
+                while (! this.pendingUpdates.isEmpty()) {
+                    this.writePendingUpdates();
+                }
+            } finally {
+                this.writeLock.unlock();
+            }
+        } while (! this.pendingUpdates.isEmpty());
+
+        try {
+            return update.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while updating the config", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Applies all pending updates and writes the result at once
+     */
+    protected void writePendingUpdates() {
+        List<PendingUpdate> updates = new ArrayList<>();
+        PendingUpdate pending;
+        while (null != (pending = this.pendingUpdates.poll())) {
+            updates.add(pending);
+        }
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(this.configFile.toAbsolutePath().getParent());
+
+            try (FileChannel lockChannel = FileChannel.open(this.lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock ignored = lockChannel.lock()) {
+
+                ApplicationConfig config = null;
+                synchronized (this) {
+                    if (this.exists()) {
+                        this.refresh();
+                        config = ApplicationConfig.fromJson(this.cachedJson);
+                    }
+                }
+
+                List<PendingUpdate> applied = new ArrayList<>();
+                for (PendingUpdate update : updates) {
+                    try {
+                        config = update.operator.apply(config);
+                        applied.add(update);
+                    } catch (RuntimeException e) {
+                        update.result.completeExceptionally(e);
+                    }
+                }
+
+                if (applied.isEmpty()) {
+                    return;
+                }
+
+                if (null == config) {
+                    throw new IOException("The config must not be removed by an update");
+                }
+
+                String json = config.toJson();
+                FileUtils.writeAtomically(this.configFile, json.getBytes(StandardCharsets.UTF_8));
+
+                synchronized (this) {
+                    this.cache(json, config, Files.readAttributes(this.configFile, BasicFileAttributes.class));
+                }
+
+                for (PendingUpdate update : applied) {
+                    update.result.complete(config);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (PendingUpdate update : updates) {
+                update.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Reads the config again if it has been changed on disk since it was cached
+     *
+     * @throws IOException If the config could not be read
+     */
+    protected void refresh()
+            throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(this.configFile, BasicFileAttributes.class);
+
+        if (null != this.cachedConfig &&
+                attributes.lastModifiedTime().toMillis() == this.cachedLastModified &&
+                attributes.size() == this.cachedSize &&
+                (null == attributes.fileKey() || attributes.fileKey().equals(this.cachedFileKey))) {
+            return;
+        }
+
+        // a change after reading the attributes only causes an additional read on the next refresh
+        String json = new String(Files.readAllBytes(this.configFile), StandardCharsets.UTF_8);
+        this.cache(json, ApplicationConfig.fromJson(json), attributes);
+    }
+
+    protected void cache(String json, ApplicationConfig config, BasicFileAttributes attributes) {
+        this.cachedJson = json;
+        this.cachedConfig = config;
+        this.cachedFileKey = attributes.fileKey();
+        this.cachedLastModified = attributes.lastModifiedTime().toMillis();
+        this.cachedSize = attributes.size();
+    }
+}
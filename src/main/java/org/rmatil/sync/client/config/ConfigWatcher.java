@@ -0,0 +1,162 @@
+package org.rmatil.sync.client.config;
+
+import org.rmatil.sync.core.model.ApplicationConfig;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the directory of a config file and notifies the registered
+ * {@link IConfigListener}s each time the config has been changed on disk.
+ * <p>
+ * Events are debounced, i.e. a burst of changes (as caused by an editor
+ * or several updates in a row) results in a single notification once
+ * the file has not been changed for {@link ConfigWatcher#DEBOUNCE_MILLIS}.
+ * A config which can not be read (e.g. while being written in place by
+ * another program) is skipped until it is changed again.
+ * </p>
+ */
+public class ConfigWatcher {
+
+    /**
+     * The time in milliseconds the config must not have been changed before listeners are notified
+     */
+    public static final long DEBOUNCE_MILLIS = 250L;
+
+    protected ConfigStore configStore;
+
+    protected List<IConfigListener> listeners;
+
+    protected WatchService watchService;
+
+    protected Thread watchThread;
+
+    /**
+     * @param configStore The store of the config file to watch
+     */
+    public ConfigWatcher(ConfigStore configStore) {
+        this.configStore = configStore;
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Starts watching the config file
+     *
+     * @throws IOException If the directory of the config file could not be watched
+     */
+    public synchronized void start()
+            throws IOException {
+        if (null != this.watchService) {
+            return;
+        }
+
+        Path directory = this.configStore.getConfigFile().getParent();
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        try {
+            // the config store replaces the config by a rename, which is reported as creation
+            directory.register(
+                    this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+        } catch (IOException e) {
+            this.watchService.close();
+            this.watchService = null;
+            throw e;
+        }
+
+        this.watchThread = new Thread(this::watch, "config-watcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    public synchronized void shutdown() {
+        if (null == this.watchService) {
+            return;
+        }
+
+        try {
+            this.watchService.close();
+        } catch (IOException e) {
+            // the watching thread terminates anyway
+        }
+
+        this.watchThread.interrupt();
+    }
+
+    public void addListener(IConfigListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(IConfigListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    protected void watch() {
+        try {
+            while (! Thread.currentThread().isInterrupted()) {
+                if (! this.awaitChange(this.watchService.take())) {
+                    continue;
+                }
+
+                // wait until the config has settled
+                WatchKey key;
+                while (null != (key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS))) {
+                    this.awaitChange(key);
+                }
+
+                this.notifyListeners();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shut down
+        }
+    }
+
+    /**
+     * Consumes the events of the given key
+     *
+     * @param key The signalled key
+     *
+     * @return True, if one of the events concerns the config file
+     */
+    protected boolean awaitChange(WatchKey key) {
+        Path fileName = this.configStore.getConfigFile().getFileName();
+        boolean changed = false;
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // events might have been lost, so the config might have been changed as well
+            if (StandardWatchEventKinds.OVERFLOW == event.kind() || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+
+        key.reset();
+
+        return changed;
+    }
+
+    protected void notifyListeners() {
+        for (IConfigListener listener : this.listeners) {
+            ApplicationConfig config;
+            try {
+                config = this.configStore.copy();
+            } catch (IOException | RuntimeException e) {
+                // removed or not completely written yet, the next change notifies again
+                return;
+            }
+
+            listener.onConfigChanged(config);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.rmatil.sync.client.config;
+
+import org.rmatil.sync.core.model.ApplicationConfig;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Creates the default application config around a given key pair.
+ * <p>
+ * The factory of the library always generates a new key pair when creating
+ * the default config. The config is therefore assembled here from the default
+ * values of the library's {@link org.rmatil.sync.core.config.Config}, so that a
+ * key pair taken from the {@link org.rmatil.sync.client.keys.KeyPool} or the one
+ * of an existing config can be used without generating another one.
+ * </p>
+ */
+public class DefaultApplicationConfig {
+
+    /**
+     * @param keyPair The RSA key pair of the config
+     *
+     * @return The default application config holding the given key pair
+     */
+    public static ApplicationConfig create(KeyPair keyPair) {
+        org.rmatil.sync.core.config.Config defaults = org.rmatil.sync.core.config.Config.DEFAULT;
+
+        ApplicationConfig appConfig = new ApplicationConfig();
+        appConfig.setUserName(null);
+        appConfig.setPassword(null);
+        appConfig.setSalt(null);
+        appConfig.setCacheTtl(defaults.getCacheTtl());
+        appConfig.setPeerDiscoveryTimeout(defaults.getPeerDiscoveryTimeout());
+        appConfig.setPeerBootstrapTimeout(defaults.getPeerBootstrapTimeout());
+        appConfig.setShutdownAnnounceTimeout(defaults.getShutdownAnnounceTimeout());
+        appConfig.setPort(defaults.getDefaultPort());
+        appConfig.setPublicKey((RSAPublicKey) keyPair.getPublic());
+        appConfig.setPrivateKey((RSAPrivateKey) keyPair.getPrivate());
+        appConfig.setBootstrapLocation(null);
+
+        return appConfig;
+    }
+}
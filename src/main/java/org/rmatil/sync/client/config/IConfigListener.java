@@ -0,0 +1,14 @@
+package org.rmatil.sync.client.config;
+
+import org.rmatil.sync.core.model.ApplicationConfig;
+
+public interface IConfigListener {
+
+    /**
+     * Invoked from the watching thread of the {@link ConfigWatcher}
+     * each time the config file has been changed on disk
+     *
+     * @param config The changed config. Owned by the listener, i.e. a copy for each listener
+     */
+    void onConfigChanged(ApplicationConfig config);
+}
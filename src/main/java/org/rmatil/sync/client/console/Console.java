@@ -3,28 +3,79 @@ package org.rmatil.sync.client.console;
 import org.rmatil.sync.client.console.io.Input;
 import org.rmatil.sync.client.console.io.Output;
 import org.rmatil.sync.client.console.item.ExitItem;
+import org.rmatil.sync.client.console.item.StatusItem;
+import org.rmatil.sync.client.console.item.SwitchRootItem;
+import org.rmatil.sync.client.console.item.TasksItem;
 import org.rmatil.sync.client.console.menu.DhtMenu;
 import org.rmatil.sync.client.console.menu.SharingMenu;
+import org.rmatil.sync.client.console.task.ConsoleTaskManager;
+import org.rmatil.sync.client.context.ClientContext;
+import org.rmatil.sync.client.status.StatusCollector;
 import org.rmatil.sync.core.Sync;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.InputMismatchException;
 import java.util.List;
 
 public class Console {
 
+    /**
+     * The contexts of all roots hosted by this process
+     */
+    protected List<ClientContext> clientContexts;
+
+    /**
+     * The context of the root the console currently operates on
+     */
+    protected ClientContext clientContext;
+
     protected Sync sync;
 
+    /**
+     * Runs long operations of all roots in the background
+     */
+    protected ConsoleTaskManager taskManager;
+
     protected ItemStatusHolder itemStatus;
 
     protected List<IItem> items;
 
-    public Console(Sync sync) {
-        this.sync = sync;
+    public Console(ClientContext clientContext) {
+        this(Collections.singletonList(clientContext));
+    }
+
+    /**
+     * @param clientContexts The contexts of all roots hosted by this process. The console starts on the first one
+     */
+    public Console(List<ClientContext> clientContexts) {
+        this.clientContexts = clientContexts;
+        this.taskManager = new ConsoleTaskManager();
         this.itemStatus = new ItemStatusHolder(ItemStatus.RUNNING);
+        this.selectRoot(0);
+    }
+
+    /**
+     * Lets the console operate on the root with the given index
+     *
+     * @param index The index of the root
+     */
+    protected void selectRoot(int index) {
+        this.clientContext = this.clientContexts.get(index);
+        this.sync = this.clientContext.getSync();
         this.items = new ArrayList<>();
-        this.items.add(new SharingMenu(this.sync));
-        this.items.add(new DhtMenu(this.sync));
+        this.items.add(new SharingMenu(this.clientContext, this.taskManager));
+        this.items.add(new DhtMenu(this.clientContext, this.taskManager));
+        this.items.add(new StatusItem(
+                new StatusCollector(this.clientContext.getNodeLocationCache(), this.sync.getNode().getUser().getUserName()),
+                this.clientContext.getRootPath().toString()
+        ));
+        this.items.add(new TasksItem(this.taskManager));
+
+        if (this.clientContexts.size() > 1) {
+            this.items.add(new SwitchRootItem(this.clientContexts, this::selectRoot));
+        }
+
         this.items.add(new ExitItem(this.itemStatus));
     }
 
@@ -32,7 +83,11 @@ public class Console {
         while (ItemStatus.RUNNING == this.itemStatus.getItemStatus()) {
 
             Output.newLine();
-            Output.println("Select the action to invoke:");
+            if (this.clientContexts.size() > 1) {
+                Output.println("Select the action to invoke on " + this.clientContext.getRootPath() + ":");
+            } else {
+                Output.println("Select the action to invoke:");
+            }
 
             // print items
             Output.printItems(this.items);
@@ -48,18 +103,27 @@ public class Console {
 
             // invoke correct item
             if (selection >= 0 && selection <= this.items.size() - 1) {
+                // the output of an item is written at once, or before it reads input
+                Output.beginBatch();
                 try {
-                    this.items.get(selection).execute();
+                    this.taskManager.execute(this.items.get(selection));
                 } catch (Exception e) {
                     // catch all exceptions here to avoid printing
                     // an ugly stack trace on the command
                     Output.printError(e);
+                } finally {
+                    Output.endBatch();
                 }
             } else {
                 Output.println("Invalid selection. Try again");
             }
         }
 
+        int cancelled = this.taskManager.shutdown();
+        if (cancelled > 0) {
+            Output.println("Cancelled " + cancelled + " running task(s)");
+        }
+
         Input.close();
     }
 }
@@ -0,0 +1,46 @@
+package org.rmatil.sync.client.console;
+
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.console.task.ConsoleTaskManager;
+import org.rmatil.sync.client.console.task.IConsoleOperation;
+import org.rmatil.sync.client.console.task.IProgress;
+
+/**
+ * An item whose operation may take long, e.g. because it waits for the DHT.
+ * <p>
+ * The input of the operation is read on the console thread by {@link IAsyncItem#prepare()}.
+ * The returned operation is then run in the background by the {@link ConsoleTaskManager},
+ * so that the menu stays responsive, several operations can run at once and each of
+ * them can be cancelled. Operations must not read input.
+ * </p>
+ */
+public interface IAsyncItem extends IItem {
+
+    /**
+     * Reads the input of the operation
+     *
+     * @return The operation to run or null, if there is nothing to run
+     */
+    IConsoleOperation prepare();
+
+    /**
+     * Runs the operation on the calling thread
+     */
+    @Override
+    default void execute() {
+        IConsoleOperation operation = this.prepare();
+
+        if (null == operation) {
+            return;
+        }
+
+        try {
+            operation.run(IProgress.NONE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Output.println("Interrupted");
+        } catch (Exception e) {
+            Output.printError(e);
+        }
+    }
+}
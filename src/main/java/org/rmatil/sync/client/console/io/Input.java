@@ -1,22 +1,147 @@
 package org.rmatil.sync.client.console.io;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.InputMismatchException;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
 
+/**
+ * Reads the input of the console line by line.
+ * <p>
+ * Lines are split into tokens by this class rather than by a {@link java.util.Scanner},
+ * so that input which has already been read from {@link System#in} but not yet
+ * consumed is known (see {@link Input#hasPendingInput()}).
+ * </p>
+ */
 public class Input {
 
-    private static final Scanner scanner = new Scanner(System.in);
+    private static final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 
-    public static void close() {
-        scanner.close();
+    /**
+     * The rest of the line read last which has not been consumed yet or null, if the line has been consumed entirely
+     */
+    private static String pending;
+
+    public static synchronized void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // nothing left to read
+        }
+    }
+
+    /**
+     * Reads the next token, i.e. the next word, spanning several lines if necessary
+     *
+     * @return The next token
+     *
+     * @throws NoSuchElementException If the input has been closed
+     */
+    public static synchronized String getInput() {
+        // show the prompt before blocking
+        Output.flush();
+
+        while (true) {
+            if (null == pending) {
+                pending = readLine();
+            }
+
+            String line = trimLeading(pending);
+            if (line.isEmpty()) {
+                pending = null;
+                continue;
+            }
+
+            int end = 0;
+            while (end < line.length() && ! Character.isWhitespace(line.charAt(end))) {
+                end++;
+            }
+
+            // the rest of the line is consumed by the next read
+            pending = line.substring(end);
+
+            return line.substring(0, end);
+        }
+    }
+
+    /**
+     * Reads the rest of the current line
+     *
+     * @return The rest of the line, without the line separator
+     *
+     * @throws NoSuchElementException If the input has been closed
+     */
+    public static synchronized String getLine() {
+        Output.flush();
+
+        if (null != pending) {
+            String line = pending;
+            pending = null;
+
+            return line;
+        }
+
+        return readLine();
     }
 
-    public static String getInput() {
-        return scanner.next();
+    /**
+     * @return True, if input has been entered which is not yet read, i.e. reading would not block
+     */
+    public static synchronized boolean hasPendingInput() {
+        if (null != pending) {
+            return true;
+        }
+
+        try {
+            // also true if characters have been buffered by the reader
+            return reader.ready();
+        } catch (IOException e) {
+            return false;
+        }
     }
 
-    public static int getNextInt()
+    /**
+     * Reads the next token as number
+     *
+     * @return The number
+     *
+     * @throws InputMismatchException If the next token is not a number. The token is consumed nevertheless
+     * @throws NoSuchElementException If the input has been closed
+     */
+    public static synchronized int getNextInt()
             throws InputMismatchException {
-        return scanner.nextInt();
+        String token = getInput();
+
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new InputMismatchException(token + " is not a number");
+        }
+    }
+
+    private static String readLine() {
+        String line;
+        try {
+            line = reader.readLine();
+        } catch (IOException e) {
+            // treated as the end of the input
+            line = null;
+        }
+
+        if (null == line) {
+            throw new NoSuchElementException("No line found");
+        }
+
+        return line;
+    }
+
+    private static String trimLeading(String line) {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+
+        return line.substring(start);
     }
 }
@@ -1,13 +1,42 @@
 package org.rmatil.sync.client.console.io;
 
 import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.util.HexUtils;
 import org.rmatil.sync.network.core.model.NodeLocation;
 
+import java.io.PrintStream;
+import java.nio.charset.Charset;
 import java.security.Key;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Writes to the standard output.
+ * <p>
+ * Output is collected in a buffer and written to the standard output at once
+ * on a flush, instead of passing each fragment through the synchronized
+ * {@link System#out}. A line printed by {@link Output#println(String)} or
+ * {@link Output#newLine()} is flushed immediately, unless the calling thread
+ * is within a batch (see {@link Output#beginBatch()}), in which case the
+ * output is flushed once the batch ends, the buffer exceeds
+ * {@link Output#BUFFER_SIZE} or input is read by {@link Input}.
+ * Fragments printed by {@link Output#print(String)} are only written with
+ * the next flush.
+ * </p>
+ * <p>
+ * If the system property {@link Output#ASYNC_PROPERTY} is set to true, flushing
+ * only hands the buffer over to a writer thread, so that printing never blocks
+ * on a slow terminal. {@link Output#flush()} still waits until everything
+ * printed before has been written.
+ * </p>
+ * <p>
+ * While a thread redraws a view in place (see {@link Output#beginInPlace()}),
+ * the output of all other threads, e.g. of tasks running in the background,
+ * is held back and written once the view is left, so that it does not
+ * shift the lines the view is about to overwrite.
+ * </p>
+ */
 public class Output {
 
     /**
@@ -15,71 +44,209 @@ public class Output {
      */
     public static final int MAX_GAP_SIZE = 30;
 
-    // TODO: may be use buffered writer or something to write on the same place in the console (https://github.com/p2p-sync/client/issues/5)
+    /**
+     * The number of buffered characters after which the buffer is flushed, even within a batch
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The system property which enables the asynchronous writer thread
+     */
+    public static final String ASYNC_PROPERTY = "sync.output.async";
+
+    protected static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The escape sequence to clear the rest of the line on an ANSI terminal
+     */
+    protected static final String CLEAR_LINE = "\u001B[K";
+
+    /**
+     * The escape sequence to clear everything below the cursor on an ANSI terminal
+     */
+    protected static final String CLEAR_BELOW = "\u001B[J";
+
+    protected static final Object lock = new Object();
+
+    protected static final ThreadLocal<int[]> batchDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+    protected static StringBuilder buffer = new StringBuilder(1024);
+
+    /**
+     * The thread redrawing a view in place or null, if there is none
+     */
+    protected static Thread inPlaceOwner;
+
+    /**
+     * The output of other threads, held back while a view is redrawn in place
+     */
+    protected static StringBuilder held = new StringBuilder();
+
+    /**
+     * The writer thread or null, if output is written synchronously
+     */
+    protected static Thread writerThread;
 
+    /**
+     * The number of flushes requested from the writer thread
+     */
+    protected static long requestedFlushes = 0;
+
+    /**
+     * The number of requested flushes the writer thread has completed
+     */
+    protected static long completedFlushes = 0;
+
+    static {
+        if (Boolean.getBoolean(ASYNC_PROPERTY)) {
+            writerThread = new Thread(Output::writeAsync, "console-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+
+            // the writer thread is a daemon, so write what is left on exit
+            Runtime.getRuntime().addShutdownHook(new Thread(Output::flush, "console-writer-flush"));
+        }
+    }
 
     public static void printItems(List<IItem> items) {
+        StringBuilder sb = new StringBuilder();
+
         for (int i = 0; i < items.size(); i++) {
-            print("[" + i + "]\t" + items.get(i).getName());
+            sb.append("[").append(i).append("]\t").append(items.get(i).getName());
 
             // write spaces until correctly aligned
             for (int j = 0; j < Math.max(0, MAX_GAP_SIZE - items.get(i).getName().length()); j++) {
-                print(" ");
+                sb.append(' ');
             }
 
-            println(" " + items.get(i).getDescription());
+            sb.append(" ").append(items.get(i).getDescription()).append(LINE_SEPARATOR);
         }
+
+        write(sb, true);
     }
 
     public static void printNodeLocations(List<NodeLocation> nodeLocations) {
+        StringBuilder sb = new StringBuilder();
+
         for (NodeLocation nodeLocation : nodeLocations) {
-            print(nodeLocation.getClientDeviceId() + "\t");
-            print(nodeLocation.getPort() + "\t");
-            print(nodeLocation.getIpAddress());
-            newLine();
+            sb.append(nodeLocation.getClientDeviceId()).append("\t");
+            sb.append(nodeLocation.getPort()).append("\t");
+            sb.append(nodeLocation.getIpAddress());
+            sb.append(LINE_SEPARATOR);
         }
 
-        newLine();
-        newLine();
+        sb.append(LINE_SEPARATOR);
+        sb.append(LINE_SEPARATOR);
+
+        write(sb, true);
     }
 
     public static void printFileId(Map<UUID, String> map) {
+        StringBuilder sb = new StringBuilder();
+
         for (Map.Entry<UUID, String> entry : map.entrySet()) {
-            print(entry.getKey() + "\t");
-            print(entry.getValue());
-            newLine();
+            sb.append(entry.getKey()).append("\t");
+            sb.append(entry.getValue());
+            sb.append(LINE_SEPARATOR);
         }
 
-        newLine();
-        newLine();
+        sb.append(LINE_SEPARATOR);
+        sb.append(LINE_SEPARATOR);
+
+        write(sb, true);
     }
 
     public static void printKey(Key key) {
-        println("Format:  " + key.getFormat());
-        println("Algorithm: " + key.getAlgorithm());
-        newLine();
-        printByteToHex(key.getEncoded());
+        StringBuilder sb = new StringBuilder();
+        sb.append("Format:  ").append(key.getFormat()).append(LINE_SEPARATOR);
+        sb.append("Algorithm: ").append(key.getAlgorithm()).append(LINE_SEPARATOR);
+        sb.append(LINE_SEPARATOR);
+        sb.append(HexUtils.toHex(key.getEncoded())).append(LINE_SEPARATOR);
+
+        write(sb, true);
     }
 
     public static void printByteToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X", b));
-        }
-
-        println(sb.toString());
+        println(HexUtils.toHex(bytes));
     }
 
     public static void newLine() {
-        System.out.println();
+        write(LINE_SEPARATOR, true);
     }
 
     public static void print(String text) {
-        System.out.print(text);
+        write(text, false);
     }
 
     public static void println(String text) {
-        System.out.println(text);
+        write(text + LINE_SEPARATOR, true);
+    }
+
+    /**
+     * Prints the given lines in place of the ones printed by the previous invocation,
+     * e.g. to redraw a dashboard, and flushes the output.
+     * If the standard output is not a terminal, the lines are just appended
+     *
+     * @param lines         The lines to print
+     * @param previousLines The number of lines to replace, as returned by the previous invocation
+     *
+     * @return The number of lines to replace on the next invocation
+     */
+    public static int printInPlace(List<String> lines, int previousLines) {
+        boolean terminal = null != System.console();
+        StringBuilder sb = new StringBuilder();
+
+        if (terminal && previousLines > 0) {
+            // move to the start of the first previously printed line
+            sb.append("\u001B[").append(previousLines).append('F');
+        }
+
+        for (String line : lines) {
+            sb.append(line);
+            if (terminal) {
+                sb.append(CLEAR_LINE);
+            }
+            sb.append(LINE_SEPARATOR);
+        }
+
+        if (terminal) {
+            // the previous output may have been longer
+            sb.append(CLEAR_BELOW);
+        } else {
+            sb.append(LINE_SEPARATOR);
+        }
+
+        write(sb, true);
+        flush();
+
+        return terminal ? lines.size() : 0;
+    }
+
+    /**
+     * Starts redrawing a view in place on the calling thread (see {@link Output#printInPlace(List, int)}).
+     * Until {@link Output#endInPlace()} is invoked, the output of all other threads is held back
+     */
+    public static void beginInPlace() {
+        synchronized (lock) {
+            inPlaceOwner = Thread.currentThread();
+        }
+    }
+
+    /**
+     * Stops redrawing a view in place and writes the output held back meanwhile
+     */
+    public static void endInPlace() {
+        synchronized (lock) {
+            if (Thread.currentThread() != inPlaceOwner) {
+                return;
+            }
+
+            inPlaceOwner = null;
+            buffer.append(held);
+            held = new StringBuilder();
+        }
+
+        flush();
     }
 
     public static void printError(Exception e) {
@@ -89,4 +256,136 @@ public class Output {
             Output.println("An error occurred during execution of the command. No exception message provided. See log for more details");
         }
     }
+
+    /**
+     * Starts a batch on the calling thread: Lines are not flushed until
+     * the batch is ended. Batches may be nested
+     */
+    public static void beginBatch() {
+        batchDepth.get()[0]++;
+    }
+
+    /**
+     * Ends a batch started by {@link Output#beginBatch()} and flushes
+     * the output once the outermost batch has been ended
+     */
+    public static void endBatch() {
+        int[] depth = batchDepth.get();
+
+        if (depth[0] > 0 && 0 == --depth[0]) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes everything printed so far to the standard output.
+     * Returns once the output has been written, also if the asynchronous writer is used
+     */
+    public static void flush() {
+        synchronized (lock) {
+            if (null == writerThread) {
+                writePending();
+                return;
+            }
+
+            long target = ++ requestedFlushes;
+            lock.notifyAll();
+
+            try {
+                while (completedFlushes < target && writerThread.isAlive()) {
+                    lock.wait(100L);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected static void write(CharSequence text, boolean line) {
+        synchronized (lock) {
+            if (null != inPlaceOwner && Thread.currentThread() != inPlaceOwner) {
+                held.append(text);
+                return;
+            }
+
+            buffer.append(text);
+
+            if (buffer.length() < BUFFER_SIZE && (! line || batchDepth.get()[0] > 0)) {
+                return;
+            }
+
+            if (null == writerThread) {
+                writePending();
+            } else {
+                // hand over without waiting for the terminal
+                requestedFlushes++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Takes the buffered output. Must be invoked while holding the lock
+     *
+     * @return The buffered output
+     */
+    protected static String takePending() {
+        String pending = buffer.toString();
+
+        if (buffer.capacity() > 4 * BUFFER_SIZE) {
+            // do not keep the memory of a huge listing
+            buffer = new StringBuilder(1024);
+        } else {
+            buffer.setLength(0);
+        }
+
+        return pending;
+    }
+
+    /**
+     * Writes the buffered output synchronously. Must be invoked while holding the lock
+     */
+    protected static void writePending() {
+        if (0 < buffer.length()) {
+            writeOut(takePending());
+        }
+    }
+
+    protected static void writeOut(String text) {
+        // looked up on each write, since the standard output might have been replaced
+        PrintStream out = System.out;
+        byte[] bytes = text.getBytes(Charset.defaultCharset());
+
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+    }
+
+    protected static void writeAsync() {
+        try {
+            while (true) {
+                String pending;
+                long flushes;
+
+                synchronized (lock) {
+                    while (completedFlushes == requestedFlushes) {
+                        lock.wait();
+                    }
+
+                    flushes = requestedFlushes;
+                    pending = takePending();
+                }
+
+                if (! pending.isEmpty()) {
+                    writeOut(pending);
+                }
+
+                synchronized (lock) {
+                    completedFlushes = flushes;
+                    lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // shut down
+        }
+    }
 }
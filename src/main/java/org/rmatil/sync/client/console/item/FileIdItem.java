@@ -1,63 +1,119 @@
 package org.rmatil.sync.client.console.item;
 
-import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.IAsyncItem;
 import org.rmatil.sync.client.console.io.Output;
-import org.rmatil.sync.core.config.Config;
-import org.rmatil.sync.network.api.IIdentifierManager;
-import org.rmatil.sync.persistence.api.IPathElement;
+import org.rmatil.sync.client.console.task.IConsoleOperation;
+import org.rmatil.sync.client.console.task.IProgress;
+import org.rmatil.sync.client.dht.FileIdEntry;
+import org.rmatil.sync.client.index.FileIdIndex;
+import org.rmatil.sync.client.index.FileStamp;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.client.walker.StorageTreeWalker;
 import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
-import org.rmatil.sync.persistence.core.tree.TreePathElement;
-import org.rmatil.sync.persistence.exceptions.InputOutputException;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
 
-public class FileIdItem implements IItem {
+public class FileIdItem implements IAsyncItem {
 
-    protected ITreeStorageAdapter              storageAdapter;
-    protected IIdentifierManager<String, UUID> identifierManager;
+    /**
+     * The number of paths which are resolved at once
+     */
+    public static final int LOOKUP_BATCH_SIZE = 1024;
 
-    public FileIdItem(ITreeStorageAdapter storageAdapter, IIdentifierManager<String, UUID> identifierManager) {
+    protected ITreeStorageAdapter storageAdapter;
+    protected FileIdIndex         fileIdIndex;
+
+    public FileIdItem(ITreeStorageAdapter storageAdapter, FileIdIndex fileIdIndex) {
         this.storageAdapter = storageAdapter;
-        this.identifierManager = identifierManager;
+        this.fileIdIndex = fileIdIndex;
     }
 
     @Override
-    public void execute() {
-        try {
-            List<TreePathElement> entries = this.storageAdapter.getDirectoryContents(new TreePathElement(""));
+    public IConsoleOperation prepare() {
+        return this::printFileIds;
+    }
 
+    /**
+     * Prints the file ids of all elements in the synced folder
+     *
+     * @param progress Receives the number of printed file ids
+     *
+     * @throws InterruptedException If the operation has been cancelled
+     */
+    protected void printFileIds(IProgress progress)
+            throws InterruptedException {
+        try {
             Output.println("Current registered file ids");
             Output.newLine();
-            for (IPathElement entry : entries) {
-                if (entry.getPath().startsWith(Config.DEFAULT.getOsFolderName())) {
-                    // skipping .sync folder and its contents
-                    continue;
-                }
 
-                Output.print(entry.getPath() + "\t");
+            long[] printed = {0};
+            Map<String, FileStamp> batch = new LinkedHashMap<>();
+
+            // marks the entries of all paths resolved during the walk
+            long generation = this.fileIdIndex.nextGeneration();
 
-                try {
-                    UUID fileId = this.identifierManager.getValue(entry.getPath());
+            // the object store is skipped by the walker
+            StorageTreeWalker walker = new StorageTreeWalker(this.storageAdapter);
+            walker.walk(Paths.get(""), (relativePath, attributes) -> {
+                String path = relativePath.toString();
 
-                    if (null != fileId) {
-                        Output.print(fileId.toString());
-                    } else {
-                        Output.print("-");
-                    }
+                batch.put(path, FileStamp.of(attributes));
 
-                } catch (Exception e) {
-                    Output.print("- (Failed to fetch the ID)");
+                if (batch.size() >= LOOKUP_BATCH_SIZE) {
+                    this.printFileIds(batch);
+                    printed[0] += batch.size();
+                    progress.report(printed[0], - 1);
+                    batch.clear();
                 }
+            });
+
+            this.printFileIds(batch);
+            progress.report(printed[0] + batch.size(), printed[0] + batch.size());
 
-                Output.newLine();
+            // drop elements which have been removed in the meantime
+            try (ITraceSpan span = Tracing.begin("file-ids", "save")) {
+                span.setCount(this.fileIdIndex.prune(generation));
+                this.fileIdIndex.save();
             }
 
-        } catch (InputOutputException e) {
+        } catch (IOException e) {
             Output.println("Failed to fetch file ids: " + e.getMessage() + ". Please try again");
         }
     }
 
+    /**
+     * Resolves the file ids of all given paths and prints them.
+     * Only paths which changed since they have been indexed are looked up in the DHT.
+     *
+     * @param paths The paths relative to the synced folder mapped to their stamp
+     *
+     * @throws InterruptedException If interrupted while waiting for the lookups
+     */
+    protected void printFileIds(Map<String, FileStamp> paths)
+            throws InterruptedException {
+        List<FileIdEntry> entries;
+        try (ITraceSpan span = Tracing.begin("file-ids", "resolve")) {
+            span.setCount(paths.size());
+            entries = this.fileIdIndex.resolve(paths);
+        }
+
+        for (FileIdEntry entry : entries) {
+            // printed as a single line, since other tasks might print concurrently
+            if (entry.isFailed()) {
+                Output.println(entry.getPath() + "\t- (Failed to fetch the ID)");
+            } else if (null != entry.getFileId()) {
+                Output.println(entry.getPath() + "\t" + entry.getFileId());
+            } else {
+                Output.println(entry.getPath() + "\t-");
+            }
+        }
+    }
+
     @Override
     public String getName() {
         return "File Ids";
@@ -1,7 +1,8 @@
 package org.rmatil.sync.client.console.item;
 
-import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.IAsyncItem;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.console.task.IConsoleOperation;
 import org.rmatil.sync.network.api.INodeManager;
 import org.rmatil.sync.network.api.IUser;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
@@ -9,7 +10,7 @@ import org.rmatil.sync.persistence.exceptions.InputOutputException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 
-public class KeyItem implements IItem {
+public class KeyItem implements IAsyncItem {
 
     protected INodeManager nodeManager;
     protected IUser        user;
@@ -20,11 +21,24 @@ public class KeyItem implements IItem {
     }
 
     @Override
-    public void execute() {
+    public IConsoleOperation prepare() {
+        return progress -> this.printKeys();
+    }
+
+    /**
+     * @throws InterruptedException If the operation has been cancelled
+     */
+    protected void printKeys()
+            throws InterruptedException {
         try {
             PublicKey publicKey = this.nodeManager.getPublicKey(this.user.getUserName());
             PrivateKey privateKey = this.nodeManager.getPrivateKey(this.user);
 
+            // the lookup might not have noticed that the operation has been cancelled
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
             Output.println("Public Key");
 
             if (null != publicKey) {
@@ -40,6 +54,10 @@ public class KeyItem implements IItem {
             }
 
         } catch (InputOutputException e) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
             Output.println("Failed to fetch public/private key: " + e.getMessage() + ". Please try again");
         }
     }
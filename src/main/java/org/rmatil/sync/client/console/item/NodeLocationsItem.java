@@ -1,32 +1,56 @@
 package org.rmatil.sync.client.console.item;
 
-import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.IAsyncItem;
+import org.rmatil.sync.client.cache.NodeLocationCache;
 import org.rmatil.sync.client.console.io.Output;
-import org.rmatil.sync.network.api.INodeManager;
+import org.rmatil.sync.client.console.task.IConsoleOperation;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
 import org.rmatil.sync.network.core.model.NodeLocation;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
 
 import java.util.List;
 
-public class NodeLocationsItem implements IItem {
+public class NodeLocationsItem implements IAsyncItem {
 
-    protected INodeManager nodeManager;
-    protected String       username;
+    protected NodeLocationCache nodeLocationCache;
+    protected String            username;
 
-    public NodeLocationsItem(INodeManager nodeManager, String username) {
-        this.nodeManager = nodeManager;
+    public NodeLocationsItem(NodeLocationCache nodeLocationCache, String username) {
+        this.nodeLocationCache = nodeLocationCache;
         this.username = username;
     }
 
     @Override
-    public void execute() {
+    public IConsoleOperation prepare() {
+        return progress -> this.printNodeLocations();
+    }
+
+    /**
+     * @throws InterruptedException If the operation has been cancelled
+     */
+    protected void printNodeLocations()
+            throws InterruptedException {
         try {
-            List<NodeLocation> nodeLocations = this.nodeManager.getNodeLocations(this.username);
+            List<NodeLocation> nodeLocations;
+            try (ITraceSpan span = Tracing.begin("node-locations", "get", this.username)) {
+                nodeLocations = this.nodeLocationCache.getNodeLocations(this.username);
+                span.setCount(nodeLocations.size());
+            }
 
-            Output.println("Current online locations:");
+            // the lookup might not have noticed that the operation has been cancelled
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            Output.println("Current online locations (as of " + this.nodeLocationCache.getAge(this.username) + " ms ago):");
             Output.printNodeLocations(nodeLocations);
 
         } catch (InputOutputException e) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
             Output.println("Failed to fetch node locations: " + e.getMessage() + ". Please try again");
         }
     }
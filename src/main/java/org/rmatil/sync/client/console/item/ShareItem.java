@@ -1,40 +1,67 @@
 package org.rmatil.sync.client.console.item;
 
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.console.IAsyncItem;
 import org.rmatil.sync.client.console.IItem;
 import org.rmatil.sync.client.console.io.Input;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.console.task.IConsoleOperation;
+import org.rmatil.sync.client.console.task.IProgress;
+import org.rmatil.sync.client.sharing.SharingExecutor;
+import org.rmatil.sync.client.sharing.SharingFailure;
+import org.rmatil.sync.client.sharing.SharingResult;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.client.walker.IPathVisitor;
+import org.rmatil.sync.client.walker.StorageTreeWalker;
 import org.rmatil.sync.core.Sync;
-import org.rmatil.sync.core.exception.SharingFailedException;
 import org.rmatil.sync.core.syncer.sharing.event.ShareEvent;
-import org.rmatil.sync.persistence.api.IPathElement;
 import org.rmatil.sync.persistence.api.StorageType;
 import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
 import org.rmatil.sync.persistence.core.tree.TreePathElement;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
 import org.rmatil.sync.version.api.AccessType;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class ShareItem implements IItem {
+public class ShareItem implements IAsyncItem {
 
     protected Sync sync;
 
+    protected UserDirectory userDirectory;
+
+    protected int concurrency;
+
     protected List<IItem> items;
 
-    public ShareItem(Sync sync) {
+    public ShareItem(Sync sync, UserDirectory userDirectory) {
+        this(sync, userDirectory, Config.DEFAULT.getSharingConcurrency());
+    }
+
+    /**
+     * @param sync          The sync instance
+     * @param userDirectory The directory to check whether the user to share with is registered
+     * @param concurrency   The maximum number of share events processed concurrently
+     */
+    public ShareItem(Sync sync, UserDirectory userDirectory, int concurrency) {
         this.sync = sync;
+        this.userDirectory = userDirectory;
+        this.concurrency = concurrency;
         this.items = new ArrayList<>();
         this.items.add(new PermissionReadItem());
         this.items.add(new PermissionWriteItem());
     }
 
     @Override
-    public void execute() {
-        boolean shared = false;
-        while (! shared) {
+    public IConsoleOperation prepare() {
+        while (true) {
 
             Output.println("Type the relative path within the synced folder to the file which should be shared");
             String inputPath = Input.getInput();
@@ -46,7 +73,7 @@ public class ShareItem implements IItem {
 
             TreePathElement elementToShare = new TreePathElement(pathToShare.toString());
 
-            try {
+            try (ITraceSpan ignored = Tracing.begin("share", "check-path", inputPath)) {
                 if (! storageAdapter.exists(StorageType.DIRECTORY, elementToShare) &&
                         ! storageAdapter.exists(StorageType.FILE, elementToShare)) {
 
@@ -61,15 +88,8 @@ public class ShareItem implements IItem {
             Output.println("Type the name of the user to share with");
             String username = Input.getInput();
 
-            try {
-                if (! this.sync.getNode().getUserManager().isRegistered(username)) {
-                    Output.println("No user found for username " + username + ". Sharing failed");
-                    return;
-                }
-            } catch (InputOutputException e) {
-                Output.println("Could not check whether user with username " + username + " exists. Sharing failed");
-                return;
-            }
+            // checked while the permissions are selected
+            this.userDirectory.prefetch(Collections.singletonList(username));
 
             AccessType accessType = AccessType.READ;
             boolean valid = false;
@@ -94,47 +114,106 @@ public class ShareItem implements IItem {
                 }
             }
 
+            try (ITraceSpan ignored = Tracing.begin("share", "is-registered", username)) {
+                if (! this.userDirectory.isRegistered(username)) {
+                    Output.println("No user found for username " + username + ". Sharing failed");
+                    return null;
+                }
+            } catch (InputOutputException e) {
+                Output.println("Could not check whether user with username " + username + " exists. Sharing failed");
+                return null;
+            }
+
             // now get all children
             Output.println("Sharing " + inputPath + " and all its contents with user " + username + " (Access: " + accessType + ")");
 
-            ShareEvent shareEvent = new ShareEvent(
-                    Paths.get(inputPath),
-                    accessType,
-                    username
-            );
-
-            List<ShareEvent> pathsToShare = new ArrayList<>();
-            pathsToShare.add(shareEvent);
-
+            boolean isDir;
             try {
-                if (storageAdapter.isDir(elementToShare)) {
-                    List<TreePathElement> pathElements = storageAdapter.getDirectoryContents(elementToShare);
-
-                    for (IPathElement child : pathElements) {
-                        pathsToShare.add(
-                                new ShareEvent(
-                                        Paths.get(child.getPath()),
-                                        accessType,
-                                        username
-                                )
-                        );
-                    }
-                }
+                isDir = storageAdapter.isDir(elementToShare);
             } catch (InputOutputException e) {
                 Output.println("Failed to share also children: " + e.getMessage() + " Try again");
                 continue;
             }
 
-            for (ShareEvent evenToShare : pathsToShare) {
-                Output.println("Sharing " + evenToShare.getRelativePath());
-                try {
-                    this.sync.getSharingSyncer().sync(evenToShare);
-                } catch (SharingFailedException e) {
-                    Output.println("Failed to share item " + evenToShare.getRelativePath() + ": " + e.getMessage());
+            // the input has been read, the rest may run in the background
+            final AccessType selectedAccessType = accessType;
+            return progress -> this.share(inputPath, username, selectedAccessType, isDir, progress);
+        }
+    }
+
+    /**
+     * Shares the given element and all its children with the given user
+     *
+     * @param inputPath  The path of the element relative to the synced folder
+     * @param username   The user to share with
+     * @param accessType The access type to grant
+     * @param isDir      Whether the element is a directory
+     * @param progress   Receives the number of processed elements
+     *
+     * @throws InterruptedException If the operation has been cancelled
+     */
+    protected void share(String inputPath, String username, AccessType accessType, boolean isDir, IProgress progress)
+            throws InterruptedException {
+        ITreeStorageAdapter storageAdapter = this.sync.getStorageAdapter();
+
+        ShareEvent shareEvent = new ShareEvent(
+                Paths.get(inputPath),
+                accessType,
+                username
+        );
+
+        SharingExecutor sharingExecutor = new SharingExecutor(this.sync, this.concurrency, progress::report);
+
+        try {
+            // the element itself has to be processed before its children
+            try (ITraceSpan ignored = Tracing.begin("share", "root", inputPath)) {
+                sharingExecutor.submit(shareEvent);
+                sharingExecutor.drain();
+            }
+
+            if (isDir) {
+                // children are handed over to the workers while the tree is still being walked
+                final AccessType childAccessType = accessType;
+                // the children are synced while walking, so this phase includes waiting for the workers
+                try (ITraceSpan ignored = Tracing.begin("share", "scan", inputPath)) {
+                    StorageTreeWalker walker = new StorageTreeWalker(storageAdapter);
+                    walker.walk(Paths.get(inputPath), new IPathVisitor() {
+                        @Override
+                        public void visit(Path relativePath, BasicFileAttributes attributes)
+                                throws InterruptedException {
+                            sharingExecutor.submit(new ShareEvent(relativePath, childAccessType, username));
+                        }
+
+                        @Override
+                        public void visitFailed(Path relativePath, IOException e) {
+                            Output.println("Failed to read " + relativePath + ": " + e.getMessage() + ". Skipping...");
+                        }
+                    });
                 }
             }
 
-            shared = true;
+            SharingResult result;
+            try (ITraceSpan awaitSpan = Tracing.begin("share", "await", inputPath)) {
+                result = sharingExecutor.await();
+                awaitSpan.setCount(result.getSubmitted());
+            }
+
+            Output.println("Shared " + result.getSucceeded() + " of " + result.getSubmitted() + " elements in " + result.getDurationMillis() + " ms");
+            if (result.hasFailures()) {
+                // the user might have been removed in the meantime
+                this.userDirectory.invalidate(username);
+            }
+
+            for (SharingFailure failure : result.getFailures()) {
+                Output.println("Failed to share item " + failure.getRelativePath() + ": " + failure.getMessage());
+            }
+        } catch (IOException e) {
+            sharingExecutor.cancel();
+            Output.println("Failed to share also children: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // reported by the task manager or the console
+            sharingExecutor.cancel();
+            throw e;
         }
     }
 
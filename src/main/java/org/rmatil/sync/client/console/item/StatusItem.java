@@ -0,0 +1,69 @@
+package org.rmatil.sync.client.console.item;
+
+import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.io.Input;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.status.StatusCollector;
+import org.rmatil.sync.client.status.StatusView;
+
+public class StatusItem implements IItem {
+
+    /**
+     * The interval in milliseconds in which the status is redrawn
+     */
+    public static final long REFRESH_INTERVAL = 1000L;
+
+    /**
+     * The interval in milliseconds in which is checked whether the user wants to return
+     */
+    protected static final long INPUT_POLL_INTERVAL = 100L;
+
+    protected StatusCollector statusCollector;
+
+    protected String rootPath;
+
+    public StatusItem(StatusCollector statusCollector, String rootPath) {
+        this.statusCollector = statusCollector;
+        this.rootPath = rootPath;
+    }
+
+    @Override
+    public void execute() {
+        // the line of the selection has not been read entirely yet
+        Input.getLine();
+
+        StatusView statusView = new StatusView("Status of " + this.rootPath + " (press Enter to return)");
+
+        // output of background tasks would shift the redrawn lines
+        Output.beginInPlace();
+        try {
+            while (true) {
+                statusView.update(this.statusCollector.collect());
+
+                for (long waited = 0; waited < REFRESH_INTERVAL; waited += INPUT_POLL_INTERVAL) {
+                    if (Input.hasPendingInput()) {
+                        Input.getLine();
+                        return;
+                    }
+
+                    Thread.sleep(INPUT_POLL_INTERVAL);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Output.println("Interrupted");
+        } finally {
+            Output.endInPlace();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Status";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Show the throughput and latency of this node, refreshed every second";
+    }
+}
@@ -0,0 +1,65 @@
+package org.rmatil.sync.client.console.item;
+
+import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.io.Input;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.context.ClientContext;
+
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Selects the sync root the console operates on,
+ * if the process hosts several of them
+ */
+public class SwitchRootItem implements IItem {
+
+    protected List<ClientContext> clientContexts;
+
+    protected IntConsumer rootSelector;
+
+    /**
+     * @param clientContexts The contexts of all hosted roots
+     * @param rootSelector   Invoked with the index of the selected root
+     */
+    public SwitchRootItem(List<ClientContext> clientContexts, IntConsumer rootSelector) {
+        this.clientContexts = clientContexts;
+        this.rootSelector = rootSelector;
+    }
+
+    @Override
+    public void execute() {
+        for (int i = 0; i < this.clientContexts.size(); i++) {
+            Output.println("[" + i + "]\t" + this.clientContexts.get(i).getRootPath());
+        }
+
+        Output.println("Select the root to switch to");
+
+        int selection;
+        try {
+            selection = Input.getNextInt();
+        } catch (InputMismatchException e) {
+            Output.println("Invalid input. Keeping the current root");
+            return;
+        }
+
+        if (selection < 0 || selection >= this.clientContexts.size()) {
+            Output.println("Invalid selection. Keeping the current root");
+            return;
+        }
+
+        this.rootSelector.accept(selection);
+        Output.println("Switched to root " + this.clientContexts.get(selection).getRootPath());
+    }
+
+    @Override
+    public String getName() {
+        return "Switch root";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Select the synced folder to operate on";
+    }
+}
@@ -0,0 +1,88 @@
+package org.rmatil.sync.client.console.item;
+
+import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.io.Input;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.console.task.ConsoleTask;
+import org.rmatil.sync.client.console.task.ConsoleTaskManager;
+
+import java.util.InputMismatchException;
+import java.util.List;
+
+public class TasksItem implements IItem {
+
+    protected ConsoleTaskManager taskManager;
+
+    public TasksItem(ConsoleTaskManager taskManager) {
+        this.taskManager = taskManager;
+    }
+
+    @Override
+    public void execute() {
+        List<ConsoleTask> tasks = this.taskManager.getTasks();
+
+        if (tasks.isEmpty()) {
+            Output.println("No tasks have been started");
+            return;
+        }
+
+        boolean running = false;
+        for (ConsoleTask task : tasks) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("#").append(task.getId()).append("\t").append(task.getName()).append("\t").append(task.getState());
+            sb.append("\t").append(task.getDurationMillis()).append(" ms");
+
+            if (task.getCompleted() > 0 || task.getTotal() > 0) {
+                sb.append("\t").append(task.getCompleted());
+                if (task.getTotal() >= 0) {
+                    sb.append(" of ").append(task.getTotal());
+                }
+            }
+
+            if (null != task.getFailure()) {
+                sb.append("\t").append(task.getFailure());
+            }
+
+            Output.println(sb.toString());
+            running |= task.isRunning();
+        }
+
+        this.taskManager.removeFinished();
+
+        if (! running) {
+            return;
+        }
+
+        Output.println("Type the id of a task to cancel it or 0 to return");
+
+        int id;
+        try {
+            id = Input.getNextInt();
+        } catch (InputMismatchException e) {
+            Input.getLine();
+            Output.println("Invalid input");
+            return;
+        }
+
+        if (0 == id) {
+            return;
+        }
+
+        ConsoleTask task = this.taskManager.getTask(id);
+        if (null != task && task.cancel()) {
+            Output.println("Cancelled task #" + id);
+        } else {
+            Output.println("No running task with id " + id);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Tasks";
+    }
+
+    @Override
+    public String getDescription() {
+        return "List the operations running in the background and cancel them";
+    }
+}
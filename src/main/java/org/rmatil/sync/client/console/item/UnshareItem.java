@@ -1,40 +1,72 @@
 package org.rmatil.sync.client.console.item;
 
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.console.IAsyncItem;
 import org.rmatil.sync.client.console.IItem;
 import org.rmatil.sync.client.console.io.Input;
 import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.console.task.IConsoleOperation;
+import org.rmatil.sync.client.console.task.IProgress;
+import org.rmatil.sync.client.sharing.SharingBatch;
+import org.rmatil.sync.client.sharing.SharingExecutor;
+import org.rmatil.sync.client.sharing.SharingFailure;
+import org.rmatil.sync.client.sharing.SharingResult;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.client.walker.IPathVisitor;
+import org.rmatil.sync.client.walker.StorageTreeWalker;
 import org.rmatil.sync.core.Sync;
-import org.rmatil.sync.core.exception.SharingFailedException;
 import org.rmatil.sync.core.syncer.sharing.event.UnshareEvent;
-import org.rmatil.sync.persistence.api.IPathElement;
 import org.rmatil.sync.persistence.api.StorageType;
 import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
 import org.rmatil.sync.persistence.core.tree.TreePathElement;
 import org.rmatil.sync.persistence.exceptions.InputOutputException;
 import org.rmatil.sync.version.api.AccessType;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class UnshareItem implements IItem {
+public class UnshareItem implements IAsyncItem {
 
     protected Sync sync;
 
+    protected UserDirectory userDirectory;
+
+    protected int concurrency;
+
+    protected int batchSize;
+
     protected List<IItem> items;
 
-    public UnshareItem(Sync sync) {
+    public UnshareItem(Sync sync, UserDirectory userDirectory) {
+        this(sync, userDirectory, Config.DEFAULT.getSharingConcurrency(), Config.DEFAULT.getSharingBatchSize());
+    }
+
+    /**
+     * @param sync          The sync instance
+     * @param userDirectory The directory to check whether the user to unshare with is registered
+     * @param concurrency   The maximum number of subtrees unshared concurrently
+     * @param batchSize     The maximum number of unshare events of a subtree handed over to a worker at once
+     */
+    public UnshareItem(Sync sync, UserDirectory userDirectory, int concurrency, int batchSize) {
         this.sync = sync;
+        this.userDirectory = userDirectory;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
         this.items = new ArrayList<>();
         this.items.add(new PermissionReadItem());
         this.items.add(new PermissionWriteItem());
     }
 
     @Override
-    public void execute() {
-        boolean unshared = false;
-        while (! unshared) {
+    public IConsoleOperation prepare() {
+        while (true) {
 
             Output.println("Type the relative path within the synced folder to the file which should be unshared");
             String inputPath = Input.getInput();
@@ -46,7 +78,7 @@ public class UnshareItem implements IItem {
 
             TreePathElement elementToUnshare = new TreePathElement(pathToUnshare.toString());
 
-            try {
+            try (ITraceSpan ignored = Tracing.begin("unshare", "check-path", inputPath)) {
                 if (! storageAdapter.exists(StorageType.DIRECTORY, elementToUnshare) &&
                         ! storageAdapter.exists(StorageType.FILE, elementToUnshare)) {
 
@@ -61,15 +93,8 @@ public class UnshareItem implements IItem {
             Output.println("Type the name of the user to unshare with");
             String username = Input.getInput();
 
-            try {
-                if (! this.sync.getNode().getUserManager().isRegistered(username)) {
-                    Output.println("No user found for username " + username + ". Unsharing failed");
-                    return;
-                }
-            } catch (InputOutputException e) {
-                Output.println("Could not check whether user with username " + username + " exists. Unsharing failed");
-                return;
-            }
+            // checked while the permissions are selected
+            this.userDirectory.prefetch(Collections.singletonList(username));
 
             AccessType accessType = AccessType.READ;
             boolean valid = false;
@@ -94,47 +119,116 @@ public class UnshareItem implements IItem {
                 }
             }
 
+            try (ITraceSpan ignored = Tracing.begin("unshare", "is-registered", username)) {
+                if (! this.userDirectory.isRegistered(username)) {
+                    Output.println("No user found for username " + username + ". Unsharing failed");
+                    return null;
+                }
+            } catch (InputOutputException e) {
+                Output.println("Could not check whether user with username " + username + " exists. Unsharing failed");
+                return null;
+            }
+
             // now get all children
             Output.println("Removing permissions of " + pathToUnshare + " and all its contents from user " + username + " (Access: " + accessType + ")");
 
-            UnshareEvent unshareEvent = new UnshareEvent(
-                    Paths.get(inputPath),
-                    accessType,
-                    username
-            );
-
-            List<UnshareEvent> pathsToShare = new ArrayList<>();
-            pathsToShare.add(unshareEvent);
-
+            boolean isDir;
             try {
-                if (storageAdapter.isDir(elementToUnshare)) {
-                    List<TreePathElement> pathElements = storageAdapter.getDirectoryContents(elementToUnshare);
-
-                    for (IPathElement child : pathElements) {
-                        pathsToShare.add(
-                                new UnshareEvent(
-                                        Paths.get(child.getPath()),
-                                        accessType,
-                                        username
-                                )
-                        );
-                    }
-                }
+                isDir = storageAdapter.isDir(elementToUnshare);
             } catch (InputOutputException e) {
                 Output.println("Failed to unshare also children: " + e.getMessage() + " Try again");
                 continue;
             }
 
-            for (UnshareEvent evenToUnshare : pathsToShare) {
-                Output.println("Unsharing " + evenToUnshare.getRelativePath());
-                try {
-                    this.sync.getSharingSyncer().sync(evenToUnshare);
-                } catch (SharingFailedException e) {
-                    Output.println("Failed to unshare item " + evenToUnshare.getRelativePath() + ": " + e.getMessage());
+            // the input has been read, the rest may run in the background
+            final AccessType selectedAccessType = accessType;
+            return progress -> this.unshare(inputPath, username, selectedAccessType, isDir, progress);
+        }
+    }
+
+    /**
+     * Unshares the given element and all its children with the given user
+     *
+     * @param inputPath  The path of the element relative to the synced folder
+     * @param username   The user to unshare with
+     * @param accessType The access type to remove
+     * @param isDir      Whether the element is a directory
+     * @param progress   Receives the number of processed elements
+     *
+     * @throws InterruptedException If the operation has been cancelled
+     */
+    protected void unshare(String inputPath, String username, AccessType accessType, boolean isDir, IProgress progress)
+            throws InterruptedException {
+        ITreeStorageAdapter storageAdapter = this.sync.getStorageAdapter();
+
+        UnshareEvent unshareEvent = new UnshareEvent(
+                Paths.get(inputPath),
+                accessType,
+                username
+        );
+
+        SharingExecutor sharingExecutor = new SharingExecutor(this.sync, this.concurrency, progress::report);
+
+        try {
+            // the element itself has to be processed before its children
+            try (ITraceSpan ignored = Tracing.begin("unshare", "root", inputPath)) {
+                sharingExecutor.submit(unshareEvent);
+                sharingExecutor.drain();
+            }
+
+            if (isDir) {
+                // children are grouped by their subtree and handed over in
+                // batches to the workers while the tree is still being walked
+                final AccessType childAccessType = accessType;
+                final Path treeRoot = Paths.get(inputPath);
+                SharingBatch sharingBatch = new SharingBatch(
+                        sharingExecutor,
+                        this.batchSize,
+                        this.batchSize * this.concurrency
+                );
+
+                // the children are synced while walking, so this phase includes waiting for the workers
+                try (ITraceSpan ignored = Tracing.begin("unshare", "scan", inputPath)) {
+                    StorageTreeWalker walker = new StorageTreeWalker(storageAdapter);
+                    walker.walk(treeRoot, new IPathVisitor() {
+                        @Override
+                        public void visit(Path relativePath, BasicFileAttributes attributes)
+                                throws InterruptedException {
+                            sharingBatch.add(treeRoot, new UnshareEvent(relativePath, childAccessType, username));
+                        }
+
+                        @Override
+                        public void visitFailed(Path relativePath, IOException e) {
+                            Output.println("Failed to read " + relativePath + ": " + e.getMessage() + ". Skipping...");
+                        }
+                    });
+
+                    sharingBatch.flush();
                 }
             }
 
-            unshared = true;
+            SharingResult result;
+            try (ITraceSpan awaitSpan = Tracing.begin("unshare", "await", inputPath)) {
+                result = sharingExecutor.await();
+                awaitSpan.setCount(result.getSubmitted());
+            }
+
+            Output.println("Unshared " + result.getSucceeded() + " of " + result.getSubmitted() + " elements in " + result.getDurationMillis() + " ms");
+            if (result.hasFailures()) {
+                // the user might have been removed in the meantime
+                this.userDirectory.invalidate(username);
+            }
+
+            for (SharingFailure failure : result.getFailures()) {
+                Output.println("Failed to unshare item " + failure.getRelativePath() + ": " + failure.getMessage());
+            }
+        } catch (IOException e) {
+            sharingExecutor.cancel();
+            Output.println("Failed to unshare also children: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // reported by the task manager or the console
+            sharingExecutor.cancel();
+            throw e;
         }
     }
 
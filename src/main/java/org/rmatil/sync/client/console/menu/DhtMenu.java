@@ -9,6 +9,8 @@ import org.rmatil.sync.client.console.item.ExitItem;
 import org.rmatil.sync.client.console.item.FileIdItem;
 import org.rmatil.sync.client.console.item.KeyItem;
 import org.rmatil.sync.client.console.item.NodeLocationsItem;
+import org.rmatil.sync.client.console.task.ConsoleTaskManager;
+import org.rmatil.sync.client.context.ClientContext;
 import org.rmatil.sync.core.Sync;
 
 import java.util.ArrayList;
@@ -16,18 +18,28 @@ import java.util.List;
 
 public class DhtMenu implements IMenu {
 
+    protected ClientContext clientContext;
+
     protected Sync sync;
 
+    protected ConsoleTaskManager taskManager;
+
     protected ItemStatusHolder itemStatus;
 
     protected List<IItem> menuItems;
 
-    public DhtMenu(Sync sync) {
-        this.sync = sync;
+    /**
+     * @param clientContext The context of the root to operate on
+     * @param taskManager   The manager running long operations in the background
+     */
+    public DhtMenu(ClientContext clientContext, ConsoleTaskManager taskManager) {
+        this.clientContext = clientContext;
+        this.sync = clientContext.getSync();
+        this.taskManager = taskManager;
         this.itemStatus = new ItemStatusHolder(ItemStatus.RUNNING);
         this.menuItems = new ArrayList<>();
-        this.menuItems.add(new NodeLocationsItem(this.sync.getNode().getNodeManager(), this.sync.getNode().getUser().getUserName()));
-        this.menuItems.add(new FileIdItem(this.sync.getStorageAdapter(), this.sync.getNode().getIdentifierManager()));
+        this.menuItems.add(new NodeLocationsItem(this.clientContext.getNodeLocationCache(), this.sync.getNode().getUser().getUserName()));
+        this.menuItems.add(new FileIdItem(this.sync.getStorageAdapter(), this.clientContext.getFileIdIndex()));
         this.menuItems.add(new KeyItem(this.sync.getNode().getNodeManager(), this.sync.getNode().getUser()));
         this.menuItems.add(new ExitItem(this.itemStatus));
     }
@@ -43,7 +55,7 @@ public class DhtMenu implements IMenu {
 
             // invoke correct item
             if (selection >= 0 && selection <= this.menuItems.size() - 1) {
-                this.menuItems.get(selection).execute();
+                this.taskManager.execute(this.menuItems.get(selection));
             } else {
                 Output.println("Invalid selection. Try again ");
             }
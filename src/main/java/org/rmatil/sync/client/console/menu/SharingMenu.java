@@ -8,6 +8,8 @@ import org.rmatil.sync.client.console.io.Output;
 import org.rmatil.sync.client.console.item.ExitItem;
 import org.rmatil.sync.client.console.item.ShareItem;
 import org.rmatil.sync.client.console.item.UnshareItem;
+import org.rmatil.sync.client.console.task.ConsoleTaskManager;
+import org.rmatil.sync.client.context.ClientContext;
 import org.rmatil.sync.core.Sync;
 
 import java.util.ArrayList;
@@ -15,18 +17,28 @@ import java.util.List;
 
 public class SharingMenu implements IMenu {
 
+    protected ClientContext clientContext;
+
     protected Sync sync;
 
+    protected ConsoleTaskManager taskManager;
+
     protected ItemStatusHolder itemStatus;
 
     protected List<IItem> menuItems;
 
-    public SharingMenu(Sync sync) {
-        this.sync = sync;
+    /**
+     * @param clientContext The context of the root to operate on
+     * @param taskManager   The manager running long operations in the background
+     */
+    public SharingMenu(ClientContext clientContext, ConsoleTaskManager taskManager) {
+        this.clientContext = clientContext;
+        this.sync = clientContext.getSync();
+        this.taskManager = taskManager;
         this.itemStatus = new ItemStatusHolder(ItemStatus.RUNNING);
         this.menuItems = new ArrayList<>();
-        this.menuItems.add(new ShareItem(this.sync));
-        this.menuItems.add(new UnshareItem(this.sync));
+        this.menuItems.add(new ShareItem(this.sync, this.clientContext.getUserDirectory()));
+        this.menuItems.add(new UnshareItem(this.sync, this.clientContext.getUserDirectory()));
         this.menuItems.add(new ExitItem(this.itemStatus));
     }
 
@@ -41,7 +53,7 @@ public class SharingMenu implements IMenu {
 
             // invoke correct item
             if (selection >= 0 && selection <= this.menuItems.size() - 1) {
-                this.menuItems.get(selection).execute();
+                this.taskManager.execute(this.menuItems.get(selection));
             } else {
                 Output.println("Invalid selection. Try again");
             }
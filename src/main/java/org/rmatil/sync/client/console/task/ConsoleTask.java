@@ -0,0 +1,124 @@
+package org.rmatil.sync.client.console.task;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An operation run in the background by the {@link ConsoleTaskManager}
+ */
+public class ConsoleTask implements IProgress {
+
+    protected int id;
+
+    protected String name;
+
+    protected AtomicReference<TaskState> state;
+
+    protected volatile long completed;
+
+    protected volatile long total;
+
+    protected long startTime;
+
+    protected volatile long endTime;
+
+    protected volatile String failure;
+
+    protected volatile Future<?> future;
+
+    /**
+     * @param id   The id by which the task is referred to on the console
+     * @param name The name of the task
+     */
+    public ConsoleTask(int id, String name) {
+        this.id = id;
+        this.name = name;
+        this.state = new AtomicReference<>(TaskState.RUNNING);
+        this.completed = 0;
+        this.total = - 1;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public void report(long completed, long total) {
+        this.completed = completed;
+        this.total = total;
+    }
+
+    /**
+     * Cancels the task by interrupting the thread running it
+     *
+     * @return True, if the task was running
+     */
+    public boolean cancel() {
+        if (! this.finish(TaskState.CANCELLED, null)) {
+            return false;
+        }
+
+        if (null != this.future) {
+            this.future.cancel(true);
+        }
+
+        return true;
+    }
+
+    /**
+     * Marks the task as finished, unless it has finished already
+     *
+     * @param state   The final state
+     * @param failure The reason of the failure or null
+     *
+     * @return True, if the task has been running until now
+     */
+    protected boolean finish(TaskState state, String failure) {
+        if (! this.state.compareAndSet(TaskState.RUNNING, state)) {
+            return false;
+        }
+
+        this.failure = failure;
+        this.endTime = System.currentTimeMillis();
+
+        return true;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TaskState getState() {
+        return this.state.get();
+    }
+
+    public boolean isRunning() {
+        return TaskState.RUNNING == this.state.get();
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return The total number of steps or -1, if not known
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The time the task has been running, or has run until it finished, in milliseconds
+     */
+    public long getDurationMillis() {
+        return (this.isRunning() ? System.currentTimeMillis() : this.endTime) - this.startTime;
+    }
+
+    /**
+     * @return The reason of the failure or null, if the task did not fail
+     */
+    public String getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,159 @@
+package org.rmatil.sync.client.console.task;
+
+import org.rmatil.sync.client.console.IAsyncItem;
+import org.rmatil.sync.client.console.IItem;
+import org.rmatil.sync.client.console.io.Output;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the operations of {@link IAsyncItem}s in the background, so that the
+ * console stays responsive while they wait for the network.
+ * <p>
+ * All operations share a single executor. On runtimes supporting virtual threads
+ * (Java 21 or later), each operation runs on its own virtual thread. Otherwise,
+ * a pool of daemon threads is used, which grows with the number of running
+ * operations. Once an operation finishes, a line reporting its outcome is printed.
+ * </p>
+ */
+public class ConsoleTaskManager {
+
+    protected ExecutorService executorService;
+
+    protected Map<Integer, ConsoleTask> tasks;
+
+    protected AtomicInteger idCounter;
+
+    public ConsoleTaskManager() {
+        this.executorService = createExecutorService();
+        this.tasks = new ConcurrentSkipListMap<>();
+        this.idCounter = new AtomicInteger(0);
+    }
+
+    /**
+     * Executes the given item. The operation of an {@link IAsyncItem} is prepared on
+     * the calling thread and run in the background, all other items are run on the calling thread
+     *
+     * @param item The item to execute
+     */
+    public void execute(IItem item) {
+        if (! (item instanceof IAsyncItem)) {
+            item.execute();
+            return;
+        }
+
+        IConsoleOperation operation = ((IAsyncItem) item).prepare();
+
+        if (null != operation) {
+            ConsoleTask task = this.submit(item.getName(), operation);
+            Output.println("Started task #" + task.getId() + " (" + task.getName() + "). Select Tasks to follow or cancel it");
+        }
+    }
+
+    /**
+     * Runs the given operation in the background
+     *
+     * @param name      The name of the operation
+     * @param operation The operation to run
+     *
+     * @return The task running the operation
+     */
+    public ConsoleTask submit(String name, IConsoleOperation operation) {
+        ConsoleTask task = new ConsoleTask(this.idCounter.incrementAndGet(), name);
+
+        // assign the future before the task can be cancelled, so that
+        // a cancel arriving before the operation has started still stops it
+        FutureTask<Void> future = new FutureTask<>(() -> this.run(task, operation), null);
+        task.future = future;
+        this.tasks.put(task.getId(), task);
+
+        try {
+            this.executorService.execute(future);
+        } catch (RejectedExecutionException e) {
+            task.finish(TaskState.FAILED, "The console is shutting down");
+        }
+
+        return task;
+    }
+
+    /**
+     * @return All tasks which are running or have finished since they were last removed, ordered by their id
+     */
+    public List<ConsoleTask> getTasks() {
+        return new ArrayList<>(this.tasks.values());
+    }
+
+    /**
+     * @param id The id of the task
+     *
+     * @return The task or null, if there is no task with the given id
+     */
+    public ConsoleTask getTask(int id) {
+        return this.tasks.get(id);
+    }
+
+    /**
+     * Removes all tasks which have finished
+     */
+    public void removeFinished() {
+        this.tasks.values().removeIf(task -> ! task.isRunning());
+    }
+
+    /**
+     * Cancels all running tasks and stops the executor
+     *
+     * @return The number of cancelled tasks
+     */
+    public int shutdown() {
+        int cancelled = 0;
+        for (ConsoleTask task : this.tasks.values()) {
+            if (task.cancel()) {
+                cancelled++;
+            }
+        }
+
+        this.executorService.shutdownNow();
+
+        return cancelled;
+    }
+
+    protected void run(ConsoleTask task, IConsoleOperation operation) {
+        try {
+            operation.run(task);
+
+            if (task.finish(TaskState.COMPLETED, null)) {
+                Output.println("Task #" + task.getId() + " (" + task.getName() + ") completed in " + task.getDurationMillis() + " ms");
+            }
+        } catch (InterruptedException e) {
+            task.finish(TaskState.CANCELLED, null);
+        } catch (Exception e) {
+            String message = (null != e.getMessage()) ? e.getMessage() : e.getClass().getSimpleName();
+
+            if (task.finish(TaskState.FAILED, message)) {
+                Output.println("Task #" + task.getId() + " (" + task.getName() + ") failed: " + message);
+            }
+        }
+    }
+
+    protected static ExecutorService createExecutorService() {
+        try {
+            // available from Java 21 on
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            final AtomicInteger threadCounter = new AtomicInteger(0);
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "console-task-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.rmatil.sync.client.console.task;
+
+/**
+ * A long running operation of the console (see {@link org.rmatil.sync.client.console.IAsyncItem})
+ */
+public interface IConsoleOperation {
+
+    /**
+     * Runs the operation. Cancelling the operation interrupts the running thread
+     *
+     * @param progress The receiver of the progress of the operation
+     *
+     * @throws InterruptedException If the operation has been cancelled
+     * @throws Exception            If the operation failed
+     */
+    void run(IProgress progress)
+            throws Exception;
+}
@@ -0,0 +1,19 @@
+package org.rmatil.sync.client.console.task;
+
+/**
+ * Receives the progress of a running operation
+ */
+public interface IProgress {
+
+    /**
+     * Ignores all progress
+     */
+    IProgress NONE = (completed, total) -> {
+    };
+
+    /**
+     * @param completed The number of completed steps
+     * @param total     The total number of steps or -1, if not known yet
+     */
+    void report(long completed, long total);
+}
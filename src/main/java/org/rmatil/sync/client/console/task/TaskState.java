@@ -0,0 +1,12 @@
+package org.rmatil.sync.client.console.task;
+
+public enum TaskState {
+
+    RUNNING,
+
+    COMPLETED,
+
+    FAILED,
+
+    CANCELLED
+}
@@ -0,0 +1,240 @@
+package org.rmatil.sync.client.context;
+
+import org.rmatil.sync.client.cache.NodeLocationCache;
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.config.ConfigStore;
+import org.rmatil.sync.client.config.IConfigListener;
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.dht.FileIdLookup;
+import org.rmatil.sync.client.index.FileIdIndex;
+import org.rmatil.sync.core.Sync;
+import org.rmatil.sync.core.model.ApplicationConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds a connected {@link Sync} instance together with
+ * the client side services which are shared by all
+ * parts of the client working with it.
+ * <p>
+ * Services which do not depend on the root (e.g. thread pools) are taken
+ * from the {@link ClientServices}, which may be shared by the contexts of
+ * several sync roots hosted by the same process.
+ * </p>
+ * <p>
+ * Once {@link ClientContext#watchConfig(ConfigStore)} has been invoked, changes
+ * to settings which are safe to change at runtime (cache ttl and timeouts) are
+ * applied to the running node without restarting it. All other settings
+ * take effect on the next connect.
+ * </p>
+ */
+public class ClientContext implements IConfigListener {
+
+    protected Sync sync;
+
+    protected ApplicationConfig applicationConfig;
+
+    protected FileIdLookup fileIdLookup;
+
+    protected FileIdIndex fileIdIndex;
+
+    protected ClientServices clientServices;
+
+    /**
+     * Whether the client services have been created by this context and are shut down with it
+     */
+    protected boolean ownsClientServices;
+
+    protected boolean watchingConfig;
+
+    /**
+     * @param sync              The connected sync instance
+     * @param applicationConfig The application config the sync instance has been connected with
+     */
+    public ClientContext(Sync sync, ApplicationConfig applicationConfig) {
+        this(sync, applicationConfig, new ClientServices());
+        this.ownsClientServices = true;
+    }
+
+    /**
+     * @param sync              The connected sync instance
+     * @param applicationConfig The application config the sync instance has been connected with
+     * @param clientServices    The services shared with the contexts of other sync roots. Not shut down with this context
+     */
+    public ClientContext(Sync sync, ApplicationConfig applicationConfig, ClientServices clientServices) {
+        this.sync = sync;
+        this.applicationConfig = applicationConfig;
+        this.clientServices = clientServices;
+        this.ownsClientServices = false;
+        this.watchingConfig = false;
+    }
+
+    public Sync getSync() {
+        return sync;
+    }
+
+    public ApplicationConfig getApplicationConfig() {
+        return applicationConfig;
+    }
+
+    public ClientServices getClientServices() {
+        return clientServices;
+    }
+
+    /**
+     * @return The path to the root of the synced folder
+     */
+    public Path getRootPath() {
+        return Paths.get(this.sync.getStorageAdapter().getRootDir().getPath());
+    }
+
+    /**
+     * @return The file id lookup, caching file ids for the configured cache ttl
+     */
+    public synchronized FileIdLookup getFileIdLookup() {
+        if (null == this.fileIdLookup) {
+            this.fileIdLookup = new FileIdLookup(
+                    this.sync.getNode().getIdentifierManager(),
+                    this.applicationConfig.getCacheTtl(),
+                    Config.DEFAULT.getFileIdCacheSize(),
+                    this.clientServices.getLookupExecutorService()
+            );
+        }
+
+        return this.fileIdLookup;
+    }
+
+    /**
+     * @return The persistent file id index, kept in the object store of the synced folder
+     */
+    public synchronized FileIdIndex getFileIdIndex() {
+        if (null == this.fileIdIndex) {
+            Path objectStoreFolder = this.getRootPath().resolve(org.rmatil.sync.core.config.Config.DEFAULT.getOsFolderName());
+
+            this.fileIdIndex = new FileIdIndex(objectStoreFolder, this.getFileIdLookup());
+            this.fileIdIndex.load();
+        }
+
+        return this.fileIdIndex;
+    }
+
+    /**
+     * @return The cache of node locations, refreshed in the background
+     */
+    public NodeLocationCache getNodeLocationCache() {
+        return this.clientServices.getNodeLocationCache(this.sync.getNode().getNodeManager());
+    }
+
+    /**
+     * @return The directory caching whether users are registered
+     */
+    public UserDirectory getUserDirectory() {
+        return this.clientServices.getUserDirectory(this.sync.getNode().getUserManager());
+    }
+
+    /**
+     * Starts applying changes of the given config to the running node
+     *
+     * @param configStore The store of the config the node has been connected with
+     *
+     * @throws IOException If the config file could not be watched
+     */
+    public synchronized void watchConfig(ConfigStore configStore)
+            throws IOException {
+        if (this.watchingConfig) {
+            return;
+        }
+
+        this.clientServices.watchConfig(configStore, this);
+        this.watchingConfig = true;
+    }
+
+    @Override
+    public void onConfigChanged(ApplicationConfig config) {
+        List<String> deferred = new ArrayList<>();
+        List<String> applied = this.applyConfig(config, deferred);
+
+        if (! applied.isEmpty()) {
+            Output.println("Applied changed config: " + String.join(", ", applied));
+        }
+
+        if (! deferred.isEmpty()) {
+            Output.println("Stored changed config, effective after restart: " + String.join(", ", deferred));
+        }
+    }
+
+    /**
+     * Applies the settings of the given config which the client can change
+     * while connected. The running node of the library reads its settings
+     * on connecting only, hence changes of the timeouts and of the cache ttl
+     * of the node take effect on the next connect.
+     *
+     * @param config   The changed config
+     * @param deferred Receives the names and new values of all changed settings which take effect after a restart
+     *
+     * @return The names and new values of all changed settings which took effect immediately
+     */
+    public synchronized List<String> applyConfig(ApplicationConfig config, List<String> deferred) {
+        List<String> applied = new ArrayList<>();
+
+        if (config.getCacheTtl() != this.applicationConfig.getCacheTtl()) {
+            this.applicationConfig.setCacheTtl(config.getCacheTtl());
+
+            // the file id cache of the client is created with the current ttl if it does not exist yet
+            if (null != this.fileIdLookup) {
+                this.fileIdLookup.getCache().setTtl(config.getCacheTtl());
+            }
+
+            applied.add("cacheTtl=" + config.getCacheTtl() + " (file id cache of the client)");
+            deferred.add("cacheTtl=" + config.getCacheTtl() + " (caches of the node)");
+        }
+
+        if (config.getPeerDiscoveryTimeout() != this.applicationConfig.getPeerDiscoveryTimeout()) {
+            this.applicationConfig.setPeerDiscoveryTimeout(config.getPeerDiscoveryTimeout());
+            deferred.add("peerDiscoveryTimeout=" + config.getPeerDiscoveryTimeout());
+        }
+
+        if (config.getPeerBootstrapTimeout() != this.applicationConfig.getPeerBootstrapTimeout()) {
+            this.applicationConfig.setPeerBootstrapTimeout(config.getPeerBootstrapTimeout());
+            deferred.add("peerBootstrapTimeout=" + config.getPeerBootstrapTimeout());
+        }
+
+        if (config.getShutdownAnnounceTimeout() != this.applicationConfig.getShutdownAnnounceTimeout()) {
+            this.applicationConfig.setShutdownAnnounceTimeout(config.getShutdownAnnounceTimeout());
+            deferred.add("shutdownAnnounceTimeout=" + config.getShutdownAnnounceTimeout());
+        }
+
+        return applied;
+    }
+
+    /**
+     * Stops all services created by this context, including the
+     * client services if they are not shared with other contexts.
+     * The sync instance itself is not shut down.
+     */
+    public synchronized void shutdown() {
+        if (null != this.fileIdIndex) {
+            try {
+                this.fileIdIndex.save();
+            } catch (IOException e) {
+                // the index is rebuilt on next use
+            }
+        }
+
+        if (null != this.fileIdLookup) {
+            this.fileIdLookup.shutdown();
+        }
+
+        this.clientServices.releaseNodeLocationCache(this.sync.getNode().getNodeManager());
+        this.clientServices.releaseUserDirectory(this.sync.getNode().getUserManager());
+
+        if (this.ownsClientServices) {
+            this.clientServices.shutdown();
+        }
+    }
+}
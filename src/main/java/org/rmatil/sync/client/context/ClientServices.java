@@ -0,0 +1,303 @@
+package org.rmatil.sync.client.context;
+
+import org.rmatil.sync.client.cache.NodeLocationCache;
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.config.ConfigStore;
+import org.rmatil.sync.client.config.ConfigWatcher;
+import org.rmatil.sync.client.config.IConfigListener;
+import org.rmatil.sync.client.dht.FileIdLookup;
+import org.rmatil.sync.client.keys.KeyPool;
+import org.rmatil.sync.client.metrics.MetricsExporter;
+import org.rmatil.sync.client.metrics.MetricsHttpServer;
+import org.rmatil.sync.client.metrics.MetricsRegistry;
+import org.rmatil.sync.client.trace.ITraceRecording;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.network.api.INodeManager;
+import org.rmatil.sync.network.api.IUserManager;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The client side services shared by all {@link ClientContext}s of a process,
+ * so that hosting several sync roots in the same JVM does not multiply
+ * the threads and caches of the client.
+ * <p>
+ * Shared are the pool executing file id lookups, one cache of node locations
+ * and one directory of registered users per node, one config watcher per config file, the threads filling key pools,
+ * the export of the client metrics and the recording of trace events.
+ * </p>
+ */
+public class ClientServices {
+
+    protected ExecutorService lookupExecutorService;
+
+    /**
+     * The caches of node locations, by the node manager they fetch the locations through
+     */
+    protected Map<INodeManager, NodeLocationCache> nodeLocationCaches;
+
+    /**
+     * The directories of registered users, by the user manager they check the registration with
+     */
+    protected Map<IUserManager, UserDirectory> userDirectories;
+
+    protected Map<ConfigStore, ConfigWatcher> configWatchers;
+
+    /**
+     * The threads filling key pools, by the path to the pool
+     */
+    protected Map<Path, Thread> keyPoolFillers;
+
+    protected MetricsExporter metricsExporter;
+
+    protected MetricsHttpServer metricsHttpServer;
+
+    protected ITraceRecording traceRecording;
+
+    public ClientServices() {
+        this.nodeLocationCaches = new IdentityHashMap<>();
+        this.userDirectories = new IdentityHashMap<>();
+        this.configWatchers = new LinkedHashMap<>();
+        this.keyPoolFillers = new LinkedHashMap<>();
+    }
+
+    /**
+     * @return The pool all file id lookups are executed on
+     */
+    public synchronized ExecutorService getLookupExecutorService() {
+        if (null == this.lookupExecutorService) {
+            this.lookupExecutorService = FileIdLookup.createExecutorService(Config.DEFAULT.getLookupConcurrency());
+        }
+
+        return this.lookupExecutorService;
+    }
+
+    /**
+     * Returns the cache of node locations fetched through the given node manager.
+     * It is created on the first invocation for this node manager, so that each root
+     * fetches the locations through its own node, which might be connected
+     * to a different network than the nodes of other roots
+     *
+     * @param nodeManager The node manager of the invoking root
+     *
+     * @return The cache of node locations, refreshed in the background
+     */
+    public synchronized NodeLocationCache getNodeLocationCache(INodeManager nodeManager) {
+        NodeLocationCache nodeLocationCache = this.nodeLocationCaches.get(nodeManager);
+
+        if (null == nodeLocationCache) {
+            nodeLocationCache = new NodeLocationCache(
+                    nodeManager,
+                    Config.DEFAULT.getNodeLocationRefreshInterval(),
+                    Config.DEFAULT.getNodeLocationIdleTimeout(),
+                    Config.DEFAULT.getNodeLocationCacheSize()
+            );
+            nodeLocationCache.start();
+            this.nodeLocationCaches.put(nodeManager, nodeLocationCache);
+        }
+
+        return nodeLocationCache;
+    }
+
+    /**
+     * Stops the cache of node locations fetched through the given node manager, if any,
+     * e.g. once the node of a root has been shut down
+     *
+     * @param nodeManager The node manager of the root
+     */
+    public synchronized void releaseNodeLocationCache(INodeManager nodeManager) {
+        NodeLocationCache nodeLocationCache = this.nodeLocationCaches.remove(nodeManager);
+
+        if (null != nodeLocationCache) {
+            nodeLocationCache.shutdown();
+        }
+    }
+
+    /**
+     * Returns the directory of users registered with the given user manager.
+     * It is created on the first invocation for this user manager, so that
+     * each root checks the registration through its own node
+     *
+     * @param userManager The user manager of the invoking root
+     *
+     * @return The directory of registered users
+     */
+    public synchronized UserDirectory getUserDirectory(IUserManager userManager) {
+        UserDirectory userDirectory = this.userDirectories.get(userManager);
+
+        if (null == userDirectory) {
+            userDirectory = new UserDirectory(
+                    userManager,
+                    Config.DEFAULT.getUserCacheSize(),
+                    Config.DEFAULT.getRegisteredUserTtl(),
+                    Config.DEFAULT.getUnregisteredUserTtl(),
+                    this.getLookupExecutorService()
+            );
+            this.userDirectories.put(userManager, userDirectory);
+        }
+
+        return userDirectory;
+    }
+
+    /**
+     * Forgets the directory of users registered with the given user manager, if any,
+     * e.g. once the node of a root has been shut down
+     *
+     * @param userManager The user manager of the root
+     */
+    public synchronized void releaseUserDirectory(IUserManager userManager) {
+        UserDirectory userDirectory = this.userDirectories.remove(userManager);
+
+        if (null != userDirectory) {
+            userDirectory.shutdown();
+        }
+    }
+
+    /**
+     * Registers the given listener for changes of the given config
+     *
+     * @param configStore The store of the config to watch
+     * @param listener    The listener to notify
+     *
+     * @throws IOException If the config file could not be watched
+     */
+    public synchronized void watchConfig(ConfigStore configStore, IConfigListener listener)
+            throws IOException {
+        ConfigWatcher configWatcher = this.configWatchers.get(configStore);
+
+        if (null == configWatcher) {
+            configWatcher = new ConfigWatcher(configStore);
+            configWatcher.start();
+            this.configWatchers.put(configStore, configWatcher);
+        }
+
+        configWatcher.addListener(listener);
+    }
+
+    /**
+     * Fills the given key pool in the background, unless it is already being filled
+     *
+     * @param keyPool The pool to fill
+     * @param target  The number of key pairs the pool should hold
+     */
+    public synchronized void fillKeyPool(KeyPool keyPool, int target) {
+        Path poolFile = keyPool.getPoolFile().toAbsolutePath().normalize();
+        Thread filler = this.keyPoolFillers.get(poolFile);
+
+        if (null == filler || ! filler.isAlive()) {
+            this.keyPoolFillers.put(poolFile, keyPool.fillInBackground(target));
+        }
+    }
+
+    /**
+     * @return The exporter of the client metrics
+     */
+    public synchronized MetricsExporter getMetricsExporter() {
+        if (null == this.metricsExporter) {
+            this.metricsExporter = new MetricsExporter(MetricsRegistry.getDefault());
+        }
+
+        return this.metricsExporter;
+    }
+
+    /**
+     * Exports the client metrics over JMX and, if a port is given,
+     * serves them over HTTP on the loopback interface
+     *
+     * @param port The port to serve the metrics on, 0 for an ephemeral port or null to not serve them over HTTP
+     *
+     * @return The port the metrics are served on or -1, if they are not served over HTTP
+     *
+     * @throws JMException If the metrics could not be registered on the MBean server
+     * @throws IOException If the HTTP server could not be started
+     */
+    public synchronized int exportMetrics(Integer port)
+            throws JMException, IOException {
+        MetricsExporter metricsExporter = this.getMetricsExporter();
+        metricsExporter.registerMBean();
+
+        if (null == port) {
+            return - 1;
+        }
+
+        if (null == this.metricsHttpServer) {
+            MetricsHttpServer metricsHttpServer = new MetricsHttpServer(port, metricsExporter);
+            metricsHttpServer.start();
+            this.metricsHttpServer = metricsHttpServer;
+        }
+
+        return this.metricsHttpServer.getLocalPort();
+    }
+
+    /**
+     * Starts a continuous recording of the trace events of the client, unless one is already running
+     *
+     * @param destination  The file to write the recording to once the services are shut down or the process exits
+     * @param maxSize      The maximum size of the recording in bytes
+     * @param maxAgeMillis The maximum age of the recorded events in milliseconds
+     *
+     * @return The running recording
+     *
+     * @throws IOException If the recording could not be started
+     */
+    public synchronized ITraceRecording startRecording(Path destination, long maxSize, long maxAgeMillis)
+            throws IOException {
+        if (null == this.traceRecording) {
+            this.traceRecording = Tracing.startRecording(destination, maxSize, maxAgeMillis);
+        }
+
+        return this.traceRecording;
+    }
+
+    /**
+     * Stops all shared services
+     */
+    public synchronized void shutdown() {
+        if (null != this.metricsHttpServer) {
+            this.metricsHttpServer.stop();
+            this.metricsHttpServer = null;
+        }
+
+        for (Thread filler : this.keyPoolFillers.values()) {
+            filler.interrupt();
+        }
+        this.keyPoolFillers.clear();
+
+        for (ConfigWatcher configWatcher : this.configWatchers.values()) {
+            configWatcher.shutdown();
+        }
+        this.configWatchers.clear();
+
+        for (NodeLocationCache nodeLocationCache : this.nodeLocationCaches.values()) {
+            nodeLocationCache.shutdown();
+        }
+        this.nodeLocationCaches.clear();
+
+        // run their lookups on the shared pool
+        for (UserDirectory userDirectory : this.userDirectories.values()) {
+            userDirectory.shutdown();
+        }
+        this.userDirectories.clear();
+
+        if (null != this.lookupExecutorService) {
+            this.lookupExecutorService.shutdownNow();
+            this.lookupExecutorService = null;
+        }
+
+        if (null != this.traceRecording) {
+            try {
+                this.traceRecording.stop();
+            } catch (IOException e) {
+                // the recording is also written on exit
+            }
+            this.traceRecording = null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.rmatil.sync.client.control;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A blocking client for the {@link ControlServer} of a running node.
+ * The connection is kept open, so that several requests can be sent over it.
+ * The token of the server (see {@link ControlToken}) is sent along with each request.
+ */
+public class ControlClient implements AutoCloseable {
+
+    protected Socket socket;
+
+    protected BufferedReader reader;
+
+    protected OutputStream outputStream;
+
+    protected String token;
+
+    /**
+     * Connects to the control server on the loopback interface,
+     * using the token from the default config folder
+     *
+     * @param port    The port of the control server
+     * @param timeout The maximum time in milliseconds to wait for connecting and for each response. 0 waits infinitely
+     *
+     * @throws IOException If the token could not be read or no control server could be reached on the given port
+     */
+    public ControlClient(int port, int timeout)
+            throws IOException {
+        this(port, timeout, ControlToken.read(ControlToken.getTokenFile(ControlToken.getDefaultFolder(), port)));
+    }
+
+    /**
+     * Connects to the control server on the loopback interface
+     *
+     * @param port    The port of the control server
+     * @param timeout The maximum time in milliseconds to wait for connecting and for each response. 0 waits infinitely
+     * @param token   The token of the control server
+     *
+     * @throws IOException If no control server could be reached on the given port
+     */
+    public ControlClient(int port, int timeout, String token)
+            throws IOException {
+        this.token = token;
+        this.socket = new Socket();
+        this.socket.setSoTimeout(timeout);
+        this.socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), timeout);
+
+        this.reader = new BufferedReader(new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+        this.outputStream = this.socket.getOutputStream();
+    }
+
+    /**
+     * Sends the request and waits for its response
+     *
+     * @param request The request line, i.e. the command name followed by its arguments, without the token
+     *
+     * @return The lines of the response
+     *
+     * @throws ControlException If the command failed on the server
+     * @throws IOException      If the connection failed
+     */
+    public List<String> request(String request)
+            throws ControlException, IOException {
+        this.outputStream.write((this.token + " " + request.replace('\n', ' ') + "\n").getBytes(StandardCharsets.UTF_8));
+        this.outputStream.flush();
+
+        String status = this.readLine();
+
+        if (status.startsWith("ERR")) {
+            throw new ControlException(status.substring(3).trim());
+        }
+
+        if (! status.startsWith("OK ")) {
+            throw new IOException("Unexpected response " + status);
+        }
+
+        int count;
+        try {
+            count = Integer.parseInt(status.substring(3).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected response " + status);
+        }
+
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(this.readLine());
+        }
+
+        return lines;
+    }
+
+    protected String readLine()
+            throws IOException {
+        String line = this.reader.readLine();
+
+        if (null == line) {
+            throw new IOException("Connection closed by the control server");
+        }
+
+        return line;
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        this.socket.close();
+    }
+}
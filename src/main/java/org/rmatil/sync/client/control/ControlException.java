@@ -0,0 +1,12 @@
+package org.rmatil.sync.client.control;
+
+/**
+ * Thrown if a command failed on the {@link ControlServer}.
+ * The message is the one returned by the server
+ */
+public class ControlException extends Exception {
+
+    public ControlException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,553 @@
+package org.rmatil.sync.client.control;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A line based request/response endpoint bound to the loopback interface,
+ * allowing local tools to control a running node.
+ * <p>
+ * A request is a single line consisting of the token of the server (see {@link ControlToken}),
+ * the command name and its arguments, separated by whitespaces. Requests without
+ * the correct token are rejected. The response starts with either {@code OK <n>},
+ * followed by the {@code n} lines of the response, or {@code ERR <message>}.
+ * Several requests may be sent over the same connection, they are answered in order.
+ * </p>
+ * <p>
+ * All connections are served by a single selector thread. Since commands may
+ * block on the DHT, they are executed on a small pool of workers. Requests of
+ * different connections are executed concurrently. Except for the response
+ * handed back by a worker, the state of a connection is only accessed on the
+ * selector thread.
+ * </p>
+ */
+public class ControlServer {
+
+    /**
+     * The maximum length of a request line in bytes
+     */
+    public static final int MAX_REQUEST_LENGTH = 64 * 1024;
+
+    protected static class Connection {
+
+        protected SocketChannel channel;
+
+        protected ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+        protected ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        protected Deque<String> requests = new ArrayDeque<>();
+
+        protected Deque<ByteBuffer> responses = new ArrayDeque<>();
+
+        /**
+         * The response of the request handed over to a worker, passed back to the selector thread
+         */
+        protected volatile ByteBuffer result;
+
+        /**
+         * Whether a request of this connection is currently executed
+         */
+        protected boolean busy = false;
+
+        /**
+         * Whether the client closed its side of the connection
+         */
+        protected boolean endOfStream = false;
+
+        protected Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    protected int port;
+
+    protected int workers;
+
+    /**
+     * The folder the token file is written to
+     */
+    protected Path tokenFolder;
+
+    /**
+     * The file holding the token while the server is running
+     */
+    protected Path tokenFile;
+
+    protected volatile String token;
+
+    protected Map<String, IControlCommand> commands;
+
+    protected Selector selector;
+
+    protected ServerSocketChannel serverSocketChannel;
+
+    protected ExecutorService executorService;
+
+    protected Thread selectorThread;
+
+    /**
+     * Connections whose response has been completed by a worker
+     */
+    protected Queue<Connection> completed;
+
+    protected volatile boolean running;
+
+    /**
+     * The time until which the selector keeps writing pending responses once the server has been stopped
+     */
+    protected volatile long closeDeadline;
+
+    /**
+     * @param port    The port on the loopback interface to listen on. Use 0 for an ephemeral port
+     * @param workers The number of threads executing commands
+     */
+    public ControlServer(int port, int workers) {
+        this(port, workers, ControlToken.getDefaultFolder());
+    }
+
+    /**
+     * @param port        The port on the loopback interface to listen on. Use 0 for an ephemeral port
+     * @param workers     The number of threads executing commands
+     * @param tokenFolder The folder to write the token file to
+     */
+    public ControlServer(int port, int workers, Path tokenFolder) {
+        this.port = port;
+        this.workers = workers;
+        this.tokenFolder = tokenFolder;
+        this.commands = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.completed = new ConcurrentLinkedQueue<>();
+        this.running = false;
+
+        this.register(new IControlCommand() {
+            @Override
+            public List<String> execute(List<String> arguments) {
+                List<String> lines = new ArrayList<>();
+                synchronized (commands) {
+                    for (IControlCommand command : commands.values()) {
+                        lines.add(command.getName() + "\t" + command.getDescription());
+                    }
+                }
+
+                return lines;
+            }
+
+            @Override
+            public String getName() {
+                return "help";
+            }
+
+            @Override
+            public String getDescription() {
+                return "List all available commands";
+            }
+        });
+
+        this.register(new IControlCommand() {
+            @Override
+            public List<String> execute(List<String> arguments) {
+                return Collections.singletonList("pong");
+            }
+
+            @Override
+            public String getName() {
+                return "ping";
+            }
+
+            @Override
+            public String getDescription() {
+                return "Check whether the node is responsive";
+            }
+        });
+    }
+
+    /**
+     * Registers the given command, replacing any command with the same name
+     *
+     * @param command The command to register
+     */
+    public void register(IControlCommand command) {
+        this.commands.put(command.getName(), command);
+    }
+
+    /**
+     * Binds the server to the loopback interface, writes a new token file and starts serving requests
+     *
+     * @throws IOException If the server could not be bound or the token file could not be written
+     */
+    public synchronized void start()
+            throws IOException {
+        if (this.running) {
+            return;
+        }
+
+        this.selector = Selector.open();
+        this.serverSocketChannel = ServerSocketChannel.open();
+        this.serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port));
+        this.serverSocketChannel.configureBlocking(false);
+        this.serverSocketChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+
+        this.token = ControlToken.generate();
+        this.tokenFile = ControlToken.getTokenFile(this.tokenFolder, this.getLocalPort());
+        try {
+            ControlToken.write(this.tokenFile, this.token);
+        } catch (IOException e) {
+            this.serverSocketChannel.close();
+            this.selector.close();
+            throw e;
+        }
+
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        this.executorService = Executors.newFixedThreadPool(this.workers, runnable -> {
+            Thread thread = new Thread(runnable, "control-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.running = true;
+        this.selectorThread = new Thread(this::serve, "control-selector");
+        this.selectorThread.setDaemon(true);
+        this.selectorThread.start();
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getLocalPort() {
+        return this.serverSocketChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return The file holding the token of the running server
+     */
+    public Path getTokenFile() {
+        return this.tokenFile;
+    }
+
+    /**
+     * Stops accepting requests, removes the token file and waits for running commands to complete.
+     * Afterwards, the responses which have not been written yet (e.g. the response to
+     * a request shutting down the node) are delivered before the connections are closed
+     *
+     * @param timeout The maximum time to wait for running commands and, afterwards, for writing their responses in milliseconds
+     *
+     * @return True, if all commands completed in time
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean stop(long timeout)
+            throws InterruptedException {
+        synchronized (this) {
+            if (! this.running) {
+                return true;
+            }
+
+            // stop accepting new connections and requests
+            try {
+                this.serverSocketChannel.close();
+            } catch (IOException e) {
+                // already closed
+            }
+
+            this.executorService.shutdown();
+
+            try {
+                Files.deleteIfExists(this.tokenFile);
+            } catch (IOException e) {
+                // a new token is generated on the next start anyway
+            }
+        }
+
+        // the selector keeps running to deliver the responses of running commands
+        boolean drained = this.executorService.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+
+        this.closeDeadline = System.currentTimeMillis() + timeout;
+        this.running = false;
+        this.selector.wakeup();
+        this.selectorThread.join(timeout);
+
+        return drained;
+    }
+
+    protected void serve() {
+        try {
+            while (this.running || (this.hasPendingResponses() && System.currentTimeMillis() < this.closeDeadline)) {
+                if (this.running) {
+                    this.selector.select();
+                } else {
+                    // only deliver the responses of requests received before stopping
+                    this.stopReading();
+                    this.selector.select(Math.max(1L, this.closeDeadline - System.currentTimeMillis()));
+                }
+
+                Connection connection;
+                while (null != (connection = this.completed.poll())) {
+                    this.onResponseReady(connection);
+                }
+
+                Iterator<SelectionKey> iterator = this.selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+
+                    try {
+                        if (! key.isValid()) {
+                            continue;
+                        }
+
+                        if (key.isAcceptable()) {
+                            this.accept();
+                        } else {
+                            if (key.isReadable()) {
+                                this.read(key);
+                            }
+
+                            if (key.isValid() && key.isWritable()) {
+                                this.write(key);
+                            }
+                        }
+                    } catch (IOException e) {
+                        this.close(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            this.running = false;
+        } finally {
+            for (SelectionKey key : this.selector.keys()) {
+                this.close(key);
+            }
+
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                // nothing to do anymore
+            }
+        }
+    }
+
+    /**
+     * @return True, if a response has not been written completely yet. Must be invoked on the selector thread
+     */
+    protected boolean hasPendingResponses() {
+        if (! this.completed.isEmpty()) {
+            return true;
+        }
+
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Connection) {
+                Connection connection = (Connection) key.attachment();
+
+                if (connection.busy || ! connection.responses.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Stops reading requests from all connections. Must be invoked on the selector thread
+     */
+    protected void stopReading() {
+        for (SelectionKey key : this.selector.keys()) {
+            if (key.isValid() && key.attachment() instanceof Connection) {
+                key.interestOps(key.interestOps() & ~ SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    protected void accept()
+            throws IOException {
+        SocketChannel channel = this.serverSocketChannel.accept();
+
+        if (null == channel) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.register(this.selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    protected void read(SelectionKey key)
+            throws IOException {
+        Connection connection = (Connection) key.attachment();
+
+        int read = connection.channel.read(connection.readBuffer);
+        if (read < 0) {
+            connection.endOfStream = true;
+            key.interestOps(key.interestOps() & ~ SelectionKey.OP_READ);
+            this.closeIfDone(key, connection);
+            return;
+        }
+
+        connection.readBuffer.flip();
+        while (connection.readBuffer.hasRemaining()) {
+            byte b = connection.readBuffer.get();
+
+            if ('\n' == b) {
+                String request = new String(connection.line.toByteArray(), StandardCharsets.UTF_8).trim();
+                connection.line.reset();
+
+                if (! request.isEmpty()) {
+                    connection.requests.add(request);
+                }
+            } else if (connection.line.size() < MAX_REQUEST_LENGTH) {
+                connection.line.write(b);
+            } else {
+                throw new IOException("Request exceeds " + MAX_REQUEST_LENGTH + " bytes");
+            }
+        }
+        connection.readBuffer.clear();
+
+        this.dispatch(connection);
+    }
+
+    protected void write(SelectionKey key)
+            throws IOException {
+        Connection connection = (Connection) key.attachment();
+
+        while (! connection.responses.isEmpty()) {
+            ByteBuffer response = connection.responses.peek();
+            connection.channel.write(response);
+
+            if (response.hasRemaining()) {
+                // socket buffer is full, continue once writable again
+                return;
+            }
+
+            connection.responses.poll();
+        }
+
+        key.interestOps(key.interestOps() & ~ SelectionKey.OP_WRITE);
+        this.closeIfDone(key, connection);
+    }
+
+    /**
+     * Hands the next request of the connection over to a worker, if none is running
+     *
+     * @param connection The connection
+     */
+    protected void dispatch(Connection connection) {
+        if (connection.busy || connection.requests.isEmpty()) {
+            return;
+        }
+
+        String request = connection.requests.poll();
+        connection.busy = true;
+
+        try {
+            this.executorService.execute(() -> {
+                String response = this.handle(request);
+
+                connection.result = ByteBuffer.wrap(response.getBytes(StandardCharsets.UTF_8));
+                this.completed.add(connection);
+                this.selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            connection.result = ByteBuffer.wrap("ERR Node is shutting down\n".getBytes(StandardCharsets.UTF_8));
+            this.completed.add(connection);
+            this.selector.wakeup();
+        }
+    }
+
+    protected void onResponseReady(Connection connection) {
+        SelectionKey key = connection.channel.keyFor(this.selector);
+
+        if (null == key || ! key.isValid()) {
+            return;
+        }
+
+        connection.responses.add(connection.result);
+        connection.result = null;
+        connection.busy = false;
+
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        this.dispatch(connection);
+    }
+
+    /**
+     * Executes the given request
+     *
+     * @param request The request line
+     *
+     * @return The serialized response
+     */
+    protected String handle(String request) {
+        List<String> tokens = new ArrayList<>(Arrays.asList(request.split("\\s+")));
+
+        if (! ControlToken.matches(this.token, tokens.remove(0))) {
+            return "ERR Unauthorized. Send the token of " + this.tokenFile.getFileName() + " in the config folder before the command\n";
+        }
+
+        if (tokens.isEmpty()) {
+            return "ERR Missing command. Use help to list all commands\n";
+        }
+
+        String name = tokens.remove(0);
+
+        IControlCommand command = this.commands.get(name);
+        if (null == command) {
+            return "ERR Unknown command " + name + ". Use help to list all commands\n";
+        }
+
+        try {
+            List<String> lines = command.execute(tokens);
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("OK ").append(lines.size()).append('\n');
+            for (String line : lines) {
+                // a line break would break the framing of the response
+                sb.append(line.replace('\n', ' ')).append('\n');
+            }
+
+            return sb.toString();
+        } catch (Exception e) {
+            String message = (null != e.getMessage()) ? e.getMessage().replace('\n', ' ') : e.getClass().getSimpleName();
+            return "ERR " + message + "\n";
+        }
+    }
+
+    protected void closeIfDone(SelectionKey key, Connection connection) {
+        if (connection.endOfStream && ! connection.busy && connection.requests.isEmpty() && connection.responses.isEmpty()) {
+            this.close(key);
+        }
+    }
+
+    protected void close(SelectionKey key) {
+        key.cancel();
+
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // nothing to do anymore
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.rmatil.sync.client.control;
+
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.client.util.HexUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * The secret a client has to send along with each request to the {@link ControlServer}.
+ * <p>
+ * The control port is reachable by any local user. Therefore, the server
+ * generates a random token on start and writes it to a file readable by its
+ * owner only. Only users able to read this file can control the node.
+ * The file is named after the port, so that several nodes of the same user
+ * can be controlled independently.
+ * </p>
+ */
+public class ControlToken {
+
+    /**
+     * The number of random bytes of a token
+     */
+    public static final int TOKEN_LENGTH = 32;
+
+    public static final String TOKEN_FILE_PREFIX = "control-";
+
+    public static final String TOKEN_FILE_SUFFIX = ".token";
+
+    protected static final SecureRandom random = new SecureRandom();
+
+    /**
+     * @return The folder holding the token files, i.e. the default application config folder
+     */
+    public static Path getDefaultFolder() {
+        return Paths.get(FileUtils.resolveUserHome(Config.DEFAULT.getConfigFolderPath()));
+    }
+
+    /**
+     * @param folder The folder holding the token files
+     * @param port   The port of the control server
+     *
+     * @return The file holding the token of the control server on the given port
+     */
+    public static Path getTokenFile(Path folder, int port) {
+        return folder.resolve(TOKEN_FILE_PREFIX + port + TOKEN_FILE_SUFFIX);
+    }
+
+    /**
+     * @return A new random token
+     */
+    public static String generate() {
+        byte[] bytes = new byte[TOKEN_LENGTH];
+        random.nextBytes(bytes);
+
+        return HexUtils.toHex(bytes);
+    }
+
+    /**
+     * Writes the token to the given file, readable by the owner only
+     *
+     * @param tokenFile The file to write
+     * @param token     The token
+     *
+     * @throws IOException If the file could not be written
+     */
+    public static void write(Path tokenFile, String token)
+            throws IOException {
+        Files.createDirectories(tokenFile.toAbsolutePath().getParent());
+        FileUtils.writeAtomically(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param tokenFile The file holding the token
+     *
+     * @return The token
+     *
+     * @throws IOException If the file could not be read
+     */
+    public static String read(Path tokenFile)
+            throws IOException {
+        try {
+            return new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+        } catch (NoSuchFileException e) {
+            throw new IOException("No control token found at " + tokenFile + ". Is a node running with this control port?", e);
+        }
+    }
+
+    /**
+     * Compares the given tokens in constant time
+     *
+     * @param expected The token of the server
+     * @param actual   The token sent by the client
+     *
+     * @return True, if the tokens are equal
+     */
+    public static boolean matches(String expected, String actual) {
+        return MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8),
+                actual.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+}
@@ -0,0 +1,23 @@
+package org.rmatil.sync.client.control;
+
+import java.util.List;
+
+public interface IControlCommand {
+
+    /**
+     * Executes the command.
+     * Note, that commands are executed concurrently on the worker threads of the {@link ControlServer}
+     *
+     * @param arguments The arguments of the request, excluding the command name
+     *
+     * @return The lines of the response
+     *
+     * @throws Exception If the command failed. The message is returned to the client
+     */
+    List<String> execute(List<String> arguments)
+            throws Exception;
+
+    String getName();
+
+    String getDescription();
+}
@@ -0,0 +1,80 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.dht.FileIdEntry;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.index.FileIdIndex;
+import org.rmatil.sync.client.index.FileStamp;
+import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FileIdsCommand implements IControlCommand {
+
+    protected ITreeStorageAdapter storageAdapter;
+    protected FileIdIndex         fileIdIndex;
+
+    public FileIdsCommand(ITreeStorageAdapter storageAdapter, FileIdIndex fileIdIndex) {
+        this.storageAdapter = storageAdapter;
+        this.fileIdIndex = fileIdIndex;
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        if (arguments.isEmpty()) {
+            throw new ValidationException("Usage: " + this.getName() + " <path> [<path>...]");
+        }
+
+        Path rootPath = Paths.get(this.storageAdapter.getRootDir().getPath());
+
+        // unchanged paths are served from the index without a lookup in the DHT
+        Map<String, FileStamp> paths = new LinkedHashMap<>();
+        for (String argument : arguments) {
+            Path relativePath = Paths.get(argument).normalize();
+            if (relativePath.isAbsolute() || relativePath.startsWith("..")) {
+                throw new ValidationException("Path " + argument + " must be relative to the sync folder");
+            }
+
+            FileStamp stamp;
+            try {
+                stamp = FileStamp.of(Files.readAttributes(rootPath.resolve(relativePath), BasicFileAttributes.class));
+            } catch (IOException e) {
+                stamp = FileStamp.MISSING;
+            }
+
+            paths.put(relativePath.toString(), stamp);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (FileIdEntry entry : this.fileIdIndex.resolve(paths)) {
+            if (entry.isFailed()) {
+                lines.add(entry.getPath() + "\t- (Failed to fetch the ID)");
+            } else if (null != entry.getFileId()) {
+                lines.add(entry.getPath() + "\t" + entry.getFileId());
+            } else {
+                lines.add(entry.getPath() + "\t-");
+            }
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String getName() {
+        return "file-ids";
+    }
+
+    @Override
+    public String getDescription() {
+        return "<path> [<path>...] - Print the file ids of the given paths relative to the sync folder";
+    }
+}
@@ -0,0 +1,48 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.cache.NodeLocationCache;
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.network.core.model.NodeLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NodeLocationsCommand implements IControlCommand {
+
+    protected NodeLocationCache nodeLocationCache;
+    protected String            username;
+
+    /**
+     * @param nodeLocationCache The cache to serve the locations from
+     * @param username          The user whose locations are returned if no user is requested
+     */
+    public NodeLocationsCommand(NodeLocationCache nodeLocationCache, String username) {
+        this.nodeLocationCache = nodeLocationCache;
+        this.username = username;
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        String username = arguments.isEmpty() ? this.username : arguments.get(0);
+
+        List<NodeLocation> nodeLocations = this.nodeLocationCache.getNodeLocations(username);
+
+        List<String> lines = new ArrayList<>();
+        for (NodeLocation nodeLocation : nodeLocations) {
+            lines.add(nodeLocation.getClientDeviceId() + "\t" + nodeLocation.getPort() + "\t" + nodeLocation.getIpAddress());
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String getName() {
+        return "node-locations";
+    }
+
+    @Override
+    public String getDescription() {
+        return "[user] - Print the locations of all connected nodes of the user (defaults to this user)";
+    }
+}
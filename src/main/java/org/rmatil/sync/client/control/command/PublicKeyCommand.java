@@ -0,0 +1,58 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.util.HexUtils;
+import org.rmatil.sync.network.api.INodeManager;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the public key of a user.
+ * Note, that the private key is deliberately not exposed over the control server
+ */
+public class PublicKeyCommand implements IControlCommand {
+
+    protected INodeManager nodeManager;
+    protected String       username;
+
+    /**
+     * @param nodeManager The node manager to fetch the key from
+     * @param username    The user whose key is returned if no user is requested
+     */
+    public PublicKeyCommand(INodeManager nodeManager, String username) {
+        this.nodeManager = nodeManager;
+        this.username = username;
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        String username = arguments.isEmpty() ? this.username : arguments.get(0);
+
+        PublicKey publicKey = this.nodeManager.getPublicKey(username);
+
+        List<String> lines = new ArrayList<>();
+        if (null == publicKey) {
+            lines.add("null");
+            return lines;
+        }
+
+        lines.add("Format: " + publicKey.getFormat());
+        lines.add("Algorithm: " + publicKey.getAlgorithm());
+        lines.add(HexUtils.toHex(publicKey.getEncoded()));
+
+        return lines;
+    }
+
+    @Override
+    public String getName() {
+        return "public-key";
+    }
+
+    @Override
+    public String getDescription() {
+        return "[user] - Print the public key of the user (defaults to this user)";
+    }
+}
@@ -0,0 +1,85 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.context.ClientContext;
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatches commands to one of several sync roots hosted by the same process.
+ * Without arguments, the hosted roots are listed
+ */
+public class RootCommand implements IControlCommand {
+
+    protected List<ClientContext> clientContexts;
+
+    protected List<Map<String, IControlCommand>> commands;
+
+    /**
+     * @param clientContexts The contexts of the hosted roots
+     * @param commands       The commands of each root, in the order of the contexts
+     */
+    public RootCommand(List<ClientContext> clientContexts, List<List<IControlCommand>> commands) {
+        this.clientContexts = clientContexts;
+        this.commands = new ArrayList<>(commands.size());
+
+        for (List<IControlCommand> rootCommands : commands) {
+            Map<String, IControlCommand> byName = new LinkedHashMap<>();
+            for (IControlCommand command : rootCommands) {
+                byName.put(command.getName(), command);
+            }
+
+            this.commands.add(byName);
+        }
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        if (arguments.isEmpty()) {
+            List<String> lines = new ArrayList<>(this.clientContexts.size());
+            for (int i = 0; i < this.clientContexts.size(); i++) {
+                ClientContext clientContext = this.clientContexts.get(i);
+                lines.add(i + "\t" + clientContext.getRootPath() + "\t" + clientContext.getSync().getNode().getUser().getUserName());
+            }
+
+            return lines;
+        }
+
+        if (arguments.size() < 2) {
+            throw new ValidationException("Usage: " + this.getName() + " [<index> <command> [<argument>...]]");
+        }
+
+        int index;
+        try {
+            index = Integer.parseInt(arguments.get(0));
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Root index must be a number, got " + arguments.get(0));
+        }
+
+        if (index < 0 || index >= this.commands.size()) {
+            throw new ValidationException("No root with index " + index + ". Use " + this.getName() + " to list all roots");
+        }
+
+        IControlCommand command = this.commands.get(index).get(arguments.get(1));
+        if (null == command) {
+            throw new ValidationException("Unknown command " + arguments.get(1) + " for root " + index);
+        }
+
+        return command.execute(arguments.subList(2, arguments.size()));
+    }
+
+    @Override
+    public String getName() {
+        return "root";
+    }
+
+    @Override
+    public String getDescription() {
+        return "[<index> <command> [<argument>...]] - List the hosted sync roots or run a command on one of them";
+    }
+}
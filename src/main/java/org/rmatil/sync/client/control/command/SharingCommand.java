@@ -0,0 +1,76 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.sharing.SharingFailure;
+import org.rmatil.sync.client.sharing.SharingResult;
+import org.rmatil.sync.client.sharing.manifest.ManifestEntry;
+import org.rmatil.sync.client.sharing.manifest.ManifestExecutor;
+import org.rmatil.sync.client.sharing.manifest.ManifestParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shares or unshares a single path including its contents.
+ * The arguments have the same format as a line of a sharing manifest (see {@link ManifestParser})
+ */
+public class SharingCommand implements IControlCommand {
+
+    protected ManifestExecutor manifestExecutor;
+    protected String           name;
+    protected String           operationName;
+
+    /**
+     * @param manifestExecutor The executor applying the entry
+     * @param name             The name of the command
+     * @param operationName    The verb describing the operation, used for the response
+     */
+    public SharingCommand(ManifestExecutor manifestExecutor, String name, String operationName) {
+        this.manifestExecutor = manifestExecutor;
+        this.name = name;
+        this.operationName = operationName;
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        ManifestEntry entry = ManifestParser.parseLine(String.join(" ", arguments), 1);
+
+        if (null == entry) {
+            throw new ValidationException("Usage: " + this.name + " <path> <user> <READ|WRITE>");
+        }
+
+        return toLines(this.manifestExecutor.execute(Collections.singletonList(entry)), this.operationName);
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getDescription() {
+        return "<path> <user> <READ|WRITE> - Apply a single manifest entry to the path and its contents";
+    }
+
+    /**
+     * Formats the given result as response
+     *
+     * @param result        The result to format
+     * @param operationName The verb describing the operation
+     *
+     * @return The lines of the response
+     */
+    protected static List<String> toLines(SharingResult result, String operationName) {
+        List<String> lines = new ArrayList<>();
+        lines.add(operationName + " " + result.getSucceeded() + " of " + result.getSubmitted() + " elements in " + result.getDurationMillis() + " ms");
+
+        for (SharingFailure failure : result.getFailures()) {
+            lines.add("Failed: " + failure.getRelativePath() + ": " + failure.getMessage());
+        }
+
+        return lines;
+    }
+}
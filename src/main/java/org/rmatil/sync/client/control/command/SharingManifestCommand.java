@@ -0,0 +1,98 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.client.sharing.manifest.ManifestEntry;
+import org.rmatil.sync.client.sharing.manifest.ManifestExecutor;
+import org.rmatil.sync.client.sharing.manifest.ManifestParser;
+import org.rmatil.sync.client.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies all entries of a sharing manifest located on this machine.
+ * Manifests are only read from the allowed folders, so that the
+ * command can not be used to read arbitrary files of the node
+ */
+public class SharingManifestCommand implements IControlCommand {
+
+    protected ManifestExecutor manifestExecutor;
+    protected String           name;
+    protected String           operationName;
+    protected List<Path>       allowedFolders;
+
+    /**
+     * @param manifestExecutor The executor applying the entries
+     * @param name             The name of the command
+     * @param operationName    The verb describing the operation, used for the response
+     * @param allowedFolders   The folders manifests may be read from, e.g. the synced folder
+     */
+    public SharingManifestCommand(ManifestExecutor manifestExecutor, String name, String operationName, List<Path> allowedFolders) {
+        this.manifestExecutor = manifestExecutor;
+        this.name = name;
+        this.operationName = operationName;
+        this.allowedFolders = new ArrayList<>(allowedFolders.size());
+
+        for (Path allowedFolder : allowedFolders) {
+            this.allowedFolders.add(toRealPath(allowedFolder));
+        }
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        if (arguments.isEmpty()) {
+            throw new ValidationException("Usage: " + this.name + " <manifest>");
+        }
+
+        Path manifest = Paths.get(FileUtils.resolveUserHome(String.join(" ", arguments))).toAbsolutePath().normalize();
+
+        // the same message for missing and disallowed files, to not reveal which files exist
+        Path realManifest = toRealPath(manifest);
+        if (! this.isAllowed(realManifest) || ! Files.isRegularFile(realManifest)) {
+            throw new ValidationException("Manifest " + manifest + " does not exist or is not located in the synced folder or a manifest folder");
+        }
+
+        List<ManifestEntry> entries = ManifestParser.parse(realManifest);
+
+        return SharingCommand.toLines(this.manifestExecutor.execute(entries), this.operationName);
+    }
+
+    protected boolean isAllowed(Path manifest) {
+        for (Path allowedFolder : this.allowedFolders) {
+            if (manifest.startsWith(allowedFolder)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param path The path to resolve
+     *
+     * @return The path with all symbolic links resolved or the normalized absolute path, if it does not exist
+     */
+    protected static Path toRealPath(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getDescription() {
+        return "<manifest> - Apply all entries of the manifest at the given absolute path within the synced folder or a manifest folder";
+    }
+}
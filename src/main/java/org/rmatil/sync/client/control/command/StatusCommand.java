@@ -0,0 +1,31 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.status.StatusCollector;
+
+import java.util.List;
+
+public class StatusCommand implements IControlCommand {
+
+    protected StatusCollector statusCollector;
+
+    public StatusCommand(StatusCollector statusCollector) {
+        this.statusCollector = statusCollector;
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        return this.statusCollector.collect().toLines();
+    }
+
+    @Override
+    public String getName() {
+        return "status";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Print the queue length, throughput counters, DHT latencies and node locations of this node";
+    }
+}
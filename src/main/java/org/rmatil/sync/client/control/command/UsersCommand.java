@@ -0,0 +1,52 @@
+package org.rmatil.sync.client.control.command;
+
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.control.IControlCommand;
+import org.rmatil.sync.client.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class UsersCommand implements IControlCommand {
+
+    protected UserDirectory userDirectory;
+
+    public UsersCommand(UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
+    }
+
+    @Override
+    public List<String> execute(List<String> arguments)
+            throws Exception {
+        if (arguments.isEmpty()) {
+            throw new ValidationException("Usage: " + this.getName() + " <user> [<user>...]");
+        }
+
+        // checked concurrently, the results are cached for subsequent shares
+        Map<String, Boolean> registered = this.userDirectory.isRegistered(arguments);
+
+        List<String> lines = new ArrayList<>(registered.size());
+        for (String username : arguments) {
+            Boolean isRegistered = registered.get(username);
+
+            if (null == isRegistered) {
+                lines.add(username + "\t- (Failed to check the registration)");
+            } else {
+                lines.add(username + "\t" + (isRegistered ? "registered" : "unknown"));
+            }
+        }
+
+        return lines;
+    }
+
+    @Override
+    public String getName() {
+        return "users";
+    }
+
+    @Override
+    public String getDescription() {
+        return "<user> [<user>...] - Print whether the users are registered and remember them for subsequent shares";
+    }
+}
@@ -0,0 +1,168 @@
+package org.rmatil.sync.client.daemon;
+
+import org.rmatil.sync.client.context.ClientContext;
+import org.rmatil.sync.client.context.ClientServices;
+import org.rmatil.sync.client.control.ControlServer;
+import org.rmatil.sync.client.control.IControlCommand;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs one or several connected nodes as long-lived service without an interactive console.
+ * <p>
+ * The daemon runs until {@link SyncDaemon#stop()} is invoked, either by the
+ * {@code shutdown} command of the control server or by a shutdown hook.
+ * Stopping drains the control server first, i.e. running commands are allowed
+ * to complete, then stops the client services and finally shuts down the nodes
+ * concurrently. Each of these steps is bounded by the shutdown timeout.
+ * </p>
+ */
+public class SyncDaemon {
+
+    protected List<ClientContext> clientContexts;
+
+    /**
+     * The services shared by the client contexts or null, if they are owned by the single context
+     */
+    protected ClientServices clientServices;
+
+    /**
+     * The control server or null, if the daemon is not controllable
+     */
+    protected ControlServer controlServer;
+
+    /**
+     * The maximum time in milliseconds to wait for each step of the shutdown
+     */
+    protected long shutdownTimeout;
+
+    protected AtomicBoolean stopping;
+
+    protected CountDownLatch terminated;
+
+    /**
+     * @param clientContext   The context of the connected node
+     * @param controlServer   The control server to start with the daemon. May be null
+     * @param shutdownTimeout The maximum time in milliseconds to wait for each step of the shutdown
+     */
+    public SyncDaemon(ClientContext clientContext, ControlServer controlServer, long shutdownTimeout) {
+        this(Collections.singletonList(clientContext), null, controlServer, shutdownTimeout);
+    }
+
+    /**
+     * @param clientContexts  The contexts of the connected nodes
+     * @param clientServices  The services shared by the contexts, stopped after all contexts. May be null
+     * @param controlServer   The control server to start with the daemon. May be null
+     * @param shutdownTimeout The maximum time in milliseconds to wait for each step of the shutdown
+     */
+    public SyncDaemon(List<ClientContext> clientContexts, ClientServices clientServices, ControlServer controlServer, long shutdownTimeout) {
+        this.clientContexts = clientContexts;
+        this.clientServices = clientServices;
+        this.controlServer = controlServer;
+        this.shutdownTimeout = shutdownTimeout;
+        this.stopping = new AtomicBoolean(false);
+        this.terminated = new CountDownLatch(1);
+    }
+
+    /**
+     * Starts the control server, if any
+     *
+     * @throws IOException If the control server could not be bound
+     */
+    public void start()
+            throws IOException {
+        if (null == this.controlServer) {
+            return;
+        }
+
+        this.controlServer.register(new IControlCommand() {
+            @Override
+            public List<String> execute(List<String> arguments) {
+                // stop from a separate thread, since stopping waits for this command to complete
+                Thread stopThread = new Thread(SyncDaemon.this::stop, "daemon-stop");
+                stopThread.start();
+
+                return Collections.singletonList("Shutting down");
+            }
+
+            @Override
+            public String getName() {
+                return "shutdown";
+            }
+
+            @Override
+            public String getDescription() {
+                return "Gracefully shut down all nodes of this process";
+            }
+        });
+
+        this.controlServer.start();
+    }
+
+    /**
+     * Blocks until the daemon has been stopped completely
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void awaitTermination()
+            throws InterruptedException {
+        this.terminated.await();
+    }
+
+    /**
+     * Stops the daemon. Only the first invocation has an effect,
+     * subsequent ones wait until the daemon has been stopped
+     */
+    public void stop() {
+        if (! this.stopping.compareAndSet(false, true)) {
+            try {
+                this.terminated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return;
+        }
+
+        try {
+            if (null != this.controlServer) {
+                this.controlServer.stop(this.shutdownTimeout);
+            }
+
+            for (ClientContext clientContext : this.clientContexts) {
+                clientContext.shutdown();
+            }
+
+            if (null != this.clientServices) {
+                this.clientServices.shutdown();
+            }
+
+            // a node might hang on announcing its shutdown to the network
+            List<Thread> shutdownThreads = new ArrayList<>(this.clientContexts.size());
+            for (ClientContext clientContext : this.clientContexts) {
+                Thread shutdownThread = new Thread(() -> clientContext.getSync().shutdown(), "sync-shutdown-" + shutdownThreads.size());
+                shutdownThread.setDaemon(true);
+                shutdownThread.start();
+                shutdownThreads.add(shutdownThread);
+            }
+
+            long deadline = System.currentTimeMillis() + this.shutdownTimeout;
+            for (Thread shutdownThread : shutdownThreads) {
+                shutdownThread.join(Math.max(1L, deadline - System.currentTimeMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.terminated.countDown();
+        }
+    }
+
+    public boolean isStopping() {
+        return this.stopping.get();
+    }
+}
@@ -0,0 +1,29 @@
+package org.rmatil.sync.client.delete;
+
+import java.nio.file.Path;
+
+public class DeleteFailure {
+
+    /**
+     * The path which could not be deleted
+     */
+    protected Path path;
+
+    /**
+     * The reason why the path could not be deleted
+     */
+    protected String message;
+
+    public DeleteFailure(Path path, String message) {
+        this.path = path;
+        this.message = message;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
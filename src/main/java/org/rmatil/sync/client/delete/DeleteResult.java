@@ -0,0 +1,63 @@
+package org.rmatil.sync.client.delete;
+
+import java.util.List;
+
+public class DeleteResult {
+
+    /**
+     * The number of deleted files, including symbolic links
+     */
+    protected long deletedFiles;
+
+    /**
+     * The number of deleted directories
+     */
+    protected long deletedDirectories;
+
+    /**
+     * The sum of the sizes of all deleted files
+     */
+    protected long freedBytes;
+
+    /**
+     * All paths which could not be deleted
+     */
+    protected List<DeleteFailure> failures;
+
+    /**
+     * The wall clock time the deletion took
+     */
+    protected long durationMillis;
+
+    public DeleteResult(long deletedFiles, long deletedDirectories, long freedBytes, List<DeleteFailure> failures, long durationMillis) {
+        this.deletedFiles = deletedFiles;
+        this.deletedDirectories = deletedDirectories;
+        this.freedBytes = freedBytes;
+        this.failures = failures;
+        this.durationMillis = durationMillis;
+    }
+
+    public long getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    public long getDeletedDirectories() {
+        return deletedDirectories;
+    }
+
+    public long getFreedBytes() {
+        return freedBytes;
+    }
+
+    public List<DeleteFailure> getFailures() {
+        return failures;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean hasFailures() {
+        return ! this.failures.isEmpty();
+    }
+}
@@ -0,0 +1,206 @@
+package org.rmatil.sync.client.delete;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes directory trees concurrently on a fork-join pool.
+ * <p>
+ * Each directory is listed by its own task, which forks a task for each
+ * subdirectory and deletes the files it contains in batches. A directory
+ * is removed once all of its contents have been deleted. Symbolic links
+ * are deleted themselves and never followed.
+ * </p>
+ * <p>
+ * In contrast to {@link org.rmatil.sync.client.util.FileUtils#delete(java.io.File)},
+ * failures do not abort the deletion but are reported in the result.
+ * </p>
+ */
+public class ParallelDelete {
+
+    /**
+     * The maximum number of files of a directory deleted by a single task
+     */
+    public static final int FILE_BATCH_SIZE = 256;
+
+    protected static class FileEntry {
+
+        protected Path path;
+
+        protected long size;
+
+        protected FileEntry(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    protected int parallelism;
+
+    protected LongAdder deletedFiles;
+
+    protected LongAdder deletedDirectories;
+
+    protected LongAdder freedBytes;
+
+    protected ConcurrentLinkedQueue<DeleteFailure> failures;
+
+    /**
+     * @param parallelism The number of threads deleting concurrently
+     */
+    public ParallelDelete(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Deletes the given file or directory including all of its contents.
+     * A path which does not exist results in an empty result
+     *
+     * @param root The file or directory to delete
+     *
+     * @return The result of the deletion
+     */
+    public synchronized DeleteResult delete(Path root) {
+        this.deletedFiles = new LongAdder();
+        this.deletedDirectories = new LongAdder();
+        this.freedBytes = new LongAdder();
+        this.failures = new ConcurrentLinkedQueue<>();
+
+        long startTime = System.currentTimeMillis();
+
+        BasicFileAttributes attributes = null;
+        try {
+            attributes = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            // nothing to delete
+        } catch (IOException e) {
+            this.failures.add(new DeleteFailure(root, e.getMessage()));
+        }
+
+        if (null != attributes && attributes.isDirectory()) {
+            ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+            try {
+                pool.invoke(new DirectoryTask(root));
+            } finally {
+                pool.shutdown();
+            }
+        } else if (null != attributes) {
+            this.deleteFile(new FileEntry(root, attributes.size()));
+        }
+
+        return new DeleteResult(
+                this.deletedFiles.sum(),
+                this.deletedDirectories.sum(),
+                this.freedBytes.sum(),
+                new ArrayList<>(this.failures),
+                System.currentTimeMillis() - startTime
+        );
+    }
+
+    protected void deleteFile(FileEntry entry) {
+        try {
+            Files.delete(entry.path);
+            this.deletedFiles.increment();
+            this.freedBytes.add(entry.size);
+        } catch (NoSuchFileException e) {
+            // removed concurrently
+        } catch (IOException e) {
+            this.failures.add(new DeleteFailure(entry.path, e.toString()));
+        }
+    }
+
+    protected class FileBatchTask extends RecursiveAction {
+
+        protected List<FileEntry> files;
+
+        protected FileBatchTask(List<FileEntry> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            for (FileEntry file : this.files) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    protected class DirectoryTask extends RecursiveAction {
+
+        protected Path directory;
+
+        protected DirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> subTasks = new ArrayList<>();
+            List<FileEntry> batch = new ArrayList<>();
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+                for (Path child : stream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    } catch (IOException e) {
+                        failures.add(new DeleteFailure(child, e.toString()));
+                        continue;
+                    }
+
+                    if (attributes.isDirectory()) {
+                        subTasks.add(new DirectoryTask(child).fork());
+                        continue;
+                    }
+
+                    batch.add(new FileEntry(child, attributes.size()));
+
+                    if (batch.size() >= FILE_BATCH_SIZE) {
+                        subTasks.add(new FileBatchTask(batch).fork());
+                        batch = new ArrayList<>();
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                failures.add(new DeleteFailure(this.directory, e.toString()));
+            }
+
+            // the remainder is deleted by this task
+            for (FileEntry file : batch) {
+                deleteFile(file);
+            }
+
+            for (ForkJoinTask<?> subTask : subTasks) {
+                subTask.join();
+            }
+
+            try {
+                Files.delete(this.directory);
+                deletedDirectories.increment();
+            } catch (NoSuchFileException e) {
+                // removed concurrently
+            } catch (IOException e) {
+                failures.add(new DeleteFailure(this.directory, e.toString()));
+            }
+        }
+    }
+}
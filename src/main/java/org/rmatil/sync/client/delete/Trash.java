@@ -0,0 +1,95 @@
+package org.rmatil.sync.client.delete;
+
+import org.rmatil.sync.client.Client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allows to remove large trees without waiting for the deletion:
+ * the tree is renamed to a trash folder first, which is then
+ * deleted by a separate process in the background.
+ */
+public class Trash {
+
+    /**
+     * The prefix of the names of all trash folders
+     */
+    public static final String TRASH_PREFIX = ".sync-trash-";
+
+    /**
+     * Atomically renames the given path to a new trash folder.
+     * The trash folder is created in the temporary directory if it
+     * is on the same file system, otherwise next to the given path.
+     *
+     * @param path The path to move
+     *
+     * @return The path to the trash folder
+     *
+     * @throws IOException If the path could not be renamed
+     */
+    public static Path moveToTrash(Path path)
+            throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        String trashName = TRASH_PREFIX + absolutePath.getFileName() + "-" + System.currentTimeMillis();
+
+        try {
+            Path tempTrash = Paths.get(System.getProperty("java.io.tmpdir")).resolve(trashName);
+            return Files.move(absolutePath, tempTrash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // another file system, the move would copy the whole tree
+            return Files.move(absolutePath, absolutePath.resolveSibling(trashName), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * @param path The path to check
+     *
+     * @return True, if the given path is a trash folder
+     */
+    public static boolean isTrash(Path path) {
+        Path fileName = path.getFileName();
+
+        return null != fileName && fileName.toString().startsWith(TRASH_PREFIX);
+    }
+
+    /**
+     * Starts a separate JVM which deletes the given trash folder
+     * and outlives this process
+     *
+     * @param trash The trash folder to delete
+     *
+     * @throws IOException If the process could not be started
+     */
+    public static void purgeInBackground(Path trash)
+            throws IOException {
+        if (! isTrash(trash)) {
+            throw new IllegalArgumentException("Path " + trash + " is not a trash folder");
+        }
+
+        String javaBinary = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        File nullDevice = new File(System.getProperty("os.name").toLowerCase().startsWith("windows") ? "NUL" : "/dev/null");
+
+        List<String> command = new ArrayList<>();
+        command.add(javaBinary);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Client.class.getName());
+        command.add("clean");
+        command.add("--purge-trash");
+        command.add(trash.toString());
+
+        new ProcessBuilder(command)
+                .redirectInput(ProcessBuilder.Redirect.from(nullDevice))
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(nullDevice))
+                .redirectError(ProcessBuilder.Redirect.appendTo(nullDevice))
+                .start();
+    }
+}
@@ -0,0 +1,39 @@
+package org.rmatil.sync.client.dht;
+
+import java.util.UUID;
+
+public class FileIdEntry {
+
+    /**
+     * The path relative to the root of the synced folder
+     */
+    protected String path;
+
+    /**
+     * The file id or null, if none is registered
+     */
+    protected UUID fileId;
+
+    /**
+     * Whether the lookup of the file id failed
+     */
+    protected boolean failed;
+
+    public FileIdEntry(String path, UUID fileId, boolean failed) {
+        this.path = path;
+        this.fileId = fileId;
+        this.failed = failed;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public UUID getFileId() {
+        return fileId;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,220 @@
+package org.rmatil.sync.client.dht;
+
+import org.rmatil.sync.client.cache.LruTtlCache;
+import org.rmatil.sync.client.metrics.ClientMetrics;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.network.api.IIdentifierManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up the file ids of paths from the {@link IIdentifierManager}.
+ * <p>
+ * Lookups of a batch are issued concurrently, with at most {@code window}
+ * requests in flight. Found mappings are kept in a local {@link LruTtlCache}
+ * so that repeated lookups of the same path do not hit the DHT again until
+ * the time to live has passed.
+ * </p>
+ */
+public class FileIdLookup {
+
+    protected IIdentifierManager<String, UUID> identifierManager;
+
+    protected LruTtlCache<String, UUID> cache;
+
+    protected ExecutorService executorService;
+
+    /**
+     * Whether the executor has been created by this lookup and is shut down with it
+     */
+    protected boolean ownsExecutorService;
+
+    /**
+     * @param identifierManager The identifier manager to fetch the file ids from
+     * @param cacheTtl          The time to live of cached file ids in milliseconds
+     * @param cacheSize         The maximum number of cached file ids
+     * @param window            The maximum number of concurrent lookups
+     */
+    public FileIdLookup(IIdentifierManager<String, UUID> identifierManager, long cacheTtl, int cacheSize, int window) {
+        this(identifierManager, cacheTtl, cacheSize, createExecutorService(window));
+        this.ownsExecutorService = true;
+    }
+
+    /**
+     * @param identifierManager The identifier manager to fetch the file ids from
+     * @param cacheTtl          The time to live of cached file ids in milliseconds
+     * @param cacheSize         The maximum number of cached file ids
+     * @param executorService   The executor to run the lookups on, possibly shared with other lookups. Its size limits the number of concurrent lookups
+     */
+    public FileIdLookup(IIdentifierManager<String, UUID> identifierManager, long cacheTtl, int cacheSize, ExecutorService executorService) {
+        this.identifierManager = identifierManager;
+        this.cache = new LruTtlCache<>(cacheSize, cacheTtl);
+        this.executorService = executorService;
+        this.ownsExecutorService = false;
+    }
+
+    /**
+     * @param window The maximum number of concurrent lookups
+     *
+     * @return An executor suitable to run lookups on
+     */
+    public static ExecutorService createExecutorService(int window) {
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(window, runnable -> {
+            Thread thread = new Thread(runnable, "file-id-lookup-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up the file ids of all given paths concurrently.
+     * Cached file ids are returned without contacting the DHT.
+     *
+     * @param paths The paths relative to the root of the synced folder
+     *
+     * @return The entries in the same order as the given paths
+     *
+     * @throws InterruptedException If interrupted while waiting for the lookups
+     */
+    public List<FileIdEntry> getFileIds(List<String> paths)
+            throws InterruptedException {
+        List<FileIdEntry> entries = new ArrayList<>(paths.size());
+        List<Future<FileIdEntry>> futures = new ArrayList<>(paths.size());
+
+        for (String path : paths) {
+            UUID cached = this.cache.get(path);
+
+            if (null != cached) {
+                ClientMetrics.FILE_ID_CACHE_HITS.increment();
+                futures.add(null);
+                entries.add(new FileIdEntry(path, cached, false));
+            } else {
+                futures.add(this.executorService.submit(this.createLookup(path)));
+                entries.add(null);
+            }
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<FileIdEntry> future = futures.get(i);
+
+                if (null == future) {
+                    continue;
+                }
+
+                try {
+                    entries.set(i, future.get());
+                } catch (ExecutionException e) {
+                    entries.set(i, new FileIdEntry(paths.get(i), null, true));
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<FileIdEntry> future : futures) {
+                if (null != future) {
+                    future.cancel(true);
+                }
+            }
+
+            throw e;
+        }
+
+        return entries;
+    }
+
+    /**
+     * Looks up the file id of a single path
+     *
+     * @param path The path relative to the root of the synced folder
+     *
+     * @return The file id or null, if none is registered
+     *
+     * @throws Exception If the lookup failed
+     */
+    public UUID getFileId(String path)
+            throws Exception {
+        UUID fileId = this.cache.get(path);
+
+        if (null == fileId) {
+            fileId = this.timedFetch(path);
+
+            if (null != fileId) {
+                this.cache.put(path, fileId);
+            }
+        } else {
+            ClientMetrics.FILE_ID_CACHE_HITS.increment();
+        }
+
+        return fileId;
+    }
+
+    public LruTtlCache<String, UUID> getCache() {
+        return cache;
+    }
+
+    public void shutdown() {
+        if (this.ownsExecutorService) {
+            this.executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetches the file id from the identifier manager
+     *
+     * @param path The path relative to the root of the synced folder
+     *
+     * @return The file id or null, if none is registered
+     *
+     * @throws Exception If the lookup failed. The identifier manager does not narrow down its failures
+     */
+    protected UUID fetch(String path)
+            throws Exception {
+        return this.identifierManager.getValue(path);
+    }
+
+    /**
+     * Fetches the file id, recording the time taken and failures in the client metrics
+     *
+     * @param path The path relative to the root of the synced folder
+     *
+     * @return The file id or null, if none is registered
+     *
+     * @throws Exception If the lookup failed
+     */
+    protected UUID timedFetch(String path)
+            throws Exception {
+        long start = System.nanoTime();
+        ClientMetrics.FILE_ID_LOOKUPS_IN_FLIGHT.increment();
+
+        try (ITraceSpan ignored = Tracing.begin("file-ids", "lookup", path)) {
+            return this.fetch(path);
+        } catch (Exception e) {
+            ClientMetrics.FILE_ID_LOOKUP_FAILURES.increment();
+            throw e;
+        } finally {
+            ClientMetrics.FILE_ID_LOOKUPS_IN_FLIGHT.decrement();
+            ClientMetrics.FILE_ID_LOOKUP_LATENCY.recordSince(start);
+        }
+    }
+
+    protected Callable<FileIdEntry> createLookup(String path) {
+        return () -> {
+            UUID fileId = this.timedFetch(path);
+
+            if (null != fileId) {
+                this.cache.put(path, fileId);
+            }
+
+            return new FileIdEntry(path, fileId, false);
+        };
+    }
+}
@@ -4,16 +4,19 @@ import com.github.rvesse.airline.Cli;
 import com.github.rvesse.airline.SingleCommand;
 import com.github.rvesse.airline.parser.errors.ParseException;
 import org.rmatil.sync.client.command.ICliRunnable;
+import org.rmatil.sync.client.console.io.Output;
 
 public class CommandExecutor {
 
     private static <T extends ICliRunnable> void execute(T cmd) {
         try {
             int exitCode = cmd.run();
-            System.out.println();
-            System.out.println("Exiting with Code " + exitCode);
+            Output.newLine();
+            Output.println("Exiting with Code " + exitCode);
+            Output.flush();
             System.exit(exitCode);
         } catch (Throwable e) {
+            Output.flush();
             System.err.println("Command threw error: " + e.getMessage());
             e.printStackTrace(System.err);
         }
@@ -0,0 +1,82 @@
+package org.rmatil.sync.client.gc;
+
+import org.rmatil.sync.client.delete.DeleteFailure;
+
+import java.util.List;
+
+public class GcResult {
+
+    /**
+     * The number of objects which have been read to find references
+     */
+    protected long scannedObjects;
+
+    /**
+     * The number of unreferenced objects which have been removed
+     * (or would have been removed in a dry run)
+     */
+    protected long removedObjects;
+
+    /**
+     * The number of empty directories which have been removed
+     */
+    protected long removedDirectories;
+
+    /**
+     * The sum of the sizes of all removed objects
+     */
+    protected long freedBytes;
+
+    /**
+     * Whether the whole object store has been collected within the budget
+     */
+    protected boolean complete;
+
+    /**
+     * All objects which could not be removed
+     */
+    protected List<DeleteFailure> failures;
+
+    /**
+     * The wall clock time the collection took
+     */
+    protected long durationMillis;
+
+    public GcResult(long scannedObjects, long removedObjects, long removedDirectories, long freedBytes, boolean complete, List<DeleteFailure> failures, long durationMillis) {
+        this.scannedObjects = scannedObjects;
+        this.removedObjects = removedObjects;
+        this.removedDirectories = removedDirectories;
+        this.freedBytes = freedBytes;
+        this.complete = complete;
+        this.failures = failures;
+        this.durationMillis = durationMillis;
+    }
+
+    public long getScannedObjects() {
+        return scannedObjects;
+    }
+
+    public long getRemovedObjects() {
+        return removedObjects;
+    }
+
+    public long getRemovedDirectories() {
+        return removedDirectories;
+    }
+
+    public long getFreedBytes() {
+        return freedBytes;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<DeleteFailure> getFailures() {
+        return failures;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
@@ -0,0 +1,401 @@
+package org.rmatil.sync.client.gc;
+
+import org.rmatil.sync.client.delete.DeleteFailure;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes unreferenced objects from the object store of a synced folder.
+ * <p>
+ * The index and the object folder are located by the names of the core
+ * {@link org.rmatil.sync.core.config.Config}, which the object store of a synced
+ * folder is created with. Objects are identified by their hash, which is the name
+ * of their file without extension. An object is referenced if its hash is a string
+ * value of the index or of any other object. All objects are read to collect these
+ * references before anything is removed (mark), unreferenced objects older than a
+ * grace period are removed afterwards (sweep). Since garbage may reference other
+ * garbage, objects only referenced by removed objects are collected by subsequent runs.
+ * </p>
+ * <p>
+ * Before anything is swept, the layout of the object store is verified: each
+ * object file must be named by a hash, and each hash referenced by the index must
+ * resolve to an object. Otherwise the store is not laid out as expected and the
+ * collection is refused, since live objects could not be told apart from garbage.
+ * </p>
+ * <p>
+ * The sweep is bounded by a time and a deletion budget. If the budget is
+ * exhausted, the position is stored in the object store and the next run
+ * continues from there. The mark phase is not bounded, since nothing can be
+ * removed safely with incomplete references, and a bounded mark phase could
+ * prevent a large store from ever being collected.
+ * </p>
+ * <p>
+ * Note, that the node of the synced folder must not run while collecting
+ * (see {@link org.rmatil.sync.client.util.FolderLock}).
+ * </p>
+ */
+public class ObjectStoreCollector {
+
+    /**
+     * The file within the object store holding the position of an incomplete sweep
+     */
+    public static final String CURSOR_FILE_NAME = "client-gc.cursor";
+
+    /**
+     * Matches string values consisting of a hex encoded hash only, i.e. references to objects
+     */
+    protected static final Pattern REFERENCE_PATTERN = Pattern.compile("\"([0-9a-fA-F]{32,})\"");
+
+    /**
+     * Matches the hash of an object, i.e. its file name without extension
+     */
+    protected static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-fA-F]{32,}");
+
+    protected Path objectStoreFolder;
+
+    protected Path indexFile;
+
+    protected Path objectFolder;
+
+    protected Path cursorFile;
+
+    protected Set<String> references;
+
+    /**
+     * The hashes of all objects found while marking
+     */
+    protected Set<String> objectHashes;
+
+    protected long scannedObjects;
+
+    protected long removedObjects;
+
+    protected long removedDirectories;
+
+    protected long freedBytes;
+
+    protected List<DeleteFailure> failures;
+
+    protected long deadline;
+
+    protected long deleteBudget;
+
+    protected long minLastModified;
+
+    protected boolean dryRun;
+
+    protected List<String> cursor;
+
+    protected Path lastVisited;
+
+    /**
+     * @param objectStoreFolder The object store folder of the synced folder
+     */
+    public ObjectStoreCollector(Path objectStoreFolder) {
+        this.objectStoreFolder = objectStoreFolder;
+        this.indexFile = objectStoreFolder.resolve(org.rmatil.sync.core.config.Config.DEFAULT.getIndexFileName());
+        this.objectFolder = objectStoreFolder.resolve(org.rmatil.sync.core.config.Config.DEFAULT.getObjectFolderName());
+        this.cursorFile = objectStoreFolder.resolve(CURSOR_FILE_NAME);
+    }
+
+    /**
+     * Removes unreferenced objects within the given budget
+     *
+     * @param minAge      The minimum age in milliseconds of an object to be removed
+     * @param maxDuration The maximum time in milliseconds to spend on removing objects
+     * @param maxDeletes  The maximum number of objects to remove
+     * @param dryRun      Whether to only report which objects would be removed
+     *
+     * @return The result of the collection
+     *
+     * @throws IOException If the index or the object folder could not be read or the object store is not laid out as expected
+     */
+    public synchronized GcResult collect(long minAge, long maxDuration, long maxDeletes, boolean dryRun)
+            throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        this.references = new HashSet<>();
+        this.objectHashes = new HashSet<>();
+        this.scannedObjects = 0;
+        this.removedObjects = 0;
+        this.removedDirectories = 0;
+        this.freedBytes = 0;
+        this.failures = new ArrayList<>();
+        this.deadline = Long.MAX_VALUE;
+        this.deleteBudget = maxDeletes;
+        this.minLastModified = startTime - minAge;
+        this.dryRun = dryRun;
+        this.cursor = this.readCursor();
+        this.lastVisited = null;
+
+        if (! Files.isRegularFile(this.indexFile)) {
+            throw new IOException("Index " + this.indexFile + " does not exist. Refusing to collect without references");
+        }
+
+        if (! Files.isDirectory(this.objectFolder)) {
+            throw new IOException("Object folder " + this.objectFolder + " does not exist");
+        }
+
+        this.collectReferences(this.indexFile, null);
+        Set<String> indexReferences = new HashSet<>(this.references);
+
+        this.mark(this.objectFolder);
+
+        for (String hash : indexReferences) {
+            if (! this.objectHashes.contains(hash)) {
+                throw new IOException("Object " + hash + " referenced by the index does not exist in " + this.objectFolder + ". Refusing to collect an object store of an unknown layout");
+            }
+        }
+
+        // the budget only applies to the sweep, which can be resumed
+        this.deadline = System.currentTimeMillis() + maxDuration;
+        boolean complete = this.sweep(this.objectFolder);
+
+        if (! dryRun) {
+            if (complete) {
+                Files.deleteIfExists(this.cursorFile);
+            } else if (null != this.lastVisited) {
+                this.writeCursor(this.lastVisited);
+            }
+        }
+
+        return new GcResult(
+                this.scannedObjects,
+                this.removedObjects,
+                this.removedDirectories,
+                this.freedBytes,
+                complete,
+                this.failures,
+                System.currentTimeMillis() - startTime
+        );
+    }
+
+    /**
+     * Collects the references of all objects within the given directory
+     *
+     * @param directory The directory to scan
+     *
+     * @throws IOException If the directory could not be read
+     */
+    protected void mark(Path directory)
+            throws IOException {
+        for (Path child : this.list(directory)) {
+            if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                this.mark(child);
+                continue;
+            }
+
+            String hash = getHash(child);
+            if (! HASH_PATTERN.matcher(hash).matches()) {
+                throw new IOException("Object " + child + " is not named by its hash. Refusing to collect an object store of an unknown layout");
+            }
+
+            try {
+                this.collectReferences(child, hash);
+                this.objectHashes.add(hash);
+                this.scannedObjects++;
+            } catch (NoSuchFileException e) {
+                // removed concurrently
+            }
+        }
+    }
+
+    /**
+     * Removes all unreferenced objects within the given directory
+     * which are located after the cursor
+     *
+     * @param directory The directory to sweep
+     *
+     * @return False, if the budget has been exceeded
+     *
+     * @throws IOException If the directory could not be read
+     */
+    protected boolean sweep(Path directory)
+            throws IOException {
+        for (Path child : this.list(directory)) {
+            List<String> relativePath = toNames(this.objectFolder.relativize(child));
+
+            boolean isDirectory = Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS);
+
+            // skip everything swept by a previous run
+            if (null != this.cursor && compare(relativePath, this.cursor) <= 0 && ! (isDirectory && isPrefix(relativePath, this.cursor))) {
+                continue;
+            }
+
+            if (isDirectory) {
+                if (! this.sweep(child)) {
+                    return false;
+                }
+
+                this.removeIfEmpty(child);
+                continue;
+            }
+
+            if (System.currentTimeMillis() > this.deadline || this.removedObjects >= this.deleteBudget) {
+                return false;
+            }
+
+            this.lastVisited = child;
+
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+
+            if (this.references.contains(getHash(child)) || attributes.lastModifiedTime().toMillis() > this.minLastModified) {
+                continue;
+            }
+
+            try {
+                if (! this.dryRun) {
+                    Files.delete(child);
+                }
+
+                this.removedObjects++;
+                this.freedBytes += attributes.size();
+            } catch (NoSuchFileException e) {
+                // removed concurrently
+            } catch (IOException e) {
+                this.failures.add(new DeleteFailure(child, e.toString()));
+            }
+        }
+
+        return true;
+    }
+
+    protected void collectReferences(Path file, String ownHash)
+            throws IOException {
+        // hashes are plain ascii, hence the cheapest charset to decode
+        String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+
+        Matcher matcher = REFERENCE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            String hash = matcher.group(1).toLowerCase();
+
+            // an object referencing itself does not keep it alive
+            if (! hash.equals(ownHash)) {
+                this.references.add(hash);
+            }
+        }
+    }
+
+    protected void removeIfEmpty(Path directory) {
+        if (this.dryRun) {
+            return;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            if (stream.iterator().hasNext()) {
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+
+        try {
+            Files.delete(directory);
+            this.removedDirectories++;
+        } catch (IOException e) {
+            // not empty anymore or removed concurrently
+        }
+    }
+
+    /**
+     * @param directory The directory to list
+     *
+     * @return The contents of the directory, sorted by name to allow resuming a sweep
+     *
+     * @throws IOException If the directory could not be read
+     */
+    protected List<Path> list(Path directory)
+            throws IOException {
+        List<Path> children = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                children.add(child);
+            }
+        }
+
+        children.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+
+        return children;
+    }
+
+    protected List<String> readCursor() {
+        try {
+            if (! Files.isRegularFile(this.cursorFile)) {
+                return null;
+            }
+
+            String cursor = new String(Files.readAllBytes(this.cursorFile), StandardCharsets.UTF_8).trim();
+
+            return cursor.isEmpty() ? null : toNames(this.objectFolder.getFileSystem().getPath(cursor));
+        } catch (IOException | RuntimeException e) {
+            // start over
+            return null;
+        }
+    }
+
+    protected void writeCursor(Path lastVisited)
+            throws IOException {
+        Path tmpFile = this.cursorFile.resolveSibling(CURSOR_FILE_NAME + ".tmp");
+        Files.write(tmpFile, this.objectFolder.relativize(lastVisited).toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmpFile, this.cursorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param object The path to the object
+     *
+     * @return The hash of the object, i.e. its file name without extension
+     */
+    protected static String getHash(Path object) {
+        String fileName = object.getFileName().toString();
+        int extension = fileName.indexOf('.');
+
+        return (extension > 0 ? fileName.substring(0, extension) : fileName).toLowerCase();
+    }
+
+    protected static List<String> toNames(Path path) {
+        List<String> names = new ArrayList<>();
+        for (Path name : path) {
+            names.add(name.toString());
+        }
+
+        return names;
+    }
+
+    /**
+     * Compares paths name by name, which corresponds to the order of a sorted walk
+     */
+    protected static int compare(List<String> a, List<String> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int comparison = a.get(i).compareTo(b.get(i));
+            if (0 != comparison) {
+                return comparison;
+            }
+        }
+
+        return Integer.compare(a.size(), b.size());
+    }
+
+    protected static boolean isPrefix(List<String> prefix, List<String> path) {
+        return prefix.size() < path.size() && prefix.equals(path.subList(0, prefix.size()));
+    }
+}
@@ -0,0 +1,323 @@
+package org.rmatil.sync.client.index;
+
+import org.rmatil.sync.client.dht.FileIdEntry;
+import org.rmatil.sync.client.dht.FileIdLookup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A persistent index of path to file id mappings, kept in the object store folder.
+ * <p>
+ * Each mapping remembers the {@link FileStamp} (modification time, size and file key)
+ * of the element at the moment its file id has been fetched. On {@link FileIdIndex#resolve(Map)},
+ * only paths which are unknown to the index or whose stamp changed since are looked up
+ * in the DHT, all others are answered from memory.
+ * </p>
+ * <p>
+ * Entries of removed elements are pruned after a complete walk of the synced folder
+ * without collecting all of its paths: each resolved entry is marked with the current
+ * generation, which is advanced by {@link FileIdIndex#nextGeneration()} when the walk
+ * starts. Entries not marked during the walk are dropped by {@link FileIdIndex#prune(long)}.
+ * </p>
+ * <p>
+ * The index file is read and written as a buffered stream. It consists of a header
+ * (magic number, version, number of entries) followed by the entries, each made of
+ * the length of the UTF-8 encoded path, the path itself, the two halves of the file id,
+ * the modification time, the size and the file key (its length, -1 if there is none,
+ * followed by the UTF-8 encoded key). Writes go to a temporary file which atomically
+ * replaces the index afterwards, so that a crash never leaves a partially written index
+ * behind. An unreadable index or one of another version is discarded and rebuilt.
+ * </p>
+ */
+public class FileIdIndex {
+
+    public static final String INDEX_FILE_NAME = "client-fileid.index";
+
+    protected static final int MAGIC = 0x46494458;
+
+    protected static final int VERSION = 2;
+
+    /**
+     * The size of the buffer used to read and write the index
+     */
+    protected static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    protected static class IndexEntry {
+
+        protected UUID fileId;
+
+        protected FileStamp stamp;
+
+        /**
+         * The generation in which the entry has been resolved last. Not persisted
+         */
+        protected long generation;
+
+        protected IndexEntry(UUID fileId, FileStamp stamp) {
+            this.fileId = fileId;
+            this.stamp = stamp;
+        }
+    }
+
+    protected Path indexFile;
+
+    protected FileIdLookup fileIdLookup;
+
+    protected Map<String, IndexEntry> entries;
+
+    protected boolean dirty;
+
+    protected long generation;
+
+    /**
+     * @param objectStoreFolder The object store folder to keep the index in
+     * @param fileIdLookup      The lookup to fetch unknown or changed file ids with
+     */
+    public FileIdIndex(Path objectStoreFolder, FileIdLookup fileIdLookup) {
+        this.indexFile = objectStoreFolder.resolve(INDEX_FILE_NAME);
+        this.fileIdLookup = fileIdLookup;
+        this.entries = new HashMap<>();
+        this.dirty = false;
+        this.generation = 0L;
+    }
+
+    /**
+     * Loads the index from disk. A missing or unreadable index results in an empty index.
+     */
+    public synchronized void load() {
+        this.entries.clear();
+        this.dirty = false;
+
+        if (! Files.exists(this.indexFile)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.indexFile), STREAM_BUFFER_SIZE))) {
+            Map<String, IndexEntry> loaded = read(in);
+
+            if (null == loaded) {
+                this.dirty = true;
+                return;
+            }
+
+            this.entries = loaded;
+        } catch (IOException | NegativeArraySizeException e) {
+            // the index is only a cache of the DHT, so just rebuild it
+            this.entries.clear();
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Writes the index to disk, if it has been changed since it was loaded or saved
+     *
+     * @throws IOException If the index could not be written
+     */
+    public synchronized void save()
+            throws IOException {
+        if (! this.dirty) {
+            return;
+        }
+
+        Path tmpFile = this.indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), STREAM_BUFFER_SIZE));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.entries.size());
+
+            for (Map.Entry<String, IndexEntry> entry : this.entries.entrySet()) {
+                byte[] pathBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                IndexEntry value = entry.getValue();
+
+                out.writeInt(pathBytes.length);
+                out.write(pathBytes);
+                out.writeLong(value.fileId.getMostSignificantBits());
+                out.writeLong(value.fileId.getLeastSignificantBits());
+                out.writeLong(value.stamp.getLastModified());
+                out.writeLong(value.stamp.getSize());
+
+                if (null != value.stamp.getFileKey()) {
+                    byte[] fileKeyBytes = value.stamp.getFileKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(fileKeyBytes.length);
+                    out.write(fileKeyBytes);
+                } else {
+                    out.writeInt(- 1);
+                }
+            }
+
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(tmpFile, this.indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.dirty = false;
+    }
+
+    /**
+     * @param in The stream of the index file
+     *
+     * @return The entries or null, if the file is not an index of this version
+     *
+     * @throws IOException If the index is truncated or could not be read
+     */
+    protected static Map<String, IndexEntry> read(DataInputStream in)
+            throws IOException {
+        if (MAGIC != in.readInt() || VERSION != in.readInt()) {
+            return null;
+        }
+
+        int count = in.readInt();
+        Map<String, IndexEntry> loaded = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+
+        for (int i = 0; i < count; i++) {
+            byte[] pathBytes = new byte[in.readInt()];
+            in.readFully(pathBytes);
+
+            UUID fileId = new UUID(in.readLong(), in.readLong());
+            long lastModified = in.readLong();
+            long size = in.readLong();
+
+            String fileKey = null;
+            int fileKeyLength = in.readInt();
+            if (fileKeyLength >= 0) {
+                byte[] fileKeyBytes = new byte[fileKeyLength];
+                in.readFully(fileKeyBytes);
+                fileKey = new String(fileKeyBytes, StandardCharsets.UTF_8);
+            }
+
+            loaded.put(new String(pathBytes, StandardCharsets.UTF_8), new IndexEntry(fileId, new FileStamp(lastModified, size, fileKey)));
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Resolves the file ids of the given paths. Paths whose stamp did not change
+     * since they were indexed are answered from the index, all others are looked
+     * up concurrently in the DHT and indexed afterwards.
+     *
+     * @param stamps The paths relative to the synced folder mapped to their current stamp
+     *
+     * @return The file ids, in the iteration order of the given map
+     *
+     * @throws InterruptedException If interrupted while waiting for the DHT
+     */
+    public List<FileIdEntry> resolve(Map<String, FileStamp> stamps)
+            throws InterruptedException {
+        List<FileIdEntry> resolved = new ArrayList<>(stamps.size());
+        List<String> stale = new ArrayList<>();
+
+        synchronized (this) {
+            for (Map.Entry<String, FileStamp> element : stamps.entrySet()) {
+                IndexEntry entry = this.entries.get(element.getKey());
+
+                if (null != entry) {
+                    // the element still exists
+                    entry.generation = this.generation;
+                }
+
+                if (null != entry && entry.stamp.equals(element.getValue())) {
+                    resolved.add(new FileIdEntry(element.getKey(), entry.fileId, false));
+                } else {
+                    resolved.add(null);
+                    stale.add(element.getKey());
+                }
+            }
+        }
+
+        if (stale.isEmpty()) {
+            return resolved;
+        }
+
+        List<FileIdEntry> fetched = this.fileIdLookup.getFileIds(stale);
+
+        synchronized (this) {
+            int fetchedIdx = 0;
+            for (int i = 0; i < resolved.size(); i++) {
+                if (null != resolved.get(i)) {
+                    continue;
+                }
+
+                FileIdEntry entry = fetched.get(fetchedIdx++);
+                resolved.set(i, entry);
+
+                if (entry.isFailed()) {
+                    continue;
+                }
+
+                if (null != entry.getFileId()) {
+                    IndexEntry indexEntry = new IndexEntry(entry.getFileId(), stamps.get(entry.getPath()));
+                    indexEntry.generation = this.generation;
+                    this.entries.put(entry.getPath(), indexEntry);
+                } else {
+                    this.entries.remove(entry.getPath());
+                }
+
+                this.dirty = true;
+            }
+        }
+
+        return resolved;
+    }
+
+    /**
+     * @param path The path relative to the synced folder
+     *
+     * @return The indexed file id or null, if the path is not indexed
+     */
+    public synchronized UUID getFileId(String path) {
+        IndexEntry entry = this.entries.get(path);
+
+        return (null != entry) ? entry.fileId : null;
+    }
+
+    /**
+     * Starts a new generation. All entries resolved from now on are marked with it
+     *
+     * @return The new generation, to pass to {@link FileIdIndex#prune(long)} once all existing paths have been resolved
+     */
+    public synchronized long nextGeneration() {
+        return ++ this.generation;
+    }
+
+    /**
+     * Removes all entries which have not been resolved since the given generation has been started,
+     * i.e. whose elements have been removed. Must only be invoked after all existing paths have been resolved
+     *
+     * @param generation The generation returned by {@link FileIdIndex#nextGeneration()} before resolving all paths
+     *
+     * @return The number of removed entries
+     */
+    public synchronized int prune(long generation) {
+        int sizeBefore = this.entries.size();
+
+        if (this.entries.values().removeIf(entry -> entry.generation < generation)) {
+            this.dirty = true;
+        }
+
+        return sizeBefore - this.entries.size();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+}
@@ -0,0 +1,86 @@
+package org.rmatil.sync.client.index;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * The attributes of an element in the synced folder which tell
+ * whether its indexed file id may still be used.
+ * <p>
+ * The modification time alone is not sufficient: a file moved over an
+ * indexed path keeps its own modification time, which may equal the one
+ * of the replaced file. The size and the file key (e.g. the inode) of the
+ * element are therefore compared as well.
+ * </p>
+ */
+public class FileStamp {
+
+    /**
+     * The stamp of an element which does not exist
+     */
+    public static final FileStamp MISSING = new FileStamp(- 1L, - 1L, null);
+
+    protected long lastModified;
+
+    protected long size;
+
+    /**
+     * The file key as string or null, if the file system does not provide one
+     */
+    protected String fileKey;
+
+    public FileStamp(long lastModified, long size, String fileKey) {
+        this.lastModified = lastModified;
+        this.size = size;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * @param attributes The attributes of the element
+     *
+     * @return The stamp of the element
+     */
+    public static FileStamp of(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+
+        return new FileStamp(
+                attributes.lastModifiedTime().toMillis(),
+                attributes.isDirectory() ? 0L : attributes.size(),
+                (null != fileKey) ? fileKey.toString() : null
+        );
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (! (o instanceof FileStamp)) {
+            return false;
+        }
+
+        FileStamp other = (FileStamp) o;
+
+        return this.lastModified == other.lastModified &&
+                this.size == other.size &&
+                Objects.equals(this.fileKey, other.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.lastModified, this.size, this.fileKey);
+    }
+}
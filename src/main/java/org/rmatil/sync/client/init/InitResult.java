@@ -0,0 +1,43 @@
+package org.rmatil.sync.client.init;
+
+import java.nio.file.Path;
+
+public class InitResult {
+
+    /**
+     * The initialised sync folder
+     */
+    protected Path syncFolder;
+
+    /**
+     * The time in milliseconds it took to initialise the folder
+     */
+    protected long durationMillis;
+
+    /**
+     * The reason why the folder could not be initialised or null, if it has been initialised
+     */
+    protected String failure;
+
+    public InitResult(Path syncFolder, long durationMillis, String failure) {
+        this.syncFolder = syncFolder;
+        this.durationMillis = durationMillis;
+        this.failure = failure;
+    }
+
+    public Path getSyncFolder() {
+        return syncFolder;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public boolean isFailed() {
+        return null != this.failure;
+    }
+}
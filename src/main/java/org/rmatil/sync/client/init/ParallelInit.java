@@ -0,0 +1,133 @@
+package org.rmatil.sync.client.init;
+
+import org.rmatil.sync.core.Sync;
+import org.rmatil.sync.persistence.core.tree.local.LocalStorageAdapter;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Initialises several sync folders concurrently, with at most
+ * {@code parallelism} folders being initialised at the same time.
+ * <p>
+ * A folder which fails to initialise does not abort the others,
+ * its failure is reported in its result instead.
+ * </p>
+ * <p>
+ * {@link Sync#init} keeps its state in the object store within the folder it
+ * initialises, so that folders which are disjoint can be initialised concurrently.
+ * Folders which overlap, i.e. one contains the other, are initialised one
+ * after another once the disjoint ones are done, since the outer folder would
+ * otherwise index the object store of the inner one while it is being written.
+ * </p>
+ */
+public class ParallelInit {
+
+    protected int parallelism;
+
+    /**
+     * @param parallelism The maximum number of folders initialised concurrently
+     */
+    public ParallelInit(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Initialises all given sync folders
+     *
+     * @param syncFolders The existing folders to initialise
+     *
+     * @return The results in the order of the given folders
+     *
+     * @throws InterruptedException If interrupted while waiting for the initialisation. Folders not initialised yet are skipped
+     */
+    public List<InitResult> init(List<Path> syncFolders)
+            throws InterruptedException {
+        if (syncFolders.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(this.parallelism, syncFolders.size()), runnable -> {
+            Thread thread = new Thread(runnable, "init-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<InitResult>> futures = new ArrayList<>(syncFolders.size());
+            for (Path syncFolder : syncFolders) {
+                futures.add(overlapsOther(syncFolder, syncFolders) ? null : executorService.submit(() -> this.init(syncFolder)));
+            }
+
+            List<InitResult> results = new ArrayList<>(syncFolders.size());
+            for (int i = 0; i < futures.size(); i++) {
+                if (null == futures.get(i)) {
+                    // initialised below
+                    results.add(null);
+                    continue;
+                }
+
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new InitResult(syncFolders.get(i), 0L, String.valueOf(e.getCause())));
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                if (null == results.get(i)) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    results.set(i, this.init(syncFolders.get(i)));
+                }
+            }
+
+            return results;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @param syncFolder  The folder to check
+     * @param syncFolders All folders to initialise
+     *
+     * @return True, if the folder contains or is contained in another one of the given folders
+     */
+    protected static boolean overlapsOther(Path syncFolder, List<Path> syncFolders) {
+        for (Path other : syncFolders) {
+            if (! other.equals(syncFolder) && (other.startsWith(syncFolder) || syncFolder.startsWith(other))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected InitResult init(Path syncFolder) {
+        long start = System.nanoTime();
+
+        String failure = null;
+        try {
+            Sync.init(new LocalStorageAdapter(syncFolder));
+        } catch (InputOutputException | RuntimeException e) {
+            failure = (null != e.getMessage()) ? e.getMessage() : e.getClass().getName();
+        }
+
+        return new InitResult(syncFolder, (System.nanoTime() - start) / 1_000_000L, failure);
+    }
+}
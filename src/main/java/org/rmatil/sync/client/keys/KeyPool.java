@@ -0,0 +1,316 @@
+package org.rmatil.sync.client.keys;
+
+import org.rmatil.sync.client.config.Config;
+import org.rmatil.sync.client.util.FileUtils;
+import org.rmatil.sync.client.util.SecurityUtils;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A pool of pre-generated key pairs, persisted in a file in the config folder.
+ * <p>
+ * Generating a key pair is by far the most expensive part of setting up a client.
+ * The pool is filled in the background while a node is running (see
+ * {@link KeyPool#fillInBackground(int)}), so that a new key pair can be
+ * taken from it instantly once requested. Taken key pairs are removed from
+ * the pool, i.e. a key pair is never handed out twice.
+ * </p>
+ * <p>
+ * Each line of the pool file holds the algorithm, the key size and the Base64
+ * encoded public (X.509) and private (PKCS#8) key. Entries of another algorithm
+ * or key size are kept, but not handed out. The file is readable by its owner
+ * only and replaced atomically on each change. Processes sharing the pool
+ * are excluded by a lock file next to it.
+ * </p>
+ */
+public class KeyPool {
+
+    /**
+     * The suffix of the lock file, appended to the name of the pool file
+     */
+    public static final String LOCK_FILE_SUFFIX = ".lock";
+
+    protected Path poolFile;
+
+    protected Path lockFile;
+
+    protected String algorithm;
+
+    protected int keySize;
+
+    /**
+     * @param poolFile  The file holding the pool
+     * @param algorithm The algorithm of the key pairs
+     * @param keySize   The size of the key pairs in bits
+     */
+    public KeyPool(Path poolFile, String algorithm, int keySize) {
+        this.poolFile = poolFile;
+        this.lockFile = poolFile.resolveSibling(poolFile.getFileName() + LOCK_FILE_SUFFIX);
+        this.algorithm = algorithm;
+        this.keySize = keySize;
+    }
+
+    /**
+     * @param configDir The folder of the application config
+     * @param keySize   The size of the key pairs in bits
+     *
+     * @return The pool of the given config folder, holding key pairs of the configured algorithm
+     */
+    public static KeyPool forConfigDir(Path configDir, int keySize) {
+        return new KeyPool(configDir.resolve(Config.DEFAULT.getKeyPoolFileName()), Config.DEFAULT.getKeyAlgorithm(), keySize);
+    }
+
+    public Path getPoolFile() {
+        return poolFile;
+    }
+
+    /**
+     * Removes a key pair from the pool
+     *
+     * @return The key pair or null, if the pool does not hold a key pair of the requested algorithm and size
+     *
+     * @throws IOException If the pool could not be read or written
+     */
+    public KeyPair take()
+            throws IOException {
+        synchronized (KeyPool.class) {
+            try (FileLock ignored = this.lock()) {
+                List<String> lines = this.read();
+                List<String> remaining = new ArrayList<>(lines.size());
+                KeyPair keyPair = null;
+
+                for (String line : lines) {
+                    if (null == keyPair && this.matches(line)) {
+                        keyPair = this.decode(line);
+
+                        // an undecodable entry is dropped
+                        continue;
+                    }
+
+                    remaining.add(line);
+                }
+
+                if (remaining.size() != lines.size()) {
+                    this.write(remaining);
+                }
+
+                return keyPair;
+            }
+        }
+    }
+
+    /**
+     * Removes a key pair from the pool or generates a new one, if the pool is empty
+     *
+     * @return The key pair
+     *
+     * @throws IOException              If the pool could not be read or written
+     * @throws NoSuchAlgorithmException If the algorithm is not supported
+     */
+    public KeyPair takeOrGenerate()
+            throws IOException, NoSuchAlgorithmException {
+        KeyPair keyPair = this.take();
+
+        if (null == keyPair) {
+            keyPair = this.generate();
+        }
+
+        return keyPair;
+    }
+
+    /**
+     * Generates a new key pair without adding it to the pool
+     *
+     * @return The generated key pair
+     *
+     * @throws NoSuchAlgorithmException If the algorithm is not supported
+     */
+    public KeyPair generate()
+            throws NoSuchAlgorithmException {
+        // only pay for loading bouncy castle if keys are generated
+        SecurityUtils.registerBouncyCastle();
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(this.algorithm);
+        keyPairGenerator.initialize(this.keySize);
+
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    /**
+     * @return The number of key pairs of the requested algorithm and size in the pool
+     *
+     * @throws IOException If the pool could not be read
+     */
+    public int size()
+            throws IOException {
+        synchronized (KeyPool.class) {
+            try (FileLock ignored = this.lock()) {
+                int size = 0;
+                for (String line : this.read()) {
+                    if (this.matches(line)) {
+                        size++;
+                    }
+                }
+
+                return size;
+            }
+        }
+    }
+
+    /**
+     * Generates key pairs until the pool holds at least the given number of them.
+     * The key pairs are generated without holding the lock, so that the pool
+     * can be used concurrently.
+     *
+     * @param target The number of key pairs the pool should hold
+     *
+     * @return The number of generated key pairs
+     *
+     * @throws IOException              If the pool could not be read or written
+     * @throws NoSuchAlgorithmException If the algorithm is not supported
+     * @throws InterruptedException     If interrupted between two key pairs
+     */
+    public int fill(int target)
+            throws IOException, NoSuchAlgorithmException, InterruptedException {
+        int generated = 0;
+
+        while (this.size() < target) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            String line = this.encode(this.generate());
+
+            synchronized (KeyPool.class) {
+                try (FileLock ignored = this.lock()) {
+                    List<String> lines = this.read();
+                    lines.add(line);
+                    this.write(lines);
+                }
+            }
+
+            generated++;
+        }
+
+        return generated;
+    }
+
+    /**
+     * Fills the pool on a background thread with low priority. Failures are ignored,
+     * since the pool is only an optimisation: keys are generated on demand if it is empty
+     *
+     * @param target The number of key pairs the pool should hold
+     *
+     * @return The started thread. Interrupt it to stop filling after the current key pair
+     */
+    public Thread fillInBackground(int target) {
+        Thread thread = new Thread(() -> {
+            try {
+                this.fill(target);
+            } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+                // keys are generated on demand instead
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "key-pool-filler");
+
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+
+        return thread;
+    }
+
+    protected FileLock lock()
+            throws IOException {
+        Files.createDirectories(this.poolFile.toAbsolutePath().getParent());
+
+        FileChannel channel = FileChannel.open(this.lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            // closing the channel releases the lock
+            return channel.lock();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    protected List<String> read()
+            throws IOException {
+        List<String> lines = new ArrayList<>();
+
+        if (! Files.exists(this.poolFile)) {
+            return lines;
+        }
+
+        for (String line : Files.readAllLines(this.poolFile, StandardCharsets.UTF_8)) {
+            if (! line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+
+        return lines;
+    }
+
+    protected void write(List<String> lines)
+            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+
+        FileUtils.writeAtomically(this.poolFile, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected boolean matches(String line) {
+        String[] parts = line.split(" ");
+
+        return 4 == parts.length && this.algorithm.equals(parts[0]) && String.valueOf(this.keySize).equals(parts[1]);
+    }
+
+    protected String encode(KeyPair keyPair) {
+        Base64.Encoder encoder = Base64.getEncoder();
+
+        return this.algorithm + " " +
+                this.keySize + " " +
+                encoder.encodeToString(keyPair.getPublic().getEncoded()) + " " +
+                encoder.encodeToString(keyPair.getPrivate().getEncoded());
+    }
+
+    /**
+     * @param line A matching line of the pool
+     *
+     * @return The key pair or null, if the line could not be decoded
+     */
+    protected KeyPair decode(String line) {
+        String[] parts = line.split(" ");
+        Base64.Decoder decoder = Base64.getDecoder();
+
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(this.algorithm);
+
+            return new KeyPair(
+                    keyFactory.generatePublic(new X509EncodedKeySpec(decoder.decode(parts[2]))),
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decoder.decode(parts[3])))
+            );
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
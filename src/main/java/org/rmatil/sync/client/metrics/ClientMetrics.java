@@ -0,0 +1,94 @@
+package org.rmatil.sync.client.metrics;
+
+import org.rmatil.sync.network.api.IUserManager;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+/**
+ * The metrics of the calls the client makes to the sync library
+ */
+public class ClientMetrics {
+
+    public static final Histogram SHARE_LATENCY = MetricsRegistry.getDefault().histogram(
+            "sync_client_share_seconds",
+            "Time taken by the sharing syncer to share or unshare a single element"
+    );
+
+    public static final Counter SHARE_FAILURES = MetricsRegistry.getDefault().counter(
+            "sync_client_share_failures_total",
+            "Number of elements which could not be shared or unshared"
+    );
+
+    public static final Gauge SHARES_IN_FLIGHT = MetricsRegistry.getDefault().gauge(
+            "sync_client_shares_in_flight",
+            "Number of elements currently being shared or unshared"
+    );
+
+    public static final Histogram FILE_ID_LOOKUP_LATENCY = MetricsRegistry.getDefault().histogram(
+            "sync_client_file_id_lookup_seconds",
+            "Time taken to look up the file id of a path in the DHT"
+    );
+
+    public static final Counter FILE_ID_LOOKUP_FAILURES = MetricsRegistry.getDefault().counter(
+            "sync_client_file_id_lookup_failures_total",
+            "Number of file id lookups in the DHT which failed"
+    );
+
+    public static final Counter FILE_ID_CACHE_HITS = MetricsRegistry.getDefault().counter(
+            "sync_client_file_id_cache_hits_total",
+            "Number of file ids answered from the cache without contacting the DHT"
+    );
+
+    public static final Gauge FILE_ID_LOOKUPS_IN_FLIGHT = MetricsRegistry.getDefault().gauge(
+            "sync_client_file_id_lookups_in_flight",
+            "Number of file id lookups waiting for the DHT"
+    );
+
+    public static final Histogram NODE_LOCATIONS_LATENCY = MetricsRegistry.getDefault().histogram(
+            "sync_client_node_locations_seconds",
+            "Time taken to fetch the node locations of a user from the DHT"
+    );
+
+    public static final Counter NODE_LOCATIONS_FAILURES = MetricsRegistry.getDefault().counter(
+            "sync_client_node_locations_failures_total",
+            "Number of node location fetches which failed"
+    );
+
+    public static final Histogram IS_REGISTERED_LATENCY = MetricsRegistry.getDefault().histogram(
+            "sync_client_is_registered_seconds",
+            "Time taken to check whether a user is registered"
+    );
+
+    public static final Counter IS_REGISTERED_FAILURES = MetricsRegistry.getDefault().counter(
+            "sync_client_is_registered_failures_total",
+            "Number of checks whether a user is registered which failed"
+    );
+
+    public static final Counter USER_CACHE_HITS = MetricsRegistry.getDefault().counter(
+            "sync_client_user_cache_hits_total",
+            "Number of checks whether a user is registered answered from the cache"
+    );
+
+    /**
+     * Checks whether the given user is registered, measuring the time taken
+     *
+     * @param userManager The user manager to ask
+     * @param username    The user to check
+     *
+     * @return True, if the user is registered
+     *
+     * @throws InputOutputException If the check failed
+     */
+    public static boolean isRegistered(IUserManager userManager, String username)
+            throws InputOutputException {
+        long start = System.nanoTime();
+
+        try {
+            return userManager.isRegistered(username);
+        } catch (InputOutputException | RuntimeException e) {
+            IS_REGISTERED_FAILURES.increment();
+            throw e;
+        } finally {
+            IS_REGISTERED_LATENCY.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.rmatil.sync.client.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Increments from many threads
+ * do not contend, since they are spread over several cells
+ */
+public class Counter implements IMetric {
+
+    protected String name;
+
+    protected String help;
+
+    protected LongAdder count;
+
+    public Counter(String name, String help) {
+        this.name = name;
+        this.help = help;
+        this.count = new LongAdder();
+    }
+
+    public void increment() {
+        this.count.increment();
+    }
+
+    public void add(long amount) {
+        this.count.add(amount);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getHelp() {
+        return help;
+    }
+}
@@ -0,0 +1,43 @@
+package org.rmatil.sync.client.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A value which may go up and down, e.g. the number of operations in flight
+ */
+public class Gauge implements IMetric {
+
+    protected String name;
+
+    protected String help;
+
+    protected LongAdder value;
+
+    public Gauge(String name, String help) {
+        this.name = name;
+        this.help = help;
+        this.value = new LongAdder();
+    }
+
+    public void increment() {
+        this.value.increment();
+    }
+
+    public void decrement() {
+        this.value.decrement();
+    }
+
+    public long getValue() {
+        return this.value.sum();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getHelp() {
+        return help;
+    }
+}
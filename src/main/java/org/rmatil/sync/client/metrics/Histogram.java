@@ -0,0 +1,193 @@
+package org.rmatil.sync.client.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the distribution of durations without locking.
+ * <p>
+ * Values are counted in log-linear buckets: each power of two is split into
+ * {@link Histogram#SUB_BUCKETS} buckets of equal width, so that percentiles
+ * are estimated with a relative error of at most 12.5%, independent of the
+ * magnitude of the values. Recording a value is a single atomic increment
+ * of its bucket, plus the updates of the total and the maximum.
+ * </p>
+ */
+public class Histogram implements IMetric {
+
+    /**
+     * The number of buckets each power of two is split into
+     */
+    public static final int SUB_BUCKETS = 8;
+
+    protected static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Enough buckets for all positive long values
+     */
+    protected static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    protected String name;
+
+    protected String help;
+
+    protected AtomicLongArray buckets;
+
+    protected LongAdder count;
+
+    protected LongAdder sum;
+
+    protected LongAccumulator max;
+
+    public Histogram(String name, String help) {
+        this.name = name;
+        this.help = help;
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0L);
+    }
+
+    /**
+     * @param nanos The duration to record in nanoseconds. Negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.increment();
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+
+    /**
+     * Records the time passed since the given start
+     *
+     * @param startNanos The start as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        this.record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * @return The sum of all recorded durations in nanoseconds
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * @return The longest recorded duration in nanoseconds
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Estimates the given percentile. Since buckets are read one after another
+     * while values might be recorded concurrently, the result is approximate
+     *
+     * @param percentile The percentile between 0 and 1, e.g. 0.99
+     *
+     * @return The estimated duration in nanoseconds or 0, if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        return this.getPercentileSince(null, percentile);
+    }
+
+    /**
+     * @return The number of values recorded in each bucket so far, to compute
+     * percentiles of the values recorded afterwards (see {@link Histogram#getPercentileSince(long[], double)})
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = this.buckets.get(i);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Estimates the given percentile of the values recorded since the given buckets have been taken
+     *
+     * @param since      The buckets as returned by {@link Histogram#getBuckets()} or null, to include all values
+     * @param percentile The percentile between 0 and 1, e.g. 0.99
+     *
+     * @return The estimated duration in nanoseconds or 0, if nothing has been recorded since
+     */
+    public long getPercentileSince(long[] since, double percentile) {
+        long[] counts = this.getBuckets();
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (null != since) {
+                counts[i] -= since[i];
+            }
+            total += counts[i];
+        }
+
+        if (0 == total) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                // the middle of the bucket, but never more than the maximum seen
+                return Math.min(this.getMax(), lowerBoundOf(i) + (upperBoundOf(i) - lowerBoundOf(i)) / 2);
+            }
+        }
+
+        return this.getMax();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getHelp() {
+        return help;
+    }
+
+    protected static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    protected static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    protected static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+
+        return lowerBoundOf(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
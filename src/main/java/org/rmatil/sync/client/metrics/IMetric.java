@@ -0,0 +1,14 @@
+package org.rmatil.sync.client.metrics;
+
+public interface IMetric {
+
+    /**
+     * @return The name of the metric, following the Prometheus naming conventions
+     */
+    String getName();
+
+    /**
+     * @return A description of what is measured
+     */
+    String getHelp();
+}
@@ -0,0 +1,20 @@
+package org.rmatil.sync.client.metrics;
+
+import java.util.Map;
+
+/**
+ * Exposes the client metrics over JMX, e.g. to JConsole or VisualVM
+ */
+public interface IMetricsMXBean {
+
+    /**
+     * @return The current value of each counter and gauge, and for each histogram
+     * its count, sum, 50th, 90th and 99th percentile and maximum, in seconds
+     */
+    Map<String, Double> getValues();
+
+    /**
+     * @return The metrics in the Prometheus text format
+     */
+    String getText();
+}
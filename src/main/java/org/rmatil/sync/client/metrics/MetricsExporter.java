@@ -0,0 +1,114 @@
+package org.rmatil.sync.client.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the metrics of a registry, either as values for JMX
+ * or in the text format of Prometheus
+ */
+public class MetricsExporter implements IMetricsMXBean {
+
+    /**
+     * The name the exporter is registered with on the platform MBean server
+     */
+    public static final String OBJECT_NAME = "org.rmatil.sync.client:type=Metrics";
+
+    /**
+     * The percentiles reported for each histogram
+     */
+    protected static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+    protected static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    protected MetricsRegistry registry;
+
+    public MetricsExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers the exporter on the platform MBean server, if not done yet
+     *
+     * @throws JMException If the exporter could not be registered
+     */
+    public void registerMBean()
+            throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by another root of this process
+        }
+    }
+
+    @Override
+    public Map<String, Double> getValues() {
+        Map<String, Double> values = new LinkedHashMap<>();
+
+        for (IMetric metric : this.registry.getMetrics()) {
+            if (metric instanceof Counter) {
+                values.put(metric.getName(), (double) ((Counter) metric).getCount());
+            } else if (metric instanceof Gauge) {
+                values.put(metric.getName(), (double) ((Gauge) metric).getValue());
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+
+                values.put(metric.getName() + "_count", (double) histogram.getCount());
+                values.put(metric.getName() + "_sum", histogram.getSum() / NANOS_PER_SECOND);
+                for (double percentile : PERCENTILES) {
+                    values.put(metric.getName() + "_p" + formatPercentile(percentile), histogram.getPercentile(percentile) / NANOS_PER_SECOND);
+                }
+                values.put(metric.getName() + "_max", histogram.getMax() / NANOS_PER_SECOND);
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public String getText() {
+        StringBuilder sb = new StringBuilder();
+
+        for (IMetric metric : this.registry.getMetrics()) {
+            sb.append("# HELP ").append(metric.getName()).append(" ").append(metric.getHelp()).append("\n");
+
+            if (metric instanceof Counter) {
+                sb.append("# TYPE ").append(metric.getName()).append(" counter\n");
+                sb.append(metric.getName()).append(" ").append(((Counter) metric).getCount()).append("\n");
+            } else if (metric instanceof Gauge) {
+                sb.append("# TYPE ").append(metric.getName()).append(" gauge\n");
+                sb.append(metric.getName()).append(" ").append(((Gauge) metric).getValue()).append("\n");
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+
+                sb.append("# TYPE ").append(metric.getName()).append(" summary\n");
+                for (double percentile : PERCENTILES) {
+                    sb.append(metric.getName()).append("{quantile=\"").append(percentile).append("\"} ")
+                            .append(formatSeconds(histogram.getPercentile(percentile))).append("\n");
+                }
+                sb.append(metric.getName()).append("_sum ").append(formatSeconds(histogram.getSum())).append("\n");
+                sb.append(metric.getName()).append("_count ").append(histogram.getCount()).append("\n");
+            }
+        }
+
+        return sb.toString();
+    }
+
+    protected static String formatSeconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / NANOS_PER_SECOND);
+    }
+
+    protected static String formatPercentile(double percentile) {
+        String digits = String.valueOf(percentile).substring(2);
+
+        return (1 == digits.length()) ? digits + "0" : digits;
+    }
+}
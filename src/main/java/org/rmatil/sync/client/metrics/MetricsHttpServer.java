@@ -0,0 +1,97 @@
+package org.rmatil.sync.client.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the metrics in the Prometheus text format on {@code /metrics}.
+ * Like the control server, it only listens on the loopback interface
+ */
+public class MetricsHttpServer {
+
+    public static final String PATH = "/metrics";
+
+    protected int port;
+
+    protected MetricsExporter exporter;
+
+    protected HttpServer httpServer;
+
+    protected ExecutorService executorService;
+
+    /**
+     * @param port     The port on the loopback interface to listen on. Use 0 for an ephemeral port
+     * @param exporter The exporter rendering the metrics
+     */
+    public MetricsHttpServer(int port, MetricsExporter exporter) {
+        this.port = port;
+        this.exporter = exporter;
+    }
+
+    /**
+     * @throws IOException If the server could not be bound
+     */
+    public synchronized void start()
+            throws IOException {
+        if (null != this.httpServer) {
+            return;
+        }
+
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+
+        httpServer.createContext(PATH, exchange -> {
+            try {
+                if (! "GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, - 1);
+                    return;
+                }
+
+                byte[] body = this.exporter.getText().getBytes(StandardCharsets.UTF_8);
+
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+
+        // scrapes are rare and cheap, a single daemon thread is enough
+        this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(this.executorService);
+        httpServer.start();
+
+        this.httpServer = httpServer;
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getLocalPort() {
+        return this.httpServer.getAddress().getPort();
+    }
+
+    public synchronized void stop() {
+        if (null == this.httpServer) {
+            return;
+        }
+
+        this.httpServer.stop(0);
+        this.executorService.shutdownNow();
+        this.httpServer = null;
+    }
+}
@@ -0,0 +1,66 @@
+package org.rmatil.sync.client.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds the metrics of the client by their name.
+ * <p>
+ * Metrics are registered once, typically as constants of the class
+ * they measure (see {@link ClientMetrics}), and then updated without
+ * any lookup in the registry. Registering a name twice returns the
+ * already registered metric.
+ * </p>
+ */
+public class MetricsRegistry {
+
+    protected static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    protected Map<String, IMetric> metrics;
+
+    public MetricsRegistry() {
+        this.metrics = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * @return The registry holding all metrics of the client
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name, String help) {
+        return this.register(new Counter(name, help), Counter.class);
+    }
+
+    public Gauge gauge(String name, String help) {
+        return this.register(new Gauge(name, help), Gauge.class);
+    }
+
+    public Histogram histogram(String name, String help) {
+        return this.register(new Histogram(name, help), Histogram.class);
+    }
+
+    /**
+     * @return All registered metrics, ordered by their name
+     */
+    public List<IMetric> getMetrics() {
+        return new ArrayList<>(this.metrics.values());
+    }
+
+    protected <T extends IMetric> T register(T metric, Class<T> type) {
+        IMetric registered = this.metrics.putIfAbsent(metric.getName(), metric);
+
+        if (null == registered) {
+            return metric;
+        }
+
+        if (! type.isInstance(registered)) {
+            throw new IllegalArgumentException("Metric " + metric.getName() + " is already registered as " + registered.getClass().getSimpleName());
+        }
+
+        return type.cast(registered);
+    }
+}
@@ -0,0 +1,20 @@
+package org.rmatil.sync.client.sharing;
+
+import org.rmatil.sync.core.syncer.sharing.event.ISharingEvent;
+import org.rmatil.sync.version.api.AccessType;
+
+import java.nio.file.Path;
+
+public interface ISharingEventFactory {
+
+    /**
+     * Creates the event to apply for the given element
+     *
+     * @param relativePath The path relative to the root of the synced folder
+     * @param accessType   The access type to (un)share with
+     * @param username     The user to (un)share with
+     *
+     * @return The event to process
+     */
+    ISharingEvent create(Path relativePath, AccessType accessType, String username);
+}
@@ -0,0 +1,15 @@
+package org.rmatil.sync.client.sharing;
+
+public interface ISharingProgressListener {
+
+    /**
+     * Invoked each time a sharing event has been completed,
+     * regardless whether it succeeded or failed.
+     * Note, that this method is called from the worker threads
+     * of the {@link SharingExecutor}
+     *
+     * @param completed The number of events which have been completed so far
+     * @param submitted The number of events which have been submitted so far
+     */
+    void onProgress(long completed, long submitted);
+}
@@ -0,0 +1,256 @@
+package org.rmatil.sync.client.sharing;
+
+import org.rmatil.sync.core.syncer.sharing.event.ISharingEvent;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Groups (un)share events of directory trees by their top level subtree
+ * and hands them over to a {@link SharingExecutor} in batches.
+ * <p>
+ * All events of the same subtree are processed sequentially in the order
+ * they have been added, i.e. a directory is always processed before its
+ * contents: a batch of a subtree is only started once the previous batch
+ * of the same subtree has completed. Independent subtrees are processed in parallel.
+ * </p>
+ * <p>
+ * Permission changes are coalesced: events for an element which is already
+ * pending are dropped, and trees which lie within a tree added before are
+ * skipped entirely. A tree registered after some of its descendant trees
+ * collapses them, i.e. events of the descendant trees are grouped by the subtrees
+ * of the ancestor tree, so that overlapping requests only result in a single
+ * permission update per element. Therefore, a batch is meant to be used for
+ * events of the same user and access type only, and trees should be registered
+ * before their events are added.
+ * </p>
+ */
+public class SharingBatch {
+
+    /**
+     * The relative path to the root of the synced folder
+     */
+    protected static final Path EMPTY_PATH = Paths.get("");
+
+    protected SharingExecutor sharingExecutor;
+
+    protected int batchSize;
+
+    /**
+     * The maximum number of events pending over all subtrees
+     */
+    protected int maxPending;
+
+    /**
+     * Pending events, grouped by their subtree
+     */
+    protected Map<Path, LinkedHashMap<Path, ISharingEvent>> pending;
+
+    /**
+     * The roots of all trees added to this batch
+     */
+    protected Set<Path> trees;
+
+    /**
+     * The last batch handed over for each subtree, which the next batch of the subtree has to wait for
+     */
+    protected Map<Path, CompletableFuture<Void>> lastBatches;
+
+    protected int pendingCount;
+
+    protected long coalesced;
+
+    /**
+     * The user all events of this batch (un)share with or null, if not known
+     */
+    protected String username;
+
+    /**
+     * @param sharingExecutor The executor to hand the batches over to
+     * @param batchSize       The number of events of a subtree after which they are flushed
+     * @param maxPending      The maximum number of events pending over all subtrees before all are flushed
+     */
+    public SharingBatch(SharingExecutor sharingExecutor, int batchSize, int maxPending) {
+        this(sharingExecutor, batchSize, maxPending, null);
+    }
+
+    /**
+     * @param sharingExecutor The executor to hand the batches over to
+     * @param batchSize       The number of events of a subtree after which they are flushed
+     * @param maxPending      The maximum number of events pending over all subtrees before all are flushed
+     * @param username        The user all events (un)share with, recorded with their failures. May be null
+     */
+    public SharingBatch(SharingExecutor sharingExecutor, int batchSize, int maxPending, String username) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1, got " + batchSize);
+        }
+
+        this.sharingExecutor = sharingExecutor;
+        this.batchSize = batchSize;
+        this.maxPending = Math.max(batchSize, maxPending);
+        this.pending = new HashMap<>();
+        this.trees = new HashSet<>();
+        this.lastBatches = new HashMap<>();
+        this.pendingCount = 0;
+        this.coalesced = 0;
+        this.username = username;
+    }
+
+    /**
+     * Registers the root of a tree whose elements are going to be added.
+     * Trees registered before which lie within the given tree are collapsed into it.
+     *
+     * @param treeRoot The path of the tree relative to the root of the synced folder
+     *
+     * @return False, if the tree is already covered by this batch and its events must not be added again
+     */
+    public boolean addTree(Path treeRoot) {
+        Path normalized = treeRoot.normalize();
+
+        if (null != this.getCoveringTree(normalized)) {
+            return false;
+        }
+
+        if (EMPTY_PATH.equals(normalized)) {
+            this.trees.clear();
+        } else {
+            this.trees.removeIf(tree -> tree.startsWith(normalized));
+        }
+
+        this.trees.add(normalized);
+
+        return true;
+    }
+
+    /**
+     * @param treeRoot The path of the tree relative to the root of the synced folder
+     *
+     * @return True, if the tree lies within another tree registered in this batch, i.e. its elements are added by the walk of that tree
+     */
+    public boolean isCovered(Path treeRoot) {
+        Path normalized = treeRoot.normalize();
+        Path coveringTree = this.getCoveringTree(normalized);
+
+        return null != coveringTree && ! coveringTree.equals(normalized);
+    }
+
+    /**
+     * Adds the given event to the batch of its subtree.
+     * Flushes the batch if it is full.
+     *
+     * @param treeRoot The root of the tree the event belongs to, relative to the root of the synced folder
+     * @param event    The event to add
+     *
+     * @throws InterruptedException If interrupted while waiting for the executor
+     */
+    public void add(Path treeRoot, ISharingEvent event)
+            throws InterruptedException {
+        Path relativePath = event.getRelativePath().normalize();
+
+        // group events of collapsed trees by the subtrees of the tree covering them
+        Path normalizedTreeRoot = treeRoot.normalize();
+        Path coveringTree = this.getCoveringTree(normalizedTreeRoot);
+        Path subtree = this.getSubtree((null != coveringTree) ? coveringTree : normalizedTreeRoot, relativePath);
+
+        LinkedHashMap<Path, ISharingEvent> events = this.pending.computeIfAbsent(subtree, key -> new LinkedHashMap<>());
+
+        if (null != events.putIfAbsent(relativePath, event)) {
+            this.coalesced++;
+            return;
+        }
+
+        this.pendingCount++;
+
+        if (events.size() >= this.batchSize) {
+            this.flush(subtree);
+        } else if (this.pendingCount >= this.maxPending) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Hands all pending events over to the executor
+     *
+     * @throws InterruptedException If interrupted while waiting for the executor
+     */
+    public void flush()
+            throws InterruptedException {
+        for (Path subtree : new ArrayList<>(this.pending.keySet())) {
+            this.flush(subtree);
+        }
+
+        // subtrees whose batches are done do not need to be waited for anymore
+        this.lastBatches.values().removeIf(CompletableFuture::isDone);
+    }
+
+    /**
+     * @return The number of events which have been dropped since they were already pending
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    protected void flush(Path subtree)
+            throws InterruptedException {
+        LinkedHashMap<Path, ISharingEvent> events = this.pending.remove(subtree);
+
+        if (null == events || events.isEmpty()) {
+            return;
+        }
+
+        this.pendingCount -= events.size();
+
+        CompletableFuture<Void> lastBatch = this.lastBatches.get(subtree);
+        if (null != lastBatch && lastBatch.isDone()) {
+            lastBatch = null;
+        }
+
+        this.lastBatches.put(subtree, this.sharingExecutor.submitAll(new ArrayList<>(events.values()), lastBatch, this.username));
+    }
+
+    /**
+     * @param treeRoot The normalized path of a tree relative to the root of the synced folder
+     *
+     * @return The outermost registered tree containing the given tree (possibly the tree itself) or null, if none does
+     */
+    protected Path getCoveringTree(Path treeRoot) {
+        if (this.trees.contains(EMPTY_PATH)) {
+            // the whole synced folder is covered
+            return EMPTY_PATH;
+        }
+
+        Path coveringTree = null;
+        for (Path candidate = treeRoot; null != candidate; candidate = candidate.getParent()) {
+            if (this.trees.contains(candidate)) {
+                coveringTree = candidate;
+            }
+        }
+
+        return coveringTree;
+    }
+
+    /**
+     * @param treeRoot     The root of the tree
+     * @param relativePath The path of the element relative to the root of the synced folder
+     *
+     * @return The first path element below the tree root, or the path itself if it is not below the tree root
+     */
+    protected Path getSubtree(Path treeRoot, Path relativePath) {
+        if (EMPTY_PATH.equals(treeRoot)) {
+            return relativePath.getName(0);
+        }
+
+        if (! relativePath.startsWith(treeRoot) || relativePath.equals(treeRoot)) {
+            return relativePath;
+        }
+
+        return treeRoot.resolve(treeRoot.relativize(relativePath).getName(0));
+    }
+}
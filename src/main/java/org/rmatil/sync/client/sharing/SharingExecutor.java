@@ -0,0 +1,354 @@
+package org.rmatil.sync.client.sharing;
+
+import org.rmatil.sync.client.metrics.ClientMetrics;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.Tracing;
+import org.rmatil.sync.core.Sync;
+import org.rmatil.sync.core.exception.SharingFailedException;
+import org.rmatil.sync.core.syncer.sharing.event.ISharingEvent;
+import org.rmatil.sync.core.syncer.sharing.event.UnshareEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes (un)share events on a bounded pool of workers instead
+ * of syncing them one after another on the calling thread.
+ * <p>
+ * At most {@code concurrency} events are in flight at the same time,
+ * i.e. while one event waits for the DHT, others are already being
+ * processed. {@link SharingExecutor#submit(ISharingEvent)} blocks
+ * the caller as soon as all workers are busy, so that producers
+ * can not queue up an unbounded amount of events.
+ * </p>
+ * <p>
+ * An instance is meant to be used for a single bulk operation:
+ * submit all events, then call {@link SharingExecutor#await()}
+ * to wait for their completion and to obtain the aggregated result.
+ * </p>
+ */
+public class SharingExecutor {
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(0);
+
+    protected Sync sync;
+
+    protected int concurrency;
+
+    protected ISharingProgressListener progressListener;
+
+    protected ExecutorService executorService;
+
+    /**
+     * Limits the number of events in flight
+     */
+    protected Semaphore window;
+
+    protected AtomicLong submitted;
+
+    protected AtomicLong completed;
+
+    protected AtomicLong succeeded;
+
+    protected ConcurrentLinkedQueue<SharingFailure> failures;
+
+    protected long startTime;
+
+    /**
+     * Events processed one after another by the same worker
+     */
+    protected class Unit implements Runnable {
+
+        protected List<? extends ISharingEvent> events;
+
+        protected String username;
+
+        protected CompletableFuture<Void> done;
+
+        protected Unit(List<? extends ISharingEvent> events, String username) {
+            this.events = events;
+            this.username = username;
+            this.done = new CompletableFuture<>();
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < this.events.size(); i++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        recordCancelled(this.events.subList(i, this.events.size()), this.username);
+                        break;
+                    }
+
+                    process(this.events.get(i), this.username);
+                }
+            } finally {
+                window.release();
+                this.done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * @param sync             The sync instance to share the events with
+     * @param concurrency      The maximum number of events processed concurrently
+     * @param progressListener A listener which is notified on each completed event. May be null
+     */
+    public SharingExecutor(Sync sync, int concurrency, ISharingProgressListener progressListener) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1, got " + concurrency);
+        }
+
+        this.sync = sync;
+        this.concurrency = concurrency;
+        this.progressListener = progressListener;
+        this.window = new Semaphore(concurrency);
+        this.submitted = new AtomicLong(0);
+        this.completed = new AtomicLong(0);
+        this.succeeded = new AtomicLong(0);
+        this.failures = new ConcurrentLinkedQueue<>();
+        this.startTime = System.currentTimeMillis();
+
+        final int poolNr = POOL_COUNTER.incrementAndGet();
+        final AtomicInteger threadCounter = new AtomicInteger(0);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "sharing-" + poolNr + "-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        this.executorService = Executors.newFixedThreadPool(concurrency, threadFactory);
+    }
+
+    /**
+     * Submits the given event for processing.
+     * Blocks until a worker is available.
+     *
+     * @param event The event to share or unshare
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting for a free worker
+     */
+    public void submit(ISharingEvent event)
+            throws InterruptedException {
+        this.submit(event, null);
+    }
+
+    /**
+     * Submits the given event for processing.
+     * Blocks until a worker is available.
+     *
+     * @param event    The event to share or unshare
+     * @param username The user the event (un)shares with, recorded with a failure. May be null
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting for a free worker
+     */
+    public void submit(ISharingEvent event, String username)
+            throws InterruptedException {
+        this.window.acquire();
+        this.submitted.incrementAndGet();
+
+        // run as unit, so that the event is recorded if it gets cancelled before being started
+        this.schedule(new Unit(Collections.singletonList(event), username));
+    }
+
+    /**
+     * Submits the given events as a single unit of work.
+     * The events are processed one after another in the given order
+     * by the same worker. Blocks until a worker is available.
+     *
+     * @param events The events to share or unshare
+     *
+     * @return A future completed once the unit has been processed
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting for a free worker
+     */
+    public CompletableFuture<Void> submitAll(List<? extends ISharingEvent> events)
+            throws InterruptedException {
+        return this.submitAll(events, null, null);
+    }
+
+    /**
+     * Submits the given events as a single unit of work, which is started only once
+     * the given predecessor has completed. This allows to process several units
+     * one after another without occupying a worker while waiting.
+     * The events are processed in the given order by the same worker.
+     * Blocks until a worker is available.
+     *
+     * @param events      The events to share or unshare
+     * @param predecessor The unit to wait for (as returned by a previous invocation) or null
+     * @param username    The user the events (un)share with, recorded with a failure. May be null
+     *
+     * @return A future completed once the unit has been processed
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting for a free worker
+     */
+    public CompletableFuture<Void> submitAll(List<? extends ISharingEvent> events, CompletableFuture<Void> predecessor, String username)
+            throws InterruptedException {
+        if (events.isEmpty()) {
+            return (null != predecessor) ? predecessor : CompletableFuture.completedFuture(null);
+        }
+
+        this.window.acquire();
+        this.submitted.addAndGet(events.size());
+
+        Unit unit = new Unit(events, username);
+
+        if (null == predecessor) {
+            this.schedule(unit);
+        } else {
+            // scheduled by the thread completing the predecessor
+            predecessor.whenComplete((result, throwable) -> this.schedule(unit));
+        }
+
+        return unit.done;
+    }
+
+    /**
+     * Waits until all events submitted so far have been processed.
+     * The executor remains usable afterwards, which allows to
+     * enforce an ordering between groups of events (e.g. sharing
+     * a directory before its children)
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting
+     */
+    public void drain()
+            throws InterruptedException {
+        // all permits are only available once every event is done
+        this.window.acquire(this.concurrency);
+        this.window.release(this.concurrency);
+    }
+
+    /**
+     * Waits until all submitted events have been processed and
+     * shuts the worker pool down afterwards.
+     *
+     * @return The aggregated result of all submitted events
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting
+     */
+    public SharingResult await()
+            throws InterruptedException {
+        try {
+            this.drain();
+        } finally {
+            this.executorService.shutdown();
+        }
+
+        return new SharingResult(
+                this.submitted.get(),
+                this.succeeded.get(),
+                new ArrayList<>(this.failures),
+                System.currentTimeMillis() - this.startTime
+        );
+    }
+
+    /**
+     * Aborts all events which have not yet been started.
+     * Each aborted event is recorded as failure, so that
+     * the result still accounts for all submitted events
+     *
+     * @return The number of units which never got processed
+     */
+    public int cancel() {
+        List<Runnable> pending = this.executorService.shutdownNow();
+        this.window.release(pending.size());
+
+        for (Runnable runnable : pending) {
+            if (runnable instanceof Unit) {
+                Unit unit = (Unit) runnable;
+                this.recordCancelled(unit.events, unit.username);
+                // releases the units waiting for it, which are then rejected
+                unit.done.complete(null);
+            }
+        }
+
+        return pending.size();
+    }
+
+    /**
+     * Hands the given unit over to the workers
+     *
+     * @param unit The unit to run
+     */
+    protected void schedule(Unit unit) {
+        try {
+            this.executorService.execute(unit);
+        } catch (RuntimeException e) {
+            this.window.release();
+            for (ISharingEvent event : unit.events) {
+                this.failures.add(new SharingFailure(event.getRelativePath(), "Could not schedule event: " + e.getMessage(), unit.username));
+                this.completed.incrementAndGet();
+            }
+
+            unit.done.complete(null);
+        }
+    }
+
+    /**
+     * Records the given events as failed, since they will not be processed anymore
+     *
+     * @param events   The events which have been cancelled
+     * @param username The user the events (un)share with or null
+     */
+    protected void recordCancelled(List<? extends ISharingEvent> events, String username) {
+        for (ISharingEvent event : events) {
+            this.failures.add(new SharingFailure(event.getRelativePath(), "cancelled", username));
+        }
+
+        long done = this.completed.addAndGet(events.size());
+
+        if (null != this.progressListener && ! events.isEmpty()) {
+            this.progressListener.onProgress(done, this.submitted.get());
+        }
+    }
+
+    /**
+     * Syncs a single event and records its outcome
+     *
+     * @param event    The event to process
+     * @param username The user the event (un)shares with or null
+     */
+    protected void process(ISharingEvent event, String username) {
+        long start = System.nanoTime();
+        ClientMetrics.SHARES_IN_FLIGHT.increment();
+
+        // the sharing syncer updates the DHT and the access control lists within a single call
+        try (ITraceSpan ignored = Tracing.begin((event instanceof UnshareEvent) ? "unshare" : "share", "sync", String.valueOf(event.getRelativePath()))) {
+            this.share(event);
+            this.succeeded.incrementAndGet();
+        } catch (SharingFailedException | RuntimeException e) {
+            ClientMetrics.SHARE_FAILURES.increment();
+            this.failures.add(new SharingFailure(event.getRelativePath(), e.getMessage(), username));
+        } finally {
+            ClientMetrics.SHARES_IN_FLIGHT.decrement();
+            ClientMetrics.SHARE_LATENCY.recordSince(start);
+        }
+
+        long done = this.completed.incrementAndGet();
+
+        if (null != this.progressListener) {
+            this.progressListener.onProgress(done, this.submitted.get());
+        }
+    }
+
+    /**
+     * Hands the event over to the sharing syncer of the sync instance
+     *
+     * @param event The event to process
+     *
+     * @throws SharingFailedException If the syncer failed to process the event
+     */
+    protected void share(ISharingEvent event)
+            throws SharingFailedException {
+        this.sync.getSharingSyncer().sync(event);
+    }
+}
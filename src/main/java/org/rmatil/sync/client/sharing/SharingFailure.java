@@ -0,0 +1,43 @@
+package org.rmatil.sync.client.sharing;
+
+import java.nio.file.Path;
+
+public class SharingFailure {
+
+    /**
+     * The relative path of the element which failed to be (un)shared
+     */
+    protected Path relativePath;
+
+    /**
+     * The reason of the failure
+     */
+    protected String message;
+
+    /**
+     * The user the element has been (un)shared with or null, if not known
+     */
+    protected String username;
+
+    public SharingFailure(Path relativePath, String message) {
+        this(relativePath, message, null);
+    }
+
+    public SharingFailure(Path relativePath, String message, String username) {
+        this.relativePath = relativePath;
+        this.message = message;
+        this.username = username;
+    }
+
+    public Path getRelativePath() {
+        return relativePath;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
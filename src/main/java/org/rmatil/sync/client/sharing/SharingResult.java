@@ -0,0 +1,53 @@
+package org.rmatil.sync.client.sharing;
+
+import java.util.List;
+
+public class SharingResult {
+
+    /**
+     * The number of submitted sharing events
+     */
+    protected long submitted;
+
+    /**
+     * The number of events which have been processed successfully
+     */
+    protected long succeeded;
+
+    /**
+     * All events which failed to be processed
+     */
+    protected List<SharingFailure> failures;
+
+    /**
+     * The wall clock time the bulk operation took
+     */
+    protected long durationMillis;
+
+    public SharingResult(long submitted, long succeeded, List<SharingFailure> failures, long durationMillis) {
+        this.submitted = submitted;
+        this.succeeded = succeeded;
+        this.failures = failures;
+        this.durationMillis = durationMillis;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    public List<SharingFailure> getFailures() {
+        return failures;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public boolean hasFailures() {
+        return ! this.failures.isEmpty();
+    }
+}
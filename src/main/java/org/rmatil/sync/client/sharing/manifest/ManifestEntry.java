@@ -0,0 +1,48 @@
+package org.rmatil.sync.client.sharing.manifest;
+
+import org.rmatil.sync.version.api.AccessType;
+
+import java.nio.file.Path;
+
+public class ManifestEntry {
+
+    /**
+     * The path relative to the root of the synced folder
+     */
+    protected Path relativePath;
+
+    /**
+     * The user to (un)share the path with
+     */
+    protected String username;
+
+    protected AccessType accessType;
+
+    /**
+     * The line in the manifest this entry has been read from
+     */
+    protected int lineNumber;
+
+    public ManifestEntry(Path relativePath, String username, AccessType accessType, int lineNumber) {
+        this.relativePath = relativePath;
+        this.username = username;
+        this.accessType = accessType;
+        this.lineNumber = lineNumber;
+    }
+
+    public Path getRelativePath() {
+        return relativePath;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public AccessType getAccessType() {
+        return accessType;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,209 @@
+package org.rmatil.sync.client.sharing.manifest;
+
+import org.rmatil.sync.client.cache.UserDirectory;
+import org.rmatil.sync.client.sharing.ISharingEventFactory;
+import org.rmatil.sync.client.sharing.SharingBatch;
+import org.rmatil.sync.client.sharing.SharingExecutor;
+import org.rmatil.sync.client.sharing.SharingFailure;
+import org.rmatil.sync.client.sharing.SharingResult;
+import org.rmatil.sync.client.walker.IPathVisitor;
+import org.rmatil.sync.client.walker.StorageTreeWalker;
+import org.rmatil.sync.core.Sync;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies the entries of a sharing manifest to a connected node.
+ * <p>
+ * The elements named in the manifest are processed first, all of them
+ * concurrently. Afterwards, their contents are walked and processed in
+ * batches per subtree (see {@link SharingBatch}). Entries which lie within
+ * an entry for the same user and access type are covered by it.
+ * </p>
+ */
+public class ManifestExecutor {
+
+    protected Sync sync;
+
+    protected UserDirectory userDirectory;
+
+    protected ISharingEventFactory eventFactory;
+
+    protected int concurrency;
+
+    protected int batchSize;
+
+    /**
+     * @param sync          The connected sync instance
+     * @param userDirectory The directory to check whether the users of the entries are registered
+     * @param eventFactory  The factory creating the share or unshare events
+     * @param concurrency   The maximum number of elements processed concurrently
+     * @param batchSize     The maximum number of events of a subtree handed over to a worker at once
+     */
+    public ManifestExecutor(Sync sync, UserDirectory userDirectory, ISharingEventFactory eventFactory, int concurrency, int batchSize) {
+        this.sync = sync;
+        this.userDirectory = userDirectory;
+        this.eventFactory = eventFactory;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Applies all given entries
+     *
+     * @param entries The entries to apply
+     *
+     * @return The result, including the entries which have been rejected
+     *
+     * @throws InterruptedException If interrupted while processing the entries
+     */
+    public SharingResult execute(List<ManifestEntry> entries)
+            throws InterruptedException {
+        List<ManifestEntry> validEntries = new ArrayList<>();
+        List<SharingFailure> rejected = new ArrayList<>();
+
+        // the users of all entries are checked concurrently while the paths are validated
+        List<String> usernames = new ArrayList<>(entries.size());
+        for (ManifestEntry entry : entries) {
+            usernames.add(entry.getUsername());
+        }
+
+        this.userDirectory.prefetch(usernames);
+        Path rootPath = Paths.get(this.sync.getStorageAdapter().getRootDir().getPath());
+
+        List<ManifestEntry> existingEntries = new ArrayList<>(entries.size());
+        for (ManifestEntry entry : entries) {
+            if (entry.getRelativePath().isAbsolute() || entry.getRelativePath().startsWith("..")) {
+                rejected.add(new SharingFailure(entry.getRelativePath(), "Line " + entry.getLineNumber() + ": path must be relative to the sync folder"));
+                continue;
+            }
+
+            if (! rootPath.resolve(entry.getRelativePath()).toFile().exists()) {
+                rejected.add(new SharingFailure(entry.getRelativePath(), "Line " + entry.getLineNumber() + ": path does not exist"));
+                continue;
+            }
+
+            existingEntries.add(entry);
+        }
+
+        // answered by the prefetched lookups
+        Map<String, Boolean> registeredUsers = this.userDirectory.isRegistered(usernames);
+
+        for (ManifestEntry entry : existingEntries) {
+            Boolean isRegistered = registeredUsers.get(entry.getUsername());
+            if (null == isRegistered) {
+                rejected.add(new SharingFailure(entry.getRelativePath(), "Line " + entry.getLineNumber() + ": could not check whether user " + entry.getUsername() + " exists"));
+                continue;
+            }
+
+            if (! isRegistered) {
+                rejected.add(new SharingFailure(entry.getRelativePath(), "Line " + entry.getLineNumber() + ": no user found for username " + entry.getUsername()));
+                continue;
+            }
+
+            validEntries.add(entry);
+        }
+
+        // parents first, so that nested entries are covered by their ancestors
+        validEntries.sort(Comparator.comparingInt(entry -> entry.getRelativePath().getNameCount()));
+
+        SharingExecutor sharingExecutor = new SharingExecutor(this.sync, this.concurrency, null);
+        Map<String, SharingBatch> batches = new HashMap<>();
+        List<ManifestEntry> trees = new ArrayList<>();
+
+        try {
+            // the named elements have to be processed before their children
+            for (ManifestEntry entry : validEntries) {
+                SharingBatch batch = batches.computeIfAbsent(
+                        entry.getUsername() + ":" + entry.getAccessType(),
+                        key -> new SharingBatch(sharingExecutor, this.batchSize, this.batchSize * this.concurrency, entry.getUsername())
+                );
+
+                if (! batch.addTree(entry.getRelativePath())) {
+                    // already covered by an entry processed before
+                    continue;
+                }
+
+                sharingExecutor.submit(this.eventFactory.create(entry.getRelativePath(), entry.getAccessType(), entry.getUsername()), entry.getUsername());
+                trees.add(entry);
+            }
+
+            sharingExecutor.drain();
+
+            StorageTreeWalker walker = new StorageTreeWalker(this.sync.getStorageAdapter());
+            for (ManifestEntry entry : trees) {
+                if (! rootPath.resolve(entry.getRelativePath()).toFile().isDirectory()) {
+                    continue;
+                }
+
+                SharingBatch batch = batches.get(entry.getUsername() + ":" + entry.getAccessType());
+                if (batch.isCovered(entry.getRelativePath())) {
+                    // collapsed into an ancestor tree, whose walk adds its elements
+                    continue;
+                }
+
+                try {
+                    walker.walk(entry.getRelativePath(), new IPathVisitor() {
+                        @Override
+                        public void visit(Path relativePath, BasicFileAttributes attributes)
+                                throws InterruptedException {
+                            batch.add(entry.getRelativePath(), eventFactory.create(relativePath, entry.getAccessType(), entry.getUsername()));
+                        }
+
+                        @Override
+                        public void visitFailed(Path relativePath, IOException e) {
+                            rejected.add(new SharingFailure(relativePath, "Failed to read: " + e.getMessage()));
+                        }
+                    });
+                } catch (IOException e) {
+                    rejected.add(new SharingFailure(entry.getRelativePath(), "Line " + entry.getLineNumber() + ": failed to read contents: " + e.getMessage()));
+                }
+            }
+
+            for (SharingBatch batch : batches.values()) {
+                batch.flush();
+            }
+
+            SharingResult result = sharingExecutor.await();
+            this.invalidateFailedUsers(result.getFailures());
+
+            List<SharingFailure> failures = new ArrayList<>(rejected);
+            failures.addAll(result.getFailures());
+
+            return new SharingResult(result.getSubmitted(), result.getSucceeded(), failures, result.getDurationMillis());
+
+        } catch (InterruptedException e) {
+            sharingExecutor.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets the registration of the users of all failed elements,
+     * so that users which have been removed in the meantime are checked again next time
+     *
+     * @param failures The failed elements
+     */
+    protected void invalidateFailedUsers(List<SharingFailure> failures) {
+        Set<String> usernames = new HashSet<>();
+        for (SharingFailure failure : failures) {
+            if (null != failure.getUsername()) {
+                usernames.add(failure.getUsername());
+            }
+        }
+
+        for (String username : usernames) {
+            this.userDirectory.invalidate(username);
+        }
+    }
+}
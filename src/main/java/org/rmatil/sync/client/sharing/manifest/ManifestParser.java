@@ -0,0 +1,138 @@
+package org.rmatil.sync.client.sharing.manifest;
+
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.version.api.AccessType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a sharing manifest.
+ * <p>
+ * Each line consists of the path relative to the synced folder,
+ * the name of the user and the access type ({@code READ} or {@code WRITE}),
+ * separated by whitespaces or commas. Since the line is read from its end,
+ * the path may contain whitespaces. Empty lines and lines starting with
+ * {@code #} are ignored. Errors only refer to the number of the malformed
+ * line, never to its content, since they might be returned to other users
+ * (see {@link org.rmatil.sync.client.control.command.SharingManifestCommand}).
+ * </p>
+ * <pre>
+ * # path                  user    access
+ * projects/report         alice   WRITE
+ * projects/some folder    bob     READ
+ * </pre>
+ */
+public class ManifestParser {
+
+    public static final String COMMENT_PREFIX = "#";
+
+    /**
+     * Reads all entries of the given manifest
+     *
+     * @param manifest The path to the manifest file
+     *
+     * @return The entries in the order they appear in the manifest
+     *
+     * @throws IOException         If the manifest could not be read
+     * @throws ValidationException If a line of the manifest is malformed
+     */
+    public static List<ManifestEntry> parse(Path manifest)
+            throws IOException, ValidationException {
+        List<ManifestEntry> entries = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while (null != (line = reader.readLine())) {
+                lineNumber++;
+
+                ManifestEntry entry = parseLine(line, lineNumber);
+                if (null != entry) {
+                    entries.add(entry);
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Parses a single line of a manifest
+     *
+     * @param line       The line to parse
+     * @param lineNumber The number of the line, used for error reporting
+     *
+     * @return The entry or null, if the line is empty or a comment
+     *
+     * @throws ValidationException If the line is malformed
+     */
+    public static ManifestEntry parseLine(String line, int lineNumber)
+            throws ValidationException {
+        String trimmed = line.trim();
+
+        if (trimmed.isEmpty() || trimmed.startsWith(COMMENT_PREFIX)) {
+            return null;
+        }
+
+        int accessSeparator = lastSeparator(trimmed);
+        if (accessSeparator < 0) {
+            throw new ValidationException("Line " + lineNumber + ": expected <path> <user> <READ|WRITE>");
+        }
+
+        String access = trimmed.substring(accessSeparator + 1).trim();
+        String remainder = stripSeparators(trimmed.substring(0, accessSeparator));
+
+        int userSeparator = lastSeparator(remainder);
+        if (userSeparator < 0) {
+            throw new ValidationException("Line " + lineNumber + ": expected <path> <user> <READ|WRITE>");
+        }
+
+        String username = remainder.substring(userSeparator + 1).trim();
+        String path = stripSeparators(remainder.substring(0, userSeparator));
+
+        if (path.isEmpty() || username.isEmpty()) {
+            throw new ValidationException("Line " + lineNumber + ": path and user must not be empty");
+        }
+
+        AccessType accessType;
+        if (AccessType.READ.name().equalsIgnoreCase(access)) {
+            accessType = AccessType.READ;
+        } else if (AccessType.WRITE.name().equalsIgnoreCase(access)) {
+            accessType = AccessType.WRITE;
+        } else {
+            throw new ValidationException("Line " + lineNumber + ": unknown access type. Expected READ or WRITE");
+        }
+
+        return new ManifestEntry(Paths.get(path).normalize(), username, accessType, lineNumber);
+    }
+
+    private static boolean isSeparator(char c) {
+        return ',' == c || Character.isWhitespace(c);
+    }
+
+    private static int lastSeparator(String text) {
+        for (int i = text.length() - 1; i >= 0; i--) {
+            if (isSeparator(text.charAt(i))) {
+                return i;
+            }
+        }
+
+        return - 1;
+    }
+
+    private static String stripSeparators(String text) {
+        int end = text.length();
+        while (end > 0 && isSeparator(text.charAt(end - 1))) {
+            end--;
+        }
+
+        return text.substring(0, end).trim();
+    }
+}
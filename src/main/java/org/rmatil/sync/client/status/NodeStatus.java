@@ -0,0 +1,210 @@
+package org.rmatil.sync.client.status;
+
+import org.rmatil.sync.client.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the performance figures of a running node.
+ * <p>
+ * All figures but the node locations are taken from the client metrics
+ * and thus cover all sync folders hosted by the process.
+ * Counters are cumulative since the start of the process, so that
+ * rates are derived from two snapshots (see {@link StatusView}).
+ * Latencies are in nanoseconds and cover the last few seconds
+ * (see {@link StatusCollector#LATENCY_WINDOW}).
+ * </p>
+ * <p>
+ * A snapshot is transferred over the control port as lines of the form
+ * {@code <key> <value>}, followed by one {@code location <location>} line
+ * per connected node location.
+ * </p>
+ */
+public class NodeStatus {
+
+    protected static final String LOCATION_KEY = "location";
+
+    /**
+     * The time the snapshot was taken, in milliseconds since the epoch
+     */
+    protected long timestamp;
+
+    protected long sharesInFlight;
+
+    protected long sharesCompleted;
+
+    protected long shareFailures;
+
+    protected long fileIdLookupsInFlight;
+
+    protected long fileIdLookups;
+
+    protected long fileIdLookupFailures;
+
+    protected long fileIdCacheHits;
+
+    protected long fileIdLookupP50;
+
+    protected long fileIdLookupP99;
+
+    protected long nodeLocationsP50;
+
+    protected long nodeLocationsP99;
+
+    /**
+     * The age of the node locations in milliseconds or -1, if they are not known
+     */
+    protected long nodeLocationsAge;
+
+    protected List<String> nodeLocations;
+
+    public NodeStatus() {
+        this.nodeLocations = new ArrayList<>();
+    }
+
+    /**
+     * Parses a snapshot from the lines returned by the control port.
+     * Unknown keys are ignored, so that newer nodes can report more figures
+     *
+     * @param lines The lines of the response
+     *
+     * @return The snapshot
+     *
+     * @throws ValidationException If a line is malformed
+     */
+    public static NodeStatus fromLines(List<String> lines)
+            throws ValidationException {
+        NodeStatus status = new NodeStatus();
+        Map<String, Long> values = new LinkedHashMap<>();
+
+        for (String line : lines) {
+            int separator = line.indexOf(' ');
+            if (- 1 == separator) {
+                throw new ValidationException("Malformed status line " + line);
+            }
+
+            String key = line.substring(0, separator);
+            String value = line.substring(separator + 1).trim();
+
+            if (LOCATION_KEY.equals(key)) {
+                status.nodeLocations.add(value);
+                continue;
+            }
+
+            try {
+                values.put(key, Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Malformed status line " + line);
+            }
+        }
+
+        status.timestamp = values.getOrDefault("timestamp", 0L);
+        status.sharesInFlight = values.getOrDefault("shares-in-flight", 0L);
+        status.sharesCompleted = values.getOrDefault("shares-completed", 0L);
+        status.shareFailures = values.getOrDefault("share-failures", 0L);
+        status.fileIdLookupsInFlight = values.getOrDefault("file-id-lookups-in-flight", 0L);
+        status.fileIdLookups = values.getOrDefault("file-id-lookups", 0L);
+        status.fileIdLookupFailures = values.getOrDefault("file-id-lookup-failures", 0L);
+        status.fileIdCacheHits = values.getOrDefault("file-id-cache-hits", 0L);
+        status.fileIdLookupP50 = values.getOrDefault("file-id-lookup-p50", 0L);
+        status.fileIdLookupP99 = values.getOrDefault("file-id-lookup-p99", 0L);
+        status.nodeLocationsP50 = values.getOrDefault("node-locations-p50", 0L);
+        status.nodeLocationsP99 = values.getOrDefault("node-locations-p99", 0L);
+        status.nodeLocationsAge = values.getOrDefault("node-locations-age", - 1L);
+
+        return status;
+    }
+
+    /**
+     * @return The snapshot as lines to return over the control port
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add("timestamp " + this.timestamp);
+        lines.add("shares-in-flight " + this.sharesInFlight);
+        lines.add("shares-completed " + this.sharesCompleted);
+        lines.add("share-failures " + this.shareFailures);
+        lines.add("file-id-lookups-in-flight " + this.fileIdLookupsInFlight);
+        lines.add("file-id-lookups " + this.fileIdLookups);
+        lines.add("file-id-lookup-failures " + this.fileIdLookupFailures);
+        lines.add("file-id-cache-hits " + this.fileIdCacheHits);
+        lines.add("file-id-lookup-p50 " + this.fileIdLookupP50);
+        lines.add("file-id-lookup-p99 " + this.fileIdLookupP99);
+        lines.add("node-locations-p50 " + this.nodeLocationsP50);
+        lines.add("node-locations-p99 " + this.nodeLocationsP99);
+        lines.add("node-locations-age " + this.nodeLocationsAge);
+
+        for (String nodeLocation : this.nodeLocations) {
+            lines.add(LOCATION_KEY + " " + nodeLocation);
+        }
+
+        return lines;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The number of elements being shared or unshared and of file ids being looked up
+     */
+    public long getQueueLength() {
+        return this.sharesInFlight + this.fileIdLookupsInFlight;
+    }
+
+    public long getSharesInFlight() {
+        return sharesInFlight;
+    }
+
+    public long getSharesCompleted() {
+        return sharesCompleted;
+    }
+
+    public long getShareFailures() {
+        return shareFailures;
+    }
+
+    public long getFileIdLookupsInFlight() {
+        return fileIdLookupsInFlight;
+    }
+
+    public long getFileIdLookups() {
+        return fileIdLookups;
+    }
+
+    public long getFileIdLookupFailures() {
+        return fileIdLookupFailures;
+    }
+
+    public long getFileIdCacheHits() {
+        return fileIdCacheHits;
+    }
+
+    public long getFileIdLookupP50() {
+        return fileIdLookupP50;
+    }
+
+    public long getFileIdLookupP99() {
+        return fileIdLookupP99;
+    }
+
+    public long getNodeLocationsP50() {
+        return nodeLocationsP50;
+    }
+
+    public long getNodeLocationsP99() {
+        return nodeLocationsP99;
+    }
+
+    public long getNodeLocationsAge() {
+        return nodeLocationsAge;
+    }
+
+    public List<String> getNodeLocations() {
+        return Collections.unmodifiableList(nodeLocations);
+    }
+}
@@ -0,0 +1,114 @@
+package org.rmatil.sync.client.status;
+
+import org.rmatil.sync.client.cache.NodeLocationCache;
+import org.rmatil.sync.client.metrics.ClientMetrics;
+import org.rmatil.sync.network.core.model.NodeLocation;
+import org.rmatil.sync.persistence.exceptions.InputOutputException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Takes snapshots of the status of a node from the client metrics
+ * and the cached node locations of its user.
+ * <p>
+ * The client metrics are shared by all sync folders of the process.
+ * Latency percentiles cover the values recorded within the last
+ * {@link StatusCollector#LATENCY_WINDOW} milliseconds, computed from the
+ * difference of the histogram buckets to those of an earlier snapshot.
+ * </p>
+ */
+public class StatusCollector {
+
+    /**
+     * The time in milliseconds covered by the latency percentiles
+     */
+    public static final long LATENCY_WINDOW = 10000L;
+
+    /**
+     * The buckets of the latency histograms at a point in time
+     */
+    protected static class Buckets {
+
+        protected final long timestamp;
+
+        protected final long[] fileIdLookupLatency;
+
+        protected final long[] nodeLocationsLatency;
+
+        protected Buckets(long timestamp) {
+            this.timestamp = timestamp;
+            this.fileIdLookupLatency = ClientMetrics.FILE_ID_LOOKUP_LATENCY.getBuckets();
+            this.nodeLocationsLatency = ClientMetrics.NODE_LOCATIONS_LATENCY.getBuckets();
+        }
+    }
+
+    protected NodeLocationCache nodeLocationCache;
+
+    protected String username;
+
+    /**
+     * The buckets of earlier snapshots, the oldest first.
+     * The oldest one is the newest taken at least one window ago
+     */
+    protected Deque<Buckets> history;
+
+    /**
+     * @param nodeLocationCache The cache to read the node locations from
+     * @param username          The user of the node
+     */
+    public StatusCollector(NodeLocationCache nodeLocationCache, String username) {
+        this.nodeLocationCache = nodeLocationCache;
+        this.username = username;
+        this.history = new ArrayDeque<>();
+        this.history.add(new Buckets(System.currentTimeMillis()));
+    }
+
+    /**
+     * Takes a snapshot. Node locations are only fetched from the DHT,
+     * if they have never been fetched before
+     *
+     * @return The current status
+     */
+    public synchronized NodeStatus collect() {
+        NodeStatus status = new NodeStatus();
+        status.timestamp = System.currentTimeMillis();
+
+        while (this.history.size() > 1 && this.secondOldest().timestamp <= status.timestamp - LATENCY_WINDOW) {
+            this.history.removeFirst();
+        }
+
+        Buckets since = this.history.getFirst();
+        this.history.addLast(new Buckets(status.timestamp));
+
+        status.sharesInFlight = ClientMetrics.SHARES_IN_FLIGHT.getValue();
+        status.sharesCompleted = ClientMetrics.SHARE_LATENCY.getCount();
+        status.shareFailures = ClientMetrics.SHARE_FAILURES.getCount();
+
+        status.fileIdLookupsInFlight = ClientMetrics.FILE_ID_LOOKUPS_IN_FLIGHT.getValue();
+        status.fileIdLookups = ClientMetrics.FILE_ID_LOOKUP_LATENCY.getCount();
+        status.fileIdLookupFailures = ClientMetrics.FILE_ID_LOOKUP_FAILURES.getCount();
+        status.fileIdCacheHits = ClientMetrics.FILE_ID_CACHE_HITS.getCount();
+        status.fileIdLookupP50 = ClientMetrics.FILE_ID_LOOKUP_LATENCY.getPercentileSince(since.fileIdLookupLatency, 0.5);
+        status.fileIdLookupP99 = ClientMetrics.FILE_ID_LOOKUP_LATENCY.getPercentileSince(since.fileIdLookupLatency, 0.99);
+
+        status.nodeLocationsP50 = ClientMetrics.NODE_LOCATIONS_LATENCY.getPercentileSince(since.nodeLocationsLatency, 0.5);
+        status.nodeLocationsP99 = ClientMetrics.NODE_LOCATIONS_LATENCY.getPercentileSince(since.nodeLocationsLatency, 0.99);
+
+        try {
+            for (NodeLocation nodeLocation : this.nodeLocationCache.getNodeLocations(this.username)) {
+                status.nodeLocations.add(nodeLocation.getClientDeviceId() + " " + nodeLocation.getIpAddress() + ":" + nodeLocation.getPort());
+            }
+            status.nodeLocationsAge = this.nodeLocationCache.getAge(this.username);
+        } catch (InputOutputException e) {
+            // reported as unknown
+            status.nodeLocationsAge = - 1;
+        }
+
+        return status;
+    }
+
+    protected Buckets secondOldest() {
+        return this.history.stream().skip(1).findFirst().orElseThrow(IllegalStateException::new);
+    }
+}
@@ -0,0 +1,99 @@
+package org.rmatil.sync.client.status;
+
+import org.rmatil.sync.client.console.io.Output;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Renders snapshots of a node's status as a dashboard, which is redrawn
+ * in place on each update if the output is a terminal
+ */
+public class StatusView {
+
+    protected String title;
+
+    protected NodeStatus previous;
+
+    /**
+     * The number of lines drawn by the last update
+     */
+    protected int drawnLines;
+
+    /**
+     * @param title The title printed above the figures
+     */
+    public StatusView(String title) {
+        this.title = title;
+        this.drawnLines = 0;
+    }
+
+    /**
+     * Draws the given snapshot, replacing the previously drawn one.
+     * Rates are computed against the previous snapshot
+     *
+     * @param status The snapshot to draw
+     */
+    public void update(NodeStatus status) {
+        List<String> lines = this.render(this.previous, status);
+
+        this.drawnLines = Output.printInPlace(lines, this.drawnLines);
+        this.previous = status;
+    }
+
+    /**
+     * @param previous The previous snapshot or null, if there is none
+     * @param current  The current snapshot
+     *
+     * @return The lines of the dashboard
+     */
+    protected List<String> render(NodeStatus previous, NodeStatus current) {
+        List<String> lines = new ArrayList<>();
+
+        lines.add(this.title);
+        lines.add("");
+        // the client metrics do not distinguish the folders of the process
+        lines.add("All sync folders of this process:");
+        lines.add(String.format(Locale.ROOT, "Queue:           %d (%d shares, %d file id lookups in flight)",
+                current.getQueueLength(), current.getSharesInFlight(), current.getFileIdLookupsInFlight()));
+        lines.add(String.format(Locale.ROOT, "Shares:          %s/s, %d total, %d failed",
+                this.formatRate(previous, current, previous != null ? previous.getSharesCompleted() : 0, current.getSharesCompleted()),
+                current.getSharesCompleted(), current.getShareFailures()));
+        lines.add(String.format(Locale.ROOT, "File id lookups: %s/s, %d total, %d failed, %d cached",
+                this.formatRate(previous, current, previous != null ? previous.getFileIdLookups() : 0, current.getFileIdLookups()),
+                current.getFileIdLookups(), current.getFileIdLookupFailures(), current.getFileIdCacheHits()));
+        lines.add(String.format(Locale.ROOT, "DHT latency:     file ids p50 %s p99 %s, node locations p50 %s p99 %s (last %d s)",
+                formatLatency(current.getFileIdLookupP50()), formatLatency(current.getFileIdLookupP99()),
+                formatLatency(current.getNodeLocationsP50()), formatLatency(current.getNodeLocationsP99()),
+                StatusCollector.LATENCY_WINDOW / 1000));
+        lines.add("");
+        lines.add("This sync folder:");
+
+        if (- 1 == current.getNodeLocationsAge()) {
+            lines.add("Node locations:  unknown");
+        } else {
+            lines.add("Node locations:  " + current.getNodeLocations().size() + " (as of " + current.getNodeLocationsAge() + " ms ago)");
+        }
+
+        for (String nodeLocation : current.getNodeLocations()) {
+            lines.add("  " + nodeLocation);
+        }
+
+        return lines;
+    }
+
+    protected String formatRate(NodeStatus previous, NodeStatus current, long previousCount, long currentCount) {
+        if (null == previous || current.getTimestamp() <= previous.getTimestamp()) {
+            return "-";
+        }
+
+        double seconds = (current.getTimestamp() - previous.getTimestamp()) / 1000d;
+
+        return String.format(Locale.ROOT, "%.1f", (currentCount - previousCount) / seconds);
+    }
+
+    protected static String formatLatency(long nanos) {
+        return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000d);
+    }
+}
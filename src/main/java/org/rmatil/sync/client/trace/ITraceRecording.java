@@ -0,0 +1,23 @@
+package org.rmatil.sync.client.trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A running recording of trace events
+ */
+public interface ITraceRecording {
+
+    /**
+     * @return The file the recording is written to
+     */
+    Path getDestination();
+
+    /**
+     * Stops the recording and writes it to its destination
+     *
+     * @throws IOException If the recording could not be written
+     */
+    void stop()
+            throws IOException;
+}
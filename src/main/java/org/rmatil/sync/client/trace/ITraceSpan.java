@@ -0,0 +1,15 @@
+package org.rmatil.sync.client.trace;
+
+/**
+ * A phase of an operation being traced. Closing the span ends the phase
+ */
+public interface ITraceSpan extends AutoCloseable {
+
+    /**
+     * @param count The number of elements processed in this phase, e.g. the number of walked paths
+     */
+    void setCount(long count);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,35 @@
+package org.rmatil.sync.client.trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Emits the trace events of the client (see {@link Tracing})
+ */
+public interface ITracer {
+
+    /**
+     * Begins a phase of an operation
+     *
+     * @param operation The operation, e.g. share
+     * @param phase     The phase of the operation, e.g. scan
+     * @param detail    Details of the phase, e.g. the affected path. May be null
+     *
+     * @return The span to close once the phase has ended
+     */
+    ITraceSpan begin(String operation, String phase, String detail);
+
+    /**
+     * Starts a continuous recording, keeping the most recent events only
+     *
+     * @param destination  The file to write the recording to once it is stopped or the process exits
+     * @param maxSize      The maximum size of the recording in bytes
+     * @param maxAgeMillis The maximum age of the recorded events in milliseconds
+     *
+     * @return The started recording
+     *
+     * @throws IOException If the recording could not be started
+     */
+    ITraceRecording startRecording(Path destination, long maxSize, long maxAgeMillis)
+            throws IOException;
+}
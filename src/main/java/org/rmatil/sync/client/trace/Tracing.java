@@ -0,0 +1,114 @@
+package org.rmatil.sync.client.trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Traces the phases of the operations of the client, e.g. to find out
+ * whether a slow share is spent walking the directory or syncing elements.
+ * <p>
+ * Phases are emitted as events to the Java Flight Recorder, if the runtime
+ * provides it (Java 11 or later, or Java 8 since update 262). Otherwise, or
+ * as long as no recording is running, beginning and closing a span costs
+ * next to nothing. A recording is started by {@code connect --record}
+ * or the usual JVM options, e.g. {@code -XX:StartFlightRecording}.
+ * </p>
+ */
+public final class Tracing {
+
+    /**
+     * The class implementing the tracer on the Flight Recorder.
+     * It is only loaded if the Flight Recorder is available
+     */
+    protected static final String JFR_TRACER_CLASS = "org.rmatil.sync.client.trace.jfr.JfrTracer";
+
+    protected static final ITraceSpan NOOP_SPAN = new ITraceSpan() {
+        @Override
+        public void setCount(long count) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    protected static final ITracer TRACER = createTracer();
+
+    private Tracing() {
+    }
+
+    /**
+     * @return True, if events are emitted to the Flight Recorder
+     */
+    public static boolean isAvailable() {
+        return ! (TRACER instanceof NoopTracer);
+    }
+
+    /**
+     * Begins a phase of an operation
+     *
+     * @param operation The operation, e.g. share
+     * @param phase     The phase of the operation, e.g. scan
+     *
+     * @return The span to close once the phase has ended
+     */
+    public static ITraceSpan begin(String operation, String phase) {
+        return TRACER.begin(operation, phase, null);
+    }
+
+    /**
+     * Begins a phase of an operation
+     *
+     * @param operation The operation, e.g. share
+     * @param phase     The phase of the operation, e.g. sync
+     * @param detail    Details of the phase, e.g. the affected path
+     *
+     * @return The span to close once the phase has ended
+     */
+    public static ITraceSpan begin(String operation, String phase, String detail) {
+        return TRACER.begin(operation, phase, detail);
+    }
+
+    /**
+     * Starts a continuous recording of the events of the client and of the JVM,
+     * keeping the most recent events only
+     *
+     * @param destination  The file to write the recording to once it is stopped or the process exits
+     * @param maxSize      The maximum size of the recording in bytes
+     * @param maxAgeMillis The maximum age of the recorded events in milliseconds
+     *
+     * @return The started recording
+     *
+     * @throws IOException If the Flight Recorder is not available or the recording could not be started
+     */
+    public static ITraceRecording startRecording(Path destination, long maxSize, long maxAgeMillis)
+            throws IOException {
+        return TRACER.startRecording(destination, maxSize, maxAgeMillis);
+    }
+
+    protected static ITracer createTracer() {
+        try {
+            // fails on runtimes without the jdk.jfr module
+            Class.forName("jdk.jfr.FlightRecorder");
+
+            return (ITracer) Class.forName(JFR_TRACER_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // e.g. the Flight Recorder is disabled on this JVM
+            return new NoopTracer();
+        }
+    }
+
+    protected static class NoopTracer implements ITracer {
+
+        @Override
+        public ITraceSpan begin(String operation, String phase, String detail) {
+            return NOOP_SPAN;
+        }
+
+        @Override
+        public ITraceRecording startRecording(Path destination, long maxSize, long maxAgeMillis)
+                throws IOException {
+            throw new IOException("The Flight Recorder is not available on this Java runtime. Java 11 or later, or Java 8 since update 262 is required");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.rmatil.sync.client.trace.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.rmatil.sync.client.trace.ITraceRecording;
+import org.rmatil.sync.client.trace.ITraceSpan;
+import org.rmatil.sync.client.trace.ITracer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Emits the trace events to the Java Flight Recorder.
+ * Only loaded by {@link org.rmatil.sync.client.trace.Tracing} if the runtime provides it
+ */
+public class JfrTracer implements ITracer {
+
+    /**
+     * The name of the settings of the JVM events recorded along with the events
+     * of the client. The default settings are meant for continuous recordings in production
+     */
+    public static final String RECORDING_SETTINGS = "default";
+
+    public JfrTracer() {
+        if (! FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("The Flight Recorder is disabled");
+        }
+    }
+
+    @Override
+    public ITraceSpan begin(String operation, String phase, String detail) {
+        PhaseEvent event = new PhaseEvent(operation, phase, detail);
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public ITraceRecording startRecording(Path destination, long maxSize, long maxAgeMillis)
+            throws IOException {
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration(RECORDING_SETTINGS));
+        } catch (ParseException e) {
+            throw new IOException("Could not read the recording settings " + RECORDING_SETTINGS + ": " + e.getMessage(), e);
+        }
+
+        recording.setName("sync-client");
+        recording.enable(PhaseEvent.NAME);
+
+        // a ring buffer on disk, written to the destination on stop or exit
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSize);
+        recording.setMaxAge(Duration.ofMillis(maxAgeMillis));
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+
+        recording.start();
+
+        return new JfrRecording(recording, destination);
+    }
+
+    protected static class JfrRecording implements ITraceRecording {
+
+        protected Recording recording;
+
+        protected Path destination;
+
+        protected JfrRecording(Recording recording, Path destination) {
+            this.recording = recording;
+            this.destination = destination;
+        }
+
+        @Override
+        public Path getDestination() {
+            return destination;
+        }
+
+        @Override
+        public synchronized void stop()
+                throws IOException {
+            if (null == this.recording) {
+                return;
+            }
+
+            try {
+                // writes the recording to the destination
+                this.recording.stop();
+            } catch (IllegalStateException e) {
+                // already stopped, e.g. by a shutdown of the JVM
+            } finally {
+                this.recording.close();
+                this.recording = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.rmatil.sync.client.trace.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.rmatil.sync.client.trace.ITraceSpan;
+
+/**
+ * A phase of an operation of the client, emitted to the Flight Recorder.
+ * The event is its own span, so that tracing a phase allocates a single object
+ */
+@Name(PhaseEvent.NAME)
+@Label("Client Phase")
+@Category({"P2P-Sync", "Client"})
+@Description("A phase of an operation of the sync client")
+@StackTrace(false)
+public class PhaseEvent extends jdk.jfr.Event implements ITraceSpan {
+
+    public static final String NAME = "org.rmatil.sync.client.Phase";
+
+    @Label("Operation")
+    protected String operation;
+
+    @Label("Phase")
+    protected String phase;
+
+    @Label("Detail")
+    protected String detail;
+
+    @Label("Count")
+    protected long count;
+
+    public PhaseEvent(String operation, String phase, String detail) {
+        this.operation = operation;
+        this.phase = phase;
+        this.detail = detail;
+    }
+
+    @Override
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public void close() {
+        this.end();
+
+        if (this.shouldCommit()) {
+            this.commit();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.rmatil.sync.client.util;
+
+import org.rmatil.sync.client.console.io.Output;
+import org.rmatil.sync.client.exception.ValidationException;
+import org.rmatil.sync.core.model.ApplicationConfig;
+import org.rmatil.sync.core.model.RemoteClientLocation;
+
+/**
+ * Resolves the bootstrap location of a node from the options of a command
+ * and the bootstrap location stored in the application config, so that all
+ * commands starting a node honor the same options.
+ */
+public class BootstrapUtils {
+
+    /**
+     * Sets the bootstrap location given by the options on the config.
+     * Missing parts are taken from the configured bootstrap location,
+     * a missing port falls back to the default port.
+     *
+     * @param appConfig The config of the node to start. Only changed for this run
+     * @param ipAddress The ip address given as option or null
+     * @param port      The port given as option or null
+     *
+     * @return True, if a bootstrap location is set. False, if neither options nor a configured location are given
+     *
+     * @throws ValidationException If a port is given but no ip address is given or configured
+     */
+    public static boolean applyBootstrapLocation(ApplicationConfig appConfig, String ipAddress, Integer port)
+            throws ValidationException {
+        RemoteClientLocation configured = appConfig.getBootstrapLocation();
+
+        if (null != ipAddress || null != port) {
+            String resolvedIpAddress = ipAddress;
+            if (null == resolvedIpAddress && null != configured) {
+                resolvedIpAddress = configured.getIpAddress();
+            }
+
+            if (null == resolvedIpAddress) {
+                throw new ValidationException("No bootstrap ip address is configured to use with bootstrap port " + port + ". Specify one with --bootstrap-ip");
+            }
+
+            // use the configured port or the default port as fallback
+            int resolvedPort = org.rmatil.sync.core.config.Config.DEFAULT.getDefaultPort();
+            if (null != port) {
+                resolvedPort = port;
+            } else if (null != configured && 0 < configured.getPort()) {
+                resolvedPort = configured.getPort();
+            }
+
+            appConfig.setBootstrapLocation(new RemoteClientLocation(resolvedIpAddress, resolvedPort));
+            Output.println("Using configured bootstrap address " + resolvedIpAddress + ":" + resolvedPort);
+
+            return true;
+        }
+
+        if (null != configured && 0 < configured.getPort() && null != configured.getIpAddress()) {
+            Output.println("Using default bootstrap address " + configured.getIpAddress() + ":" + configured.getPort());
+            return true;
+        }
+
+        return false;
+    }
+}
@@ -1,6 +1,13 @@
 package org.rmatil.sync.client.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 public class FileUtils {
 
@@ -33,4 +40,45 @@ public class FileUtils {
     public static String resolveUserHome(String path) {
         return path.replaceFirst("^~", System.getProperty("user.home"));
     }
+
+    /**
+     * Replaces the content of the given file atomically: The content is written
+     * to a temporary file next to it, synced to disk and moved over the file.
+     * A crash therefore either leaves the old or the new content behind, but
+     * never a partially written file. A newly created file is readable by
+     * the owner only.
+     *
+     * @param file    The file to write
+     * @param content The new content of the file
+     *
+     * @throws IOException If writing failed. The file is left untouched in this case
+     */
+    public static void writeAtomically(Path file, byte[] content)
+            throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        // created readable by the owner only, which suits files holding private keys
+        Path tmpFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+                channel.force(true);
+            }
+
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+
+        // persist the rename itself. Not supported on all platforms
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // the content is safe, only the rename might be lost on a crash
+        }
+    }
 }
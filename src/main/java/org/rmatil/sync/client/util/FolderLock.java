@@ -0,0 +1,97 @@
+package org.rmatil.sync.client.util;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An exclusive lock on the object store of a synced folder, held by a node
+ * for as long as it is running. Commands which must not run concurrently
+ * with a node (e.g. {@code gc}) refuse to run if they can not acquire it.
+ * The lock is released by the operating system once the process exits.
+ */
+public class FolderLock implements AutoCloseable {
+
+    /**
+     * The name of the lock file within the object store
+     */
+    public static final String LOCK_FILE_NAME = "client.lock";
+
+    protected FileChannel channel;
+
+    protected FileLock lock;
+
+    protected FolderLock(FileChannel channel, FileLock lock) {
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Acquires the lock of the given object store without waiting
+     *
+     * @param objectStoreFolder The object store folder of the synced folder
+     *
+     * @return The lock or null, if it is held by a running node
+     *
+     * @throws IOException If the lock file could not be opened
+     */
+    public static FolderLock tryAcquire(Path objectStoreFolder)
+            throws IOException {
+        FileChannel channel = FileChannel.open(
+                objectStoreFolder.resolve(LOCK_FILE_NAME),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE
+        );
+
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by this process
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        if (null == lock) {
+            channel.close();
+            return null;
+        }
+
+        return new FolderLock(channel, lock);
+    }
+
+    /**
+     * Acquires the lock of the object store of the given synced folder, if it has been initialised
+     *
+     * @param syncFolder The synced folder
+     *
+     * @return The lock, a lock without effect if the folder has not been initialised, or null if it is held by a running node
+     *
+     * @throws IOException If the lock file could not be opened
+     */
+    public static FolderLock tryAcquireSyncFolder(Path syncFolder)
+            throws IOException {
+        Path objectStoreFolder = syncFolder.resolve(org.rmatil.sync.core.config.Config.DEFAULT.getOsFolderName());
+
+        if (! Files.isDirectory(objectStoreFolder)) {
+            return new FolderLock(null, null);
+        }
+
+        return tryAcquire(objectStoreFolder);
+    }
+
+    @Override
+    public void close()
+            throws IOException {
+        if (null != this.channel) {
+            // closing the channel releases the lock
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.rmatil.sync.client.util;
+
+public class HexUtils {
+
+    protected static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Encodes the given bytes as upper case hexadecimal string,
+     * using a lookup table instead of formatting each byte
+     *
+     * @param bytes The bytes to encode
+     *
+     * @return The hexadecimal representation, two characters per byte
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xFF;
+            chars[2 * i] = HEX_DIGITS[value >>> 4];
+            chars[2 * i + 1] = HEX_DIGITS[value & 0x0F];
+        }
+
+        return new String(chars);
+    }
+}
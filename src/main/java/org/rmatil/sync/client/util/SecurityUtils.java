@@ -0,0 +1,21 @@
+package org.rmatil.sync.client.util;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.security.Security;
+
+/**
+ * Kept separate from the commands, so that BouncyCastle is only
+ * loaded by the JVM once a command actually requires it
+ */
+public class SecurityUtils {
+
+    /**
+     * Adds BouncyCastle as security provider if not yet done
+     */
+    public static synchronized void registerBouncyCastle() {
+        if (null == Security.getProvider(BouncyCastleProvider.PROVIDER_NAME)) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.rmatil.sync.client.walker;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+public interface IPathVisitor {
+
+    /**
+     * Invoked for each element found in the walked tree.
+     * Directories are visited before their contents.
+     *
+     * @param relativePath The path of the element, relative to the root of the storage adapter
+     * @param attributes   The attributes of the element, as read during the walk
+     *
+     * @throws InterruptedException If the visitor got interrupted while handling the element. This aborts the walk
+     */
+    void visit(Path relativePath, BasicFileAttributes attributes)
+            throws InterruptedException;
+
+    /**
+     * Invoked if an element could not be read.
+     * The walk continues with the next element afterwards.
+     *
+     * @param relativePath The path of the element, relative to the root of the storage adapter
+     * @param e            The exception which occurred
+     */
+    default void visitFailed(Path relativePath, IOException e) {
+        // nothing to do by default
+    }
+}
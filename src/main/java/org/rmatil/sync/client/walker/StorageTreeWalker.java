@@ -0,0 +1,158 @@
+package org.rmatil.sync.client.walker;
+
+import org.rmatil.sync.core.config.Config;
+import org.rmatil.sync.persistence.core.tree.ITreeStorageAdapter;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Walks the tree of an {@link ITreeStorageAdapter} lazily.
+ * <p>
+ * In contrast to {@link ITreeStorageAdapter#getDirectoryContents(org.rmatil.sync.persistence.core.tree.TreePathElement)},
+ * the contents are not collected into a list first, but handed
+ * to the visitor as soon as they are discovered. Only the directory
+ * streams along the currently visited branch are kept open, i.e.
+ * memory consumption is bounded by the depth and not by the size
+ * of the tree. The object store folder is skipped.
+ * </p>
+ */
+public class StorageTreeWalker {
+
+    protected Path rootPath;
+
+    public StorageTreeWalker(ITreeStorageAdapter storageAdapter) {
+        // normalized like the start of a walk, so that visited paths can be relativized against it
+        this.rootPath = Paths.get(storageAdapter.getRootDir().getPath()).toAbsolutePath().normalize();
+    }
+
+    public Path getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * Walks all elements below the given path, excluding the element itself
+     *
+     * @param relativeStart The path relative to the root of the storage adapter to start at
+     * @param visitor       The visitor to hand over the found elements
+     *
+     * @return The number of visited elements
+     *
+     * @throws IOException          If the start element could not be read
+     * @throws InterruptedException If the visitor got interrupted
+     */
+    public long walk(Path relativeStart, IPathVisitor visitor)
+            throws IOException, InterruptedException {
+        Path start = this.rootPath.resolve(relativeStart).normalize();
+        Path objectStore = this.rootPath.resolve(Config.DEFAULT.getOsFolderName());
+
+        ElementVisitor elementVisitor = new ElementVisitor(start, objectStore, visitor);
+
+        try {
+            Files.walkFileTree(start, elementVisitor);
+        } catch (VisitorInterruptedException e) {
+            throw e.getCause();
+        }
+
+        return elementVisitor.visited;
+    }
+
+    private class ElementVisitor extends SimpleFileVisitor<Path> {
+
+        private Path start;
+
+        private Path objectStore;
+
+        private IPathVisitor visitor;
+
+        private long visited = 0;
+
+        private ElementVisitor(Path start, Path objectStore, IPathVisitor visitor) {
+            this.start = start;
+            this.objectStore = objectStore;
+            this.visitor = visitor;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+            if (dir.equals(this.objectStore)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+
+            if (! dir.equals(this.start)) {
+                this.visit(dir, attrs);
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+            if (! file.equals(this.start)) {
+                this.visit(file, attrs);
+            }
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc)
+                throws IOException {
+            if (file.equals(this.start)) {
+                throw exc;
+            }
+
+            this.visitor.visitFailed(rootPath.relativize(file), exc);
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc)
+                throws IOException {
+            if (null == exc) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            if (dir.equals(this.start)) {
+                throw exc;
+            }
+
+            // reading the directory failed midway, continue with its siblings
+            this.visitor.visitFailed(rootPath.relativize(dir), exc);
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void visit(Path path, BasicFileAttributes attrs) {
+            try {
+                this.visitor.visit(rootPath.relativize(path), attrs);
+                this.visited++;
+            } catch (InterruptedException e) {
+                throw new VisitorInterruptedException(e);
+            }
+        }
+    }
+
+    /**
+     * Tunnels an {@link InterruptedException} through {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)}
+     */
+    private static class VisitorInterruptedException extends RuntimeException {
+
+        private VisitorInterruptedException(InterruptedException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized InterruptedException getCause() {
+            return (InterruptedException) super.getCause();
+        }
+    }
+}